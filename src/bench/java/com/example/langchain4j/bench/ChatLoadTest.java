@@ -0,0 +1,299 @@
+package com.example.langchain4j.bench;
+
+import com.example.langchain4j.Langchain4jDemoApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 对话接口端到端压测：启动模拟 Ollama ({@link StubOllamaServer}) 与应用 (默认 local profile，无需外部向量库)，
+ * 以闭环方式 (每个客户端收到完整响应后立即发出下一个请求) 按不同并发压测各对话接口，
+ * 每档输出一行 JSON: 吞吐量 (成功请求/秒)、P50/P99 延迟、错误率 (按 HTTP 状态分类，429 即准入控制拒绝)，
+ * 流式接口另外统计客户端观测到的首 token 耗时。
+ *
+ * 默认每个请求使用不同的问题，避免相同问题合并 (app.chat.coalesce-requests) 掩盖模型压力；
+ * 进程内启动时默认关闭语义回答缓存，RAG 压测会等待文档导入完成后开始。
+ * 模拟 Ollama 的参数见 StubOllamaServer (-Dstub.*)，指定 -Dapp.url 时压测已运行的应用，不启动模拟服务与应用。
+ *
+ * 运行方式:
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.ChatLoadTest \
+ *     -Dendpoints=chat,chat-post,rag,stream,rag-stream -Dconcurrency=1,4,16,64 -DwarmupSec=5 -DdurationSec=30 \
+ *     -Dstub.parallel=4 -Dstub.firstTokenMs=lognormal:300,1200 -Dstub.tokens=uniform:100-300 -Dstub.tokensPerSec=30
+ */
+public class ChatLoadTest {
+
+    private static final String QUESTION = "LangChain4j 有哪些特性？";
+
+    private static final AtomicLong PROMPTS = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        List<Endpoint> endpoints = Arrays.stream(System.getProperty("endpoints", "chat,chat-post,rag,stream,rag-stream")
+                        .split(","))
+                .map(String::trim)
+                .map(Endpoint::of)
+                .toList();
+        int[] concurrencyLevels = EmbeddingThroughputBenchmark.parse(System.getProperty("concurrency", "1,4,16,64"));
+        long warmupMs = Long.getLong("warmupSec", 5) * 1000;
+        long durationMs = Long.getLong("durationSec", 30) * 1000;
+        Duration timeout = Duration.ofSeconds(Long.getLong("timeoutSec", 120));
+        boolean uniquePrompts = Boolean.parseBoolean(System.getProperty("uniquePrompts", "true"));
+
+        StubOllamaServer stub = null;
+        ConfigurableApplicationContext context = null;
+        String appUrl = System.getProperty("app.url");
+        try {
+            if (appUrl == null) {
+                stub = StubOllamaServer.fromSystemProperties();
+                System.out.printf("模拟 Ollama: %s (%s)%n", stub.baseUrl(), stub.describe());
+                context = startApplication(stub.baseUrl());
+                appUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            }
+            System.out.printf("压测目标: %s，预热 %ds，每档持续 %ds，CPU 核数: %d%n",
+                    appUrl, warmupMs / 1000, durationMs / 1000, Runtime.getRuntime().availableProcessors());
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            if (endpoints.stream().anyMatch(endpoint -> endpoint.rag)) {
+                awaitIngestion(client, appUrl);
+            }
+
+            for (Endpoint endpoint : endpoints) {
+                for (int concurrency : concurrencyLevels) {
+                    long generationsBefore = stub == null ? 0 : stub.generations();
+                    Result result = run(client, appUrl, endpoint, concurrency, warmupMs, durationMs, timeout,
+                            uniquePrompts);
+                    long generations = stub == null ? -1 : stub.generations() - generationsBefore;
+                    report(endpoint, concurrency, result, generations);
+                }
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    /**
+     * 进程内启动应用，两个 Ollama 模型都指向模拟服务；-DappArgs 追加其它启动参数 (空格分隔)
+     */
+    private static ConfigurableApplicationContext startApplication(String ollamaUrl) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=" + System.getProperty("app.profile", "local"),
+                "--server.port=0",
+                "--langchain4j.ollama.chat-model.base-url=" + ollamaUrl,
+                "--langchain4j.ollama.streaming-chat-model.base-url=" + ollamaUrl,
+                "--app.answer-cache.enabled=" + System.getProperty("answerCache", "false")));
+        String extra = System.getProperty("appArgs", "").trim();
+        if (!extra.isEmpty()) {
+            args.addAll(Arrays.asList(extra.split("\\s+")));
+        }
+        return SpringApplication.run(Langchain4jDemoApplication.class, args.toArray(String[]::new));
+    }
+
+    /**
+     * 文档导入完成前知识库为空，RAG 的检索耗时与回答长度都不具代表性
+     */
+    private static void awaitIngestion(HttpClient client, String appUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(appUrl + "/api/stats/ingestion")).GET().build();
+        long deadline = System.currentTimeMillis() + Long.getLong("ingestionTimeoutSec", 600) * 1000;
+        while (System.currentTimeMillis() < deadline) {
+            String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            if (body.contains("\"READY\"") || body.contains("\"FAILED\"")) {
+                System.out.println("文档导入状态: " + body);
+                return;
+            }
+            Thread.sleep(1000);
+        }
+        System.out.println("等待文档导入超时，继续压测");
+    }
+
+    private static Result run(HttpClient client, String appUrl, Endpoint endpoint, int concurrency,
+                              long warmupMs, long durationMs, Duration timeout, boolean uniquePrompts)
+            throws InterruptedException {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Long> firstTokens = new ConcurrentLinkedQueue<>();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + warmupMs * 1_000_000;
+        long deadline = measureFrom + durationMs * 1_000_000;
+
+        List<Thread> clients = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    String prompt = uniquePrompts ? "第 " + PROMPTS.incrementAndGet() + " 个问题：" + QUESTION : QUESTION;
+                    long start = System.nanoTime();
+                    Outcome outcome = call(client, appUrl, endpoint, prompt, timeout, start);
+                    long end = System.nanoTime();
+                    // 只统计在测量窗口内完成的请求
+                    if (end < measureFrom || end > deadline) {
+                        continue;
+                    }
+                    if (outcome.error() != null) {
+                        errors.computeIfAbsent(outcome.error(), key -> new LongAdder()).increment();
+                        continue;
+                    }
+                    latencies.add(end - start);
+                    if (outcome.firstTokenNanos() >= 0) {
+                        firstTokens.add(outcome.firstTokenNanos());
+                    }
+                }
+            }, "load-client-" + i);
+            thread.start();
+            clients.add(thread);
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((key, count) -> errorCounts.put(key, count.sum()));
+        return new Result(sorted(latencies), sorted(firstTokens), errorCounts, durationMs);
+    }
+
+    private static Outcome call(HttpClient client, String appUrl, Endpoint endpoint, String prompt,
+                                Duration timeout, long start) {
+        try {
+            HttpResponse<InputStream> response = client.send(endpoint.request(appUrl, prompt, timeout),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                if (response.statusCode() != 200) {
+                    reader.lines().forEach(line -> { });
+                    return Outcome.failed(String.valueOf(response.statusCode()));
+                }
+                if (!endpoint.streaming) {
+                    String body = reader.lines().collect(Collectors.joining("\n"));
+                    // POST /api/chat 出错时仍返回 200，错误信息放在 response 字段中
+                    return body.contains("\"response\":\"Error:") ? Outcome.failed("error-body") : new Outcome(null, -1);
+                }
+                long firstToken = -1;
+                String error = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (firstToken < 0 && line.startsWith("event:token")) {
+                        firstToken = System.nanoTime() - start;
+                    } else if (line.startsWith("event:error")) {
+                        error = "stream-error";
+                    }
+                }
+                return new Outcome(error, firstToken);
+            }
+        } catch (IOException e) {
+            return Outcome.failed(e instanceof HttpTimeoutException ? "timeout" : "io");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.failed("interrupted");
+        }
+    }
+
+    private static long[] sorted(ConcurrentLinkedQueue<Long> values) {
+        return values.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+
+    private static void report(Endpoint endpoint, int concurrency, Result result, long generations) {
+        long failed = result.errors().values().stream().mapToLong(Long::longValue).sum();
+        long total = result.latencies().length + failed;
+        String errors = result.errors().entrySet().stream()
+                .map(entry -> "\"" + entry.getKey() + "\":" + entry.getValue())
+                .collect(Collectors.joining(",", "{", "}"));
+        System.out.printf("{\"endpoint\":\"%s\",\"concurrency\":%d,\"requests\":%d,\"throughput\":%.2f,"
+                        + "\"p50Ms\":%.1f,\"p99Ms\":%.1f,\"errorRate\":%.4f,\"errors\":%s,"
+                        + "\"ttftP50Ms\":%.1f,\"ttftP99Ms\":%.1f,\"modelCalls\":%d}%n",
+                endpoint.name, concurrency, total, result.latencies().length * 1000.0 / result.durationMs(),
+                percentileMs(result.latencies(), 0.5), percentileMs(result.latencies(), 0.99),
+                total == 0 ? 0 : (double) failed / total, errors,
+                percentileMs(result.firstTokens(), 0.5), percentileMs(result.firstTokens(), 0.99), generations);
+    }
+
+    /**
+     * 被压测的对话接口
+     */
+    private enum Endpoint {
+        CHAT("chat", "GET", "/api/chat", false, false),
+        CHAT_POST("chat-post", "POST", "/api/chat", false, false),
+        RAG("rag", "GET", "/api/chat/rag", true, false),
+        STREAM("stream", "GET", "/api/chat/stream", false, true),
+        RAG_STREAM("rag-stream", "GET", "/api/chat/rag/stream", true, true);
+
+        private final String name;
+        private final String method;
+        private final String path;
+        private final boolean rag;
+        private final boolean streaming;
+
+        Endpoint(String name, String method, String path, boolean rag, boolean streaming) {
+            this.name = name;
+            this.method = method;
+            this.path = path;
+            this.rag = rag;
+            this.streaming = streaming;
+        }
+
+        static Endpoint of(String name) {
+            return Arrays.stream(values())
+                    .filter(endpoint -> endpoint.name.equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("未知接口: " + name));
+        }
+
+        HttpRequest request(String appUrl, String prompt, Duration timeout) {
+            if ("POST".equals(method)) {
+                String body = "{\"message\":\"" + prompt.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+                return HttpRequest.newBuilder(URI.create(appUrl + path))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                        .build();
+            }
+            String query = "?message=" + URLEncoder.encode(prompt, StandardCharsets.UTF_8);
+            return HttpRequest.newBuilder(URI.create(appUrl + path + query))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+        }
+    }
+
+    private record Outcome(String error, long firstTokenNanos) {
+
+        static Outcome failed(String error) {
+            return new Outcome(error, -1);
+        }
+    }
+
+    private record Result(long[] latencies, long[] firstTokens, Map<String, Long> errors, long durationMs) {
+    }
+}
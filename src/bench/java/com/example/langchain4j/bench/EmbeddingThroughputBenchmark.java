@@ -0,0 +1,77 @@
+package com.example.langchain4j.bench;
+
+import com.example.langchain4j.embedding.ParallelEmbeddingModel;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhq.BgeSmallZhQuantizedEmbeddingModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 向量化吞吐量基准：对比不同工作线程数 / 批大小下的 片段/秒，用于评估硬件配置
+ *
+ * 运行方式:
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.EmbeddingThroughputBenchmark \
+ *     -Dsegments=2000 -Dthreads=1,4,8,16,32 -Dbatches=16,64
+ */
+public class EmbeddingThroughputBenchmark {
+
+    private static final String SAMPLE = "LangChain4j 是一个用于在 Java 应用中集成大语言模型的框架，"
+            + "支持检索增强生成、工具调用、对话记忆以及多种向量数据库。"
+            + "文档被切分成片段后通过 BGE-Small-ZH 模型转换为 512 维向量并写入向量库。";
+
+    public static void main(String[] args) {
+        int segmentCount = Integer.getInteger("segments", 1000);
+        int[] threadOptions = parse(System.getProperty("threads",
+                "1,2,4," + Runtime.getRuntime().availableProcessors()));
+        int[] batchOptions = parse(System.getProperty("batches", "16,64"));
+        int segmentSize = Integer.getInteger("segmentSize", 300);
+
+        List<TextSegment> segments = syntheticSegments(segmentCount, segmentSize);
+        System.out.printf("片段数: %d，片段长度: %d 字符，CPU 核数: %d%n",
+                segmentCount, segmentSize, Runtime.getRuntime().availableProcessors());
+
+        // 基线：默认 BgeSmallZhQuantizedEmbeddingModel (内部按 CPU 核数逐片段并行)
+        report("default", 0, 0, run(new BgeSmallZhQuantizedEmbeddingModel(), segments));
+
+        for (int threads : threadOptions) {
+            for (int maxBatch : batchOptions) {
+                try (ParallelEmbeddingModel model = new ParallelEmbeddingModel(ParallelEmbeddingModel.BGE_SMALL_ZH_Q,
+                        new BgeSmallZhQuantizedEmbeddingModel(Runnable::run), threads, 1, maxBatch)) {
+                    report("parallel", threads, maxBatch, run(model, segments));
+                }
+            }
+        }
+    }
+
+    private static double run(EmbeddingModel model, List<TextSegment> segments) {
+        // 预热，排除模型加载与 JIT 影响
+        model.embedAll(segments.subList(0, Math.min(50, segments.size())));
+        long start = System.nanoTime();
+        model.embedAll(segments);
+        return segments.size() * 1_000_000_000.0 / (System.nanoTime() - start);
+    }
+
+    private static void report(String engine, int threads, int maxBatch, double segmentsPerSecond) {
+        System.out.printf("{\"engine\":\"%s\",\"threads\":%d,\"maxBatch\":%d,\"segmentsPerSecond\":%.1f}%n",
+                engine, threads, maxBatch, segmentsPerSecond);
+    }
+
+    static List<TextSegment> syntheticSegments(int count, int size) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder().append(i).append(' ');
+            while (text.length() < size) {
+                text.append(SAMPLE);
+            }
+            segments.add(TextSegment.from(text.substring(0, size)));
+        }
+        return segments;
+    }
+
+    static int[] parse(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.langchain4j.bench;
+
+import com.example.langchain4j.store.HnswIndex;
+import com.example.langchain4j.store.LocalEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * HNSW 召回率-延迟基准：以精确扫描结果为基准，统计不同 efSearch 下的 recall@k 与检索延迟
+ *
+ * 运行方式:
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.HnswRecallBenchmark \
+ *     -Dvectors=100000 -Ddimension=512 -Dqueries=200 -Dk=10 -Dm=16 -DefConstruction=200 -Def=16,32,64,128,256
+ */
+public class HnswRecallBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = Integer.getInteger("vectors", 100_000);
+        int dimension = Integer.getInteger("dimension", 512);
+        int queryCount = Integer.getInteger("queries", 200);
+        int k = Integer.getInteger("k", 10);
+        int m = Integer.getInteger("m", 16);
+        int efConstruction = Integer.getInteger("efConstruction", 200);
+        int[] efOptions = EmbeddingThroughputBenchmark.parse(System.getProperty("ef", "16,32,64,128,256"));
+
+        List<Embedding> embeddings = syntheticVectors(count, dimension, 42);
+        List<Embedding> queries = syntheticVectors(queryCount, dimension, 7);
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from(String.valueOf(i)));
+        }
+        System.out.printf("向量数: %d，维度: %d，查询数: %d，k: %d，CPU 核数: %d%n",
+                count, dimension, queryCount, k, Runtime.getRuntime().availableProcessors());
+
+        Path flatDir = Files.createTempDirectory("bench-flat");
+        Path hnswDir = Files.createTempDirectory("bench-hnsw");
+        try {
+            // 基准：精确扫描
+            List<Set<String>> truth = new ArrayList<>();
+            try (LocalEmbeddingStore flat = new LocalEmbeddingStore(flatDir, dimension)) {
+                flat.addAll(embeddings, segments);
+                double[] latencies = new double[queryCount];
+                for (int q = 0; q < queryCount; q++) {
+                    long start = System.nanoTime();
+                    truth.add(texts(flat.search(request(queries.get(q), k)).matches()));
+                    latencies[q] = (System.nanoTime() - start) / 1e6;
+                }
+                report("flat", 0, 1.0, latencies, 0);
+            }
+
+            long buildStart = System.nanoTime();
+            try (LocalEmbeddingStore hnsw = new LocalEmbeddingStore(hnswDir, dimension,
+                    new HnswIndex.Options(m, efConstruction, efOptions[0]))) {
+                hnsw.addAll(embeddings, segments);
+            }
+            System.out.printf("{\"index\":\"hnsw\",\"m\":%d,\"efConstruction\":%d,\"buildMs\":%.0f}%n",
+                    m, efConstruction, (System.nanoTime() - buildStart) / 1e6);
+
+            // 每个 efSearch 重新打开索引，同时统计从磁盘加载的耗时
+            for (int ef : efOptions) {
+                long loadStart = System.nanoTime();
+                try (LocalEmbeddingStore hnsw = new LocalEmbeddingStore(hnswDir, dimension,
+                        new HnswIndex.Options(m, efConstruction, ef))) {
+                    double loadMs = (System.nanoTime() - loadStart) / 1e6;
+                    double[] latencies = new double[queryCount];
+                    double hits = 0;
+                    for (int q = 0; q < queryCount; q++) {
+                        long start = System.nanoTime();
+                        Set<String> result = texts(hnsw.search(request(queries.get(q), k)).matches());
+                        latencies[q] = (System.nanoTime() - start) / 1e6;
+                        result.retainAll(truth.get(q));
+                        hits += result.size();
+                    }
+                    report("hnsw", ef, hits / (queryCount * (double) k), latencies, loadMs);
+                }
+            }
+        } finally {
+            delete(flatDir);
+            delete(hnswDir);
+        }
+    }
+
+    /**
+     * 生成带聚类结构的随机向量，比纯随机高斯向量更接近真实文本向量的分布
+     */
+    static List<Embedding> syntheticVectors(int count, int dimension, long seed) {
+        Random random = new Random(seed);
+        Random centroidRandom = new Random(0);
+        int clusters = Math.max(1, (int) Math.sqrt(count));
+        float[][] centroids = new float[clusters][dimension];
+        for (float[] centroid : centroids) {
+            for (int j = 0; j < dimension; j++) {
+                centroid[j] = (float) centroidRandom.nextGaussian();
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] centroid = centroids[random.nextInt(clusters)];
+            float[] vector = new float[dimension];
+            for (int j = 0; j < dimension; j++) {
+                vector[j] = centroid[j] + (float) random.nextGaussian() * 0.5f;
+            }
+            embeddings.add(Embedding.from(vector));
+        }
+        return embeddings;
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query, int k) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(k).minScore(0.0).build();
+    }
+
+    private static Set<String> texts(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(match -> match.embedded().text()).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static void report(String index, int ef, double recall, double[] latencies, double loadMs) {
+        double[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("{\"index\":\"%s\",\"efSearch\":%d,\"recall\":%.4f,\"avgMs\":%.3f,\"p50Ms\":%.3f,"
+                        + "\"p99Ms\":%.3f,\"loadMs\":%.0f}%n",
+                index, ef, recall, Arrays.stream(latencies).average().orElse(0),
+                sorted[sorted.length / 2], sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))], loadMs);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.langchain4j.bench;
+
+import com.example.langchain4j.store.IndexedPgVectorEmbeddingStore;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * PgVector 召回率-QPS 基准：在本地 Postgres 中写入带聚类结构的随机向量，
+ * 以 Java 内精确计算的余弦 Top-k 为基准，统计各索引配置与 probes / ef_search 下的 recall@k、延迟与并发 QPS
+ *
+ * 每行输出一个 JSON 结果；index = library 为 langchain4j 原检索语句 (按派生 score 列排序，不走索引) 的基线。
+ * 索引配置写法: ivfflat/<lists> (lists = 0 按行数自动计算)、hnsw/<m>/<efConstruction>、none
+ *
+ * 运行方式 (需要已安装 pgvector 扩展的 Postgres，基准表 bench_vectors 每次运行前重建):
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.PgVectorRecallBenchmark \
+ *     -Djdbc.url=jdbc:postgresql://localhost:5432/postgres -Djdbc.user=postgres -Djdbc.password=postgres \
+ *     -Dvectors=100000 -Ddimension=512 -Dqueries=200 -Dk=10 -Dthreads=8 \
+ *     -Dindexes=ivfflat/100,ivfflat/0,hnsw/16/64,hnsw/16/200 -Dprobes=1,4,10,20,40 -Def=16,40,64,128,256
+ */
+public class PgVectorRecallBenchmark {
+
+    private static final String TABLE = "bench_vectors";
+    private static final int INSERT_BATCH = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int count = Integer.getInteger("vectors", 100_000);
+        int dimension = Integer.getInteger("dimension", 512);
+        int queryCount = Integer.getInteger("queries", 200);
+        int k = Integer.getInteger("k", 10);
+        int threads = Integer.getInteger("threads", 8);
+        String[] indexes = System.getProperty("indexes", "ivfflat/100,ivfflat/0,hnsw/16/64,hnsw/16/200").split(",");
+        int[] probeOptions = EmbeddingThroughputBenchmark.parse(System.getProperty("probes", "1,4,10,20,40"));
+        int[] efOptions = EmbeddingThroughputBenchmark.parse(System.getProperty("ef", "16,40,64,128,256"));
+
+        List<Embedding> embeddings = HnswRecallBenchmark.syntheticVectors(count, dimension, 42);
+        List<Embedding> queries = HnswRecallBenchmark.syntheticVectors(queryCount, dimension, 7);
+        System.out.printf("向量数: %d，维度: %d，查询数: %d，k: %d，并发: %d%n", count, dimension, queryCount, k, threads);
+
+        HikariConfig hikari = new HikariConfig();
+        hikari.setJdbcUrl(System.getProperty("jdbc.url", "jdbc:postgresql://localhost:5432/postgres"));
+        hikari.setUsername(System.getProperty("jdbc.user", "postgres"));
+        hikari.setPassword(System.getProperty("jdbc.password", "postgres"));
+        hikari.setMaximumPoolSize(threads);
+        try (HikariDataSource dataSource = new HikariDataSource(hikari)) {
+            execute(dataSource, "DROP TABLE IF EXISTS " + TABLE);
+
+            // 写入时不建索引，之后按各配置建索引
+            IndexedPgVectorEmbeddingStore loader = store(dataSource, dimension, "none", 0, 0);
+            List<String> ids = new ArrayList<>(count);
+            long loadStart = System.nanoTime();
+            for (int from = 0; from < count; from += INSERT_BATCH) {
+                int to = Math.min(from + INSERT_BATCH, count);
+                List<TextSegment> segments = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    segments.add(TextSegment.from(String.valueOf(i)));
+                }
+                ids.addAll(loader.addAll(embeddings.subList(from, to), segments));
+            }
+            execute(dataSource, "ANALYZE " + TABLE);
+            System.out.printf("{\"load\":%d,\"loadMs\":%.0f}%n", count, (System.nanoTime() - loadStart) / 1e6);
+
+            List<Set<String>> truth = exactTopK(embeddings, ids, queries, k);
+
+            PgVectorEmbeddingStore library = PgVectorEmbeddingStore.datasourceBuilder()
+                    .datasource(dataSource).table(TABLE).dimension(dimension)
+                    .useIndex(false).createTable(false).build();
+            run("library", 0, library, queries, truth, k, threads);
+            run("none", 0, loader, queries, truth, k, threads);
+
+            for (String index : indexes) {
+                String[] parts = index.trim().split("/");
+                String type = parts[0];
+                if ("none".equals(type)) {
+                    continue;
+                }
+                int first = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+                int second = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+
+                long buildStart = System.nanoTime();
+                if ("hnsw".equals(type)) {
+                    store(dataSource, dimension, type, first, second, 40);
+                } else {
+                    store(dataSource, dimension, type, first, 0);
+                }
+                System.out.printf("{\"index\":\"%s\",\"buildMs\":%.0f}%n", index, (System.nanoTime() - buildStart) / 1e6);
+
+                for (int option : "hnsw".equals(type) ? efOptions : probeOptions) {
+                    IndexedPgVectorEmbeddingStore store = "hnsw".equals(type)
+                            ? store(dataSource, dimension, type, first, second, option)
+                            : store(dataSource, dimension, type, first, option);
+                    run(index, option, store, queries, truth, k, threads);
+                }
+            }
+            execute(dataSource, "DROP TABLE IF EXISTS " + TABLE);
+        }
+    }
+
+    private static IndexedPgVectorEmbeddingStore store(HikariDataSource dataSource, int dimension, String type,
+                                                       int lists, int probes) {
+        return new IndexedPgVectorEmbeddingStore(dataSource, TABLE, dimension, new IndexedPgVectorEmbeddingStore.Options(
+                IndexedPgVectorEmbeddingStore.indexType(type), lists, probes, 16, 64, 40));
+    }
+
+    private static IndexedPgVectorEmbeddingStore store(HikariDataSource dataSource, int dimension, String type,
+                                                       int m, int efConstruction, int efSearch) {
+        return new IndexedPgVectorEmbeddingStore(dataSource, TABLE, dimension, new IndexedPgVectorEmbeddingStore.Options(
+                IndexedPgVectorEmbeddingStore.indexType(type), 0, 0, m, efConstruction, efSearch));
+    }
+
+    /**
+     * 顺序执行全部查询统计召回率与延迟，再用 threads 个线程并发执行统计 QPS
+     */
+    private static void run(String index, int searchParameter, EmbeddingStore<TextSegment> store,
+                            List<Embedding> queries, List<Set<String>> truth, int k, int threads) throws Exception {
+        // 预热
+        for (int q = 0; q < Math.min(20, queries.size()); q++) {
+            store.search(request(queries.get(q), k));
+        }
+        double[] latencies = new double[queries.size()];
+        double hits = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            long start = System.nanoTime();
+            List<EmbeddingMatch<TextSegment>> matches = store.search(request(queries.get(q), k)).matches();
+            latencies[q] = (System.nanoTime() - start) / 1e6;
+            Set<String> result = matches.stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toSet());
+            result.retainAll(truth.get(q));
+            hits += result.size();
+        }
+
+        int total = queries.size() * 3;
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < total) {
+                        store.search(request(queries.get(i % queries.size()), k));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double qps = total * 1e9 / (System.nanoTime() - start);
+
+        double[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("{\"index\":\"%s\",\"searchParameter\":%d,\"recall\":%.4f,\"avgMs\":%.3f,\"p50Ms\":%.3f,"
+                        + "\"p99Ms\":%.3f,\"qps\":%.1f}%n",
+                index, searchParameter, hits / (queries.size() * (double) k),
+                Arrays.stream(latencies).average().orElse(0), sorted[sorted.length / 2],
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))], qps);
+    }
+
+    /**
+     * 精确余弦 Top-k (与库内 vector_cosine_ops 一致)
+     */
+    private static List<Set<String>> exactTopK(List<Embedding> embeddings, List<String> ids, List<Embedding> queries,
+                                               int k) {
+        float[][] vectors = new float[embeddings.size()][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = normalize(embeddings.get(i).vector());
+        }
+        List<Set<String>> truth = new ArrayList<>(queries.size());
+        for (Embedding query : queries) {
+            float[] q = normalize(query.vector());
+            PriorityQueue<double[]> top = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+            for (int i = 0; i < vectors.length; i++) {
+                double dot = 0;
+                for (int j = 0; j < q.length; j++) {
+                    dot += q[j] * vectors[i][j];
+                }
+                if (top.size() < k) {
+                    top.add(new double[]{dot, i});
+                } else if (dot > top.peek()[0]) {
+                    top.poll();
+                    top.add(new double[]{dot, i});
+                }
+            }
+            Set<String> result = new HashSet<>();
+            for (double[] entry : top) {
+                result.add(ids.get((int) entry[1]));
+            }
+            truth.add(result);
+        }
+        return truth;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] normalized = new float[vector.length];
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query, int k) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(k).minScore(0.0).build();
+    }
+
+    private static void execute(HikariDataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
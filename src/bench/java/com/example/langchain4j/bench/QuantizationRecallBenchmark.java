@@ -0,0 +1,105 @@
+package com.example.langchain4j.bench;
+
+import com.example.langchain4j.store.LocalEmbeddingStore;
+import com.example.langchain4j.store.Quantization;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 量化召回率基准：以 float32 精确扫描为基准，统计 int8 / 二值量化在不同重打分倍数下的 recall@k、延迟与每向量字节数
+ *
+ * 运行方式:
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.QuantizationRecallBenchmark \
+ *     -Dvectors=100000 -Ddimension=512 -Dqueries=200 -Dk=10 -Drescore=1,2,4,8
+ */
+public class QuantizationRecallBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = Integer.getInteger("vectors", 100_000);
+        int dimension = Integer.getInteger("dimension", 512);
+        int queryCount = Integer.getInteger("queries", 200);
+        int k = Integer.getInteger("k", 10);
+        int[] rescoreOptions = EmbeddingThroughputBenchmark.parse(System.getProperty("rescore", "1,2,4,8"));
+
+        List<Embedding> embeddings = HnswRecallBenchmark.syntheticVectors(count, dimension, 42);
+        List<Embedding> queries = HnswRecallBenchmark.syntheticVectors(queryCount, dimension, 7);
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from(String.valueOf(i)));
+        }
+        System.out.printf("向量数: %d，维度: %d，查询数: %d，k: %d，CPU 核数: %d%n",
+                count, dimension, queryCount, k, Runtime.getRuntime().availableProcessors());
+
+        Path directory = Files.createTempDirectory("bench-quantization");
+        try {
+            // 写入一次 float32 向量，各量化方式打开时从原始向量补齐编码
+            List<Set<String>> truth = new ArrayList<>();
+            try (LocalEmbeddingStore store = new LocalEmbeddingStore(directory, dimension)) {
+                store.addAll(embeddings, segments);
+                double[] latencies = new double[queryCount];
+                for (int q = 0; q < queryCount; q++) {
+                    long start = System.nanoTime();
+                    truth.add(search(store, queries.get(q), k));
+                    latencies[q] = (System.nanoTime() - start) / 1e6;
+                }
+                report(Quantization.NONE, 1, 1.0, latencies, dimension * Float.BYTES, dimension);
+            }
+
+            for (Quantization quantization : List.of(Quantization.INT8, Quantization.BINARY)) {
+                for (int rescore : rescoreOptions) {
+                    try (LocalEmbeddingStore store = new LocalEmbeddingStore(directory, dimension, null,
+                            quantization, rescore)) {
+                        double[] latencies = new double[queryCount];
+                        double hits = 0;
+                        for (int q = 0; q < queryCount; q++) {
+                            long start = System.nanoTime();
+                            Set<String> result = search(store, queries.get(q), k);
+                            latencies[q] = (System.nanoTime() - start) / 1e6;
+                            result.retainAll(truth.get(q));
+                            hits += result.size();
+                        }
+                        int bytes = quantization == Quantization.INT8
+                                ? Float.BYTES + dimension
+                                : (dimension + 63) / 64 * Long.BYTES;
+                        report(quantization, rescore, hits / (queryCount * (double) k), latencies, bytes, dimension);
+                    }
+                }
+            }
+        } finally {
+            try (var paths = Files.walk(directory)) {
+                for (Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static Set<String> search(LocalEmbeddingStore store, Embedding query, int k) {
+        return store.search(EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(k).minScore(0.0).build())
+                .matches().stream()
+                .map(match -> match.embedded().text())
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static void report(Quantization quantization, int rescore, double recall, double[] latencies,
+                               int bytesPerVector, int dimension) {
+        double[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("{\"quantization\":\"%s\",\"rescoreFactor\":%d,\"recall\":%.4f,\"avgMs\":%.3f,\"p99Ms\":%.3f,"
+                        + "\"bytesPerVector\":%d,\"compression\":%.1f}%n",
+                quantization, rescore, recall, Arrays.stream(latencies).average().orElse(0),
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))],
+                bytesPerVector, dimension * (double) Float.BYTES / bytesPerVector);
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.langchain4j.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟 Ollama 的本地服务：实现 POST /api/chat (stream = true 时按 NDJSON 逐 token 输出) 与 GET /api/tags，
+ * 用于在没有 GPU 的机器上压测对话接口
+ *
+ * 每次生成: 先等待一个并行槽位 (对应 OLLAMA_NUM_PARALLEL)，再经过 prefill 延迟输出首个 token，
+ * 之后按固定速率输出其余 token。prefill 延迟与回答 token 数按分布采样，分布写法见 {@link Distribution#parse}。
+ *
+ * 单独运行 (再用 --langchain4j.ollama.chat-model.base-url / streaming-chat-model.base-url 指向它启动应用):
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.StubOllamaServer \
+ *     -Dstub.port=11435 -Dstub.parallel=4 -Dstub.firstTokenMs=lognormal:300,1200 -Dstub.tokens=uniform:100-300 \
+ *     -Dstub.tokensPerSec=30 -Dstub.errorRate=0
+ */
+public class StubOllamaServer implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String TOKEN = "测试";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final Semaphore parallel;
+    private final Distribution firstTokenMs;
+    private final Distribution tokens;
+    private final double tokensPerSecond;
+    private final double errorRate;
+
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    public StubOllamaServer(int port, int parallel, Distribution firstTokenMs, Distribution tokens,
+                            double tokensPerSecond, double errorRate) throws IOException {
+        this.parallelism = parallel;
+        this.parallel = new Semaphore(parallel, true);
+        this.firstTokenMs = firstTokenMs;
+        this.tokens = tokens;
+        this.tokensPerSecond = tokensPerSecond;
+        this.errorRate = errorRate;
+        // 生成过程中线程阻塞在 sleep 上，每个连接一个线程
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.createContext("/api/chat", this::chat);
+        server.createContext("/api/tags", exchange -> respond(exchange, 200, "{\"models\":[]}"));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * 按 stub.* 系统属性创建
+     */
+    public static StubOllamaServer fromSystemProperties() throws IOException {
+        return new StubOllamaServer(
+                Integer.getInteger("stub.port", 0),
+                Integer.getInteger("stub.parallel", 4),
+                Distribution.parse(System.getProperty("stub.firstTokenMs", "lognormal:300,1200")),
+                Distribution.parse(System.getProperty("stub.tokens", "uniform:100-300")),
+                Double.parseDouble(System.getProperty("stub.tokensPerSec", "30")),
+                Double.parseDouble(System.getProperty("stub.errorRate", "0")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("stub.port") == null) {
+            System.setProperty("stub.port", "11435");
+        }
+        StubOllamaServer stub = fromSystemProperties();
+        System.out.printf("模拟 Ollama 已启动: %s (%s)%n", stub.baseUrl(), stub.describe());
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public String describe() {
+        return String.format("并行 %d，首 token %s ms，回答 %s token，%.0f token/s，错误率 %.2f",
+                parallelism, firstTokenMs, tokens, tokensPerSecond, errorRate);
+    }
+
+    public long generations() {
+        return generations.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"method not allowed\"}");
+                return;
+            }
+            JsonNode request = JSON.readTree(exchange.getRequestBody());
+            String model = request.path("model").asText("stub");
+            boolean stream = request.path("stream").asBoolean(false);
+            int promptTokens = request.path("messages").toString().length() / 2;
+
+            parallel.acquireUninterruptibly();
+            try {
+                generations.incrementAndGet();
+                if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    injectedErrors.incrementAndGet();
+                    respond(exchange, 500, "{\"error\":\"injected failure\"}");
+                    return;
+                }
+                int count = Math.max(1, (int) tokens.sample());
+                sleep(firstTokenMs.sample());
+                if (stream) {
+                    stream(exchange, model, count, promptTokens);
+                } else {
+                    sleep((count - 1) * 1000.0 / tokensPerSecond);
+                    respond(exchange, 200, chunk(model, TOKEN.repeat(count), true, promptTokens, count));
+                }
+            } finally {
+                parallel.release();
+            }
+        }
+    }
+
+    private void stream(HttpExchange exchange, String model, int count, int promptTokens) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        double intervalMs = 1000.0 / tokensPerSecond;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sleep(intervalMs);
+            }
+            body.write(chunk(model, TOKEN, false, 0, 0).getBytes(StandardCharsets.UTF_8));
+            body.flush();
+        }
+        body.write(chunk(model, "", true, promptTokens, count).getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private static String chunk(String model, String content, boolean done, int promptTokens, int evalTokens) {
+        StringBuilder json = new StringBuilder(128)
+                .append("{\"model\":").append(quote(model))
+                .append(",\"created_at\":\"").append(Instant.now()).append('"')
+                .append(",\"message\":{\"role\":\"assistant\",\"content\":").append(quote(content)).append('}')
+                .append(",\"done\":").append(done);
+        if (done) {
+            json.append(",\"prompt_eval_count\":").append(promptTokens)
+                    .append(",\"eval_count\":").append(evalTokens);
+        }
+        return json.append("}\n").toString();
+    }
+
+    private static String quote(String value) {
+        try {
+            return JSON.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(double millis) {
+        try {
+            Thread.sleep((long) millis, (int) ((millis % 1) * 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 采样分布
+     */
+    public interface Distribution {
+
+        double sample();
+
+        /**
+         * 解析分布写法:
+         * - fixed:300 或 300: 固定值
+         * - uniform:100-500: [100, 500] 均匀分布
+         * - lognormal:300,1200: 中位数 300、P99 1200 的对数正态分布 (长尾延迟)
+         */
+        static Distribution parse(String spec) {
+            String[] parts = spec.trim().split(":", 2);
+            String type = parts.length == 1 ? "fixed" : parts[0];
+            String args = parts[parts.length - 1];
+            switch (type) {
+                case "fixed" -> {
+                    double value = Double.parseDouble(args);
+                    return named(spec, () -> value);
+                }
+                case "uniform" -> {
+                    String[] range = args.split("-");
+                    double min = Double.parseDouble(range[0]);
+                    double max = Double.parseDouble(range[1]);
+                    return named(spec, () -> min + ThreadLocalRandom.current().nextDouble() * (max - min));
+                }
+                case "lognormal" -> {
+                    String[] values = args.split(",");
+                    double median = Double.parseDouble(values[0]);
+                    double p99 = Double.parseDouble(values[1]);
+                    // P99 对应标准正态分布的 2.326 个标准差
+                    double sigma = Math.log(p99 / median) / 2.326;
+                    return named(spec, () -> median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+                }
+                default -> throw new IllegalArgumentException("未知分布: " + spec);
+            }
+        }
+
+        private static Distribution named(String spec, Distribution distribution) {
+            return new Distribution() {
+                @Override
+                public double sample() {
+                    return distribution.sample();
+                }
+
+                @Override
+                public String toString() {
+                    return spec;
+                }
+            };
+        }
+    }
+}
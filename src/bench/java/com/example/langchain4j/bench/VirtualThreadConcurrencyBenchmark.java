@@ -0,0 +1,128 @@
+package com.example.langchain4j.bench;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求执行模式并发基准：对比平台线程池 (Tomcat 默认 threads.max = 200) 与每请求一个虚拟线程时，
+ * 阻塞式模型调用在不同并发客户端数下的吞吐量与 P99 延迟，并给出各模式的最大可持续并发数
+ * (P99 不超过单次调用耗时的 sustainableFactor 倍，即排队等线程的时间可以忽略)。
+ *
+ * 模型调用用阻塞 sleep 模拟 (虚拟线程上与阻塞 socket 读取一样会让出载体线程)，只衡量请求线程模型本身，
+ * 实际上限还受 app.chat.admission 与 Ollama 并发能力约束。virtual 模式需要在 Java 21+ 上运行，
+ * 在 Java 17 上自动跳过。
+ *
+ * 运行方式:
+ * mvn -Pbench compile exec:java -Dbench.main=com.example.langchain4j.bench.VirtualThreadConcurrencyBenchmark \
+ *     -Dmodes=platform,virtual -Dconcurrency=100,200,400,800,1600,3200 -DlatencyMs=500 -DdurationSec=10 -DpoolSize=200
+ */
+public class VirtualThreadConcurrencyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String[] modes = System.getProperty("modes", "platform,virtual").split(",");
+        int[] concurrencyLevels = EmbeddingThroughputBenchmark.parse(
+                System.getProperty("concurrency", "100,200,400,800,1600,3200"));
+        long latencyMs = Long.getLong("latencyMs", 500);
+        long durationMs = Long.getLong("durationSec", 10) * 1000;
+        int poolSize = Integer.getInteger("poolSize", 200);
+        double sustainableFactor = Double.parseDouble(System.getProperty("sustainableFactor", "1.5"));
+        System.out.printf("Java %s，模拟调用耗时: %dms，每档持续: %ds，平台线程池大小: %d，CPU 核数: %d%n",
+                Runtime.version(), latencyMs, durationMs / 1000, poolSize, Runtime.getRuntime().availableProcessors());
+
+        for (String mode : modes) {
+            mode = mode.trim();
+            int maxSustainable = 0;
+            for (int concurrency : concurrencyLevels) {
+                ExecutorService executor = executor(mode, poolSize);
+                if (executor == null) {
+                    System.out.printf("{\"mode\":\"%s\",\"skipped\":\"需要 Java 21 (当前 %s)\"}%n",
+                            mode, Runtime.version().feature());
+                    break;
+                }
+                Result result = run(executor, concurrency, latencyMs, durationMs);
+                boolean sustainable = result.p99Ms() <= latencyMs * sustainableFactor;
+                if (sustainable) {
+                    maxSustainable = concurrency;
+                }
+                System.out.printf("{\"mode\":\"%s\",\"concurrency\":%d,\"throughput\":%.1f,\"p50Ms\":%.1f,"
+                                + "\"p99Ms\":%.1f,\"peakInFlight\":%d,\"sustainable\":%s}%n",
+                        mode, concurrency, result.throughput(), result.p50Ms(), result.p99Ms(),
+                        result.peakInFlight(), sustainable);
+            }
+            System.out.printf("%s 最大可持续并发: %d%n", mode, maxSustainable);
+        }
+    }
+
+    /**
+     * virtual 模式通过反射创建，基准代码在 Java 17 上也能编译
+     */
+    private static ExecutorService executor(String mode, int poolSize) {
+        if ("platform".equals(mode)) {
+            return Executors.newFixedThreadPool(poolSize);
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 闭环压测：每个客户端收到响应后立即发出下一个请求，延迟从提交开始计算 (含等待线程的排队时间)
+     */
+    private static Result run(ExecutorService executor, int concurrency, long latencyMs, long durationMs)
+            throws InterruptedException {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        CountDownLatch clients = new CountDownLatch(concurrency);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+
+        for (int i = 0; i < concurrency; i++) {
+            submit(executor, latencies, running, peakInFlight, clients, deadline, latencyMs);
+        }
+        clients.await();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            return new Result(0, 0, 0, peakInFlight.get());
+        }
+        return new Result(sorted.length * 1000.0 / durationMs,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6,
+                peakInFlight.get());
+    }
+
+    private static void submit(ExecutorService executor, ConcurrentLinkedQueue<Long> latencies,
+                               AtomicInteger running, AtomicInteger peakInFlight, CountDownLatch clients,
+                               long deadline, long latencyMs) {
+        long submittedAt = System.nanoTime();
+        executor.execute(() -> {
+            peakInFlight.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                // 阻塞的模型调用
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            long now = System.nanoTime();
+            latencies.add(now - submittedAt);
+            if (now < deadline) {
+                submit(executor, latencies, running, peakInFlight, clients, deadline, latencyMs);
+            } else {
+                clients.countDown();
+            }
+        });
+    }
+
+    private record Result(double throughput, double p50Ms, double p99Ms, int peakInFlight) {
+    }
+}
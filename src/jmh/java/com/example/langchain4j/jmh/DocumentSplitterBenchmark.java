@@ -0,0 +1,55 @@
+package com.example.langchain4j.jmh;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocumentSplitters.recursive 切分中文文档的耗时 (参数对应 app.document.max-segment-size / max-overlap-size)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentSplitterBenchmark {
+
+    @Param({"200", "300", "500"})
+    public int maxSegmentSize;
+
+    @Param({"0", "50"})
+    public int maxOverlapSize;
+
+    @Param({"100000"})
+    public int documentChars;
+
+    private DocumentSplitter splitter;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        splitter = DocumentSplitters.recursive(maxSegmentSize, maxOverlapSize);
+        document = Document.from(SyntheticData.chineseText(documentChars, 42));
+    }
+
+    @Benchmark
+    public List<TextSegment> split() {
+        return splitter.split(document);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.langchain4j.jmh;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhq.BgeSmallZhQuantizedEmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BGE-Small-ZH 量化模型的单条与批量向量化耗时
+ *
+ * 片段长度对应 app.document.max-segment-size；批量耗时除以 batchSize 即为每片段耗时，可与 embedSingle 对比批处理收益
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmbeddingModelBenchmark {
+
+    @Param({"100", "300", "500"})
+    public int segmentLength;
+
+    @Param({"16", "64"})
+    public int batchSize;
+
+    private EmbeddingModel model;
+    private TextSegment single;
+    private List<TextSegment> batch;
+
+    @Setup
+    public void setUp() {
+        model = new BgeSmallZhQuantizedEmbeddingModel();
+        single = TextSegment.from(SyntheticData.chineseText(segmentLength, 1).substring(0, segmentLength));
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(TextSegment.from(SyntheticData.chineseText(segmentLength, i + 2).substring(0, segmentLength)));
+        }
+    }
+
+    @Benchmark
+    public Embedding embedSingle() {
+        return model.embed(single).content();
+    }
+
+    @Benchmark
+    public List<Embedding> embedBatch() {
+        return model.embedAll(batch).content();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.langchain4j.jmh;
+
+import com.example.langchain4j.tools.IngestionHelper;
+import com.example.langchain4j.tools.IngestionManifest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 增量导入记账耗时：IngestionHelper.resolveChanges 扫描大规模文档目录并与清单对比
+ *
+ * - unchanged: 清单与目录一致 (应用重启时的常见情况)，只需读取文件属性
+ * - touched: 所有文件修改时间变化但内容未变，需要逐个计算摘要
+ * - cold: 没有清单 (首次导入)，所有文件都计算摘要并作为新增文件返回
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestionHelperBenchmark {
+
+    private static final String STORE_TYPE = "jmh";
+    private static final int FILES_PER_DIRECTORY = 1000;
+
+    @Param({"100000"})
+    public int fileCount;
+
+    @Param({"unchanged", "touched", "cold"})
+    public String scenario;
+
+    private Path root;
+    private Path documents;
+    private String oldMarkerFile;
+    private IngestionHelper helper;
+    private IngestionManifest manifest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("jmh-ingestion");
+        documents = root.resolve("documents");
+        helper = new IngestionHelper(documents, root.resolve("data"));
+        // 不存在的旧版标记文件，避免触发迁移
+        oldMarkerFile = root.resolve("data").resolve(".jmh_ingested").toString();
+
+        String content = SyntheticData.chineseText(200, 1);
+        for (int i = 0; i < fileCount; i++) {
+            Path directory = documents.resolve(String.format("d%03d", i / FILES_PER_DIRECTORY));
+            if (i % FILES_PER_DIRECTORY == 0) {
+                Files.createDirectories(directory);
+            }
+            Files.writeString(directory.resolve("doc-" + i + ".txt"), content + i, StandardCharsets.UTF_8);
+        }
+
+        // 没有清单时所有文件都是新增文件，据此生成与目录一致的清单
+        manifest = new IngestionManifest();
+        for (IngestionHelper.FileChange change : helper.resolveChanges(STORE_TYPE, oldMarkerFile).changes()) {
+            manifest.getFiles().put(change.relativePath(), new IngestionManifest.FileEntry(
+                    change.size(), change.lastModified(), change.hash(), Collections.emptyList(), false));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareIteration() throws IOException {
+        Path manifestPath = helper.manifestPath(STORE_TYPE);
+        if ("cold".equals(scenario)) {
+            Files.deleteIfExists(manifestPath);
+            return;
+        }
+        manifest.save(manifestPath);
+        if ("touched".equals(scenario)) {
+            // 清单中的修改时间与文件不一致，迫使每个文件重新计算摘要
+            FileTime time = FileTime.fromMillis(System.currentTimeMillis());
+            try (Stream<Path> paths = Files.walk(documents)) {
+                for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                    Files.setLastModifiedTime(path, time);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public IngestionHelper.IngestionPlan resolveChanges() throws IOException {
+        return helper.resolveChanges(STORE_TYPE, oldMarkerFile);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.langchain4j.jmh;
+
+import com.example.langchain4j.store.LocalEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 进程内检索耗时：langchain4j 的 InMemoryEmbeddingStore 与 local profile 的 LocalEmbeddingStore (精确扫描)
+ * 在不同语料规模下的单次检索耗时，maxResults / minScore 与 app.retriever 默认值一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetrievalBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"1000", "10000", "100000"})
+    public int corpusSize;
+
+    @Param({"memory", "local"})
+    public String store;
+
+    @Param({"512"})
+    public int dimension;
+
+    private EmbeddingStore<TextSegment> embeddingStore;
+    private Path directory;
+    private List<Embedding> queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Embedding> embeddings = SyntheticData.vectors(corpusSize, dimension, 42);
+        List<TextSegment> segments = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            segments.add(TextSegment.from("segment-" + i));
+        }
+        if ("local".equals(store)) {
+            directory = Files.createTempDirectory("jmh-local-store");
+            embeddingStore = new LocalEmbeddingStore(directory, dimension);
+        } else {
+            embeddingStore = new InMemoryEmbeddingStore<>();
+        }
+        embeddingStore.addAll(embeddings, segments);
+        queries = SyntheticData.vectors(QUERIES, dimension, 7);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (embeddingStore instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        if (directory != null) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> search() {
+        Embedding query = queries.get(next++ & (QUERIES - 1));
+        return embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(2)
+                .minScore(0.6)
+                .build());
+    }
+}
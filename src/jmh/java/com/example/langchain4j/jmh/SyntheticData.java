@@ -0,0 +1,77 @@
+package com.example.langchain4j.jmh;
+
+import dev.langchain4j.data.embedding.Embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的确定性合成数据
+ */
+final class SyntheticData {
+
+    private static final String[] SENTENCES = {
+            "LangChain4j 是一个用于构建大语言模型应用的 Java 框架。",
+            "检索增强生成先从知识库中找到相关片段，再交给模型回答问题。",
+            "向量数据库按余弦相似度返回与问题最接近的文本片段。",
+            "文档在导入前会被切分成长度受限的片段，并逐个计算向量。",
+            "本地模型通过 Ollama 提供服务，无需把数据发送到外部。",
+            "会话记忆保存最近的若干轮对话，使追问能够理解上下文。",
+            "增量导入只处理新增或内容发生变化的文件，未变化的文件直接跳过。",
+            "量化可以把向量体积压缩到原来的四分之一甚至三十二分之一。",
+    };
+
+    private SyntheticData() {
+    }
+
+    /**
+     * 由固定句子随机拼接的中文文本，每 3~8 句换段
+     */
+    static String chineseText(int chars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(chars + 64);
+        int sentencesInParagraph = 0;
+        while (text.length() < chars) {
+            text.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            if (++sentencesInParagraph >= 3 + random.nextInt(6)) {
+                text.append("\n\n");
+                sentencesInParagraph = 0;
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 以若干中心为簇的单位向量 (比均匀随机向量更接近真实文本向量的分布)
+     */
+    static List<Embedding> vectors(int count, int dimension, long seed) {
+        Random random = new Random(seed);
+        int clusters = Math.max(1, count / 100);
+        float[][] centers = new float[clusters][];
+        Random centerRandom = new Random(17);
+        for (int c = 0; c < clusters; c++) {
+            centers[c] = gaussian(centerRandom, dimension, 1.0f, null);
+        }
+        List<Embedding> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = gaussian(random, dimension, 0.5f, centers[random.nextInt(clusters)]);
+            vectors.add(Embedding.from(vector));
+        }
+        return vectors;
+    }
+
+    private static float[] gaussian(Random random, int dimension, float scale, float[] center) {
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) (random.nextGaussian() * scale) + (center == null ? 0 : center[d]);
+            norm += vector[d] * vector[d];
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < dimension; d++) {
+            vector[d] *= inverse;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.langchain4j.chat;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 模型调用准入控制
+ *
+ * 限制同时发往 Ollama 的生成请求数，超出的请求按优先级 (交互对话 > RAG > 批量) 排队，
+ * 同优先级先到先得。队列已满时若新请求优先级更高，则挤掉队列中优先级最低、最晚到达的请求；
+ * 否则立即拒绝。排队超过 maxQueueWait 的请求同样被拒绝。被拒绝的请求抛出 {@link AdmissionRejectedException}，
+ * 由控制器转换为 HTTP 429 + Retry-After，宁可快速拒绝，也不让所有请求一起拖到模型超时。
+ *
+ * 流式生成在 generate 调用时申请许可，直到 onComplete / onError 才释放。
+ */
+@Slf4j
+@Component
+public class AdmissionControl {
+
+    /**
+     * 请求头：客户端可将自己的请求降级为批量优先级 (只能降级，不能升级)
+     */
+    public static final String PRIORITY_HEADER = "X-Request-Priority";
+
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    /**
+     * 优先级，声明顺序即调度顺序
+     */
+    public enum Priority {
+        INTERACTIVE, RAG, BATCH
+    }
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final int maxQueueSize;
+    private final long maxQueueWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+    private int active;
+    private long sequence;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong serviceNanos = new AtomicLong();
+
+    public AdmissionControl(AppProperties appProperties) {
+        AppProperties.Admission config = appProperties.getChat().getAdmission();
+        this.enabled = config.isEnabled();
+        this.maxConcurrent = Math.max(1, config.getMaxConcurrent());
+        this.maxQueueSize = Math.max(0, config.getMaxQueueSize());
+        this.maxQueueWaitNanos = config.getMaxQueueWait().toNanos();
+    }
+
+    /**
+     * 为同步对话模型包装准入控制
+     */
+    public ChatLanguageModel wrap(ChatLanguageModel delegate, Priority priority) {
+        return enabled ? new AdmittedChatModel(delegate, priority) : delegate;
+    }
+
+    /**
+     * 为流式对话模型包装准入控制
+     */
+    public StreamingChatLanguageModel wrap(StreamingChatLanguageModel delegate, Priority priority) {
+        return enabled ? new AdmittedStreamingChatModel(delegate, priority) : delegate;
+    }
+
+    /**
+     * 当前 HTTP 请求通过 {@link #PRIORITY_HEADER} 要求降级时使用更低的优先级
+     */
+    private static Priority effectivePriority(Priority priority) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            String requested = servletAttributes.getRequest().getHeader(PRIORITY_HEADER);
+            if (requested != null) {
+                for (Priority candidate : Priority.values()) {
+                    if (candidate.name().equalsIgnoreCase(requested.trim()) && candidate.compareTo(priority) > 0) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return priority;
+    }
+
+    /**
+     * 申请一个许可，返回申请成功的时间 (用于统计服务耗时)
+     */
+    private long acquire(Priority priority) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (active < maxConcurrent && queue.isEmpty()) {
+                active++;
+                admitted.incrementAndGet();
+                return start;
+            }
+            if (queue.size() >= maxQueueSize) {
+                Waiter lowest = lowestQueued();
+                if (lowest == null || lowest.priority().compareTo(priority) <= 0) {
+                    rejected.incrementAndGet();
+                    throw rejection(priority, "队列已满");
+                }
+                // 挤掉优先级更低的排队请求
+                queue.remove(lowest);
+                lowest.state = State.REJECTED;
+                lowest.condition.signal();
+                shed.incrementAndGet();
+            }
+            Waiter waiter = new Waiter(priority, sequence++, lock.newCondition());
+            queue.add(waiter);
+            queued.incrementAndGet();
+
+            long remaining = maxQueueWaitNanos;
+            try {
+                while (waiter.state == State.WAITING && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            long waited = System.nanoTime() - start;
+            waitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (waiter.state == State.GRANTED) {
+                admitted.incrementAndGet();
+                return System.nanoTime();
+            }
+            rejected.incrementAndGet();
+            if (waiter.state == State.WAITING) {
+                queue.remove(waiter);
+                timedOut.incrementAndGet();
+                throw rejection(priority, "排队超时");
+            }
+            throw rejection(priority, "被更高优先级的请求挤出队列");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long acquiredAt) {
+        completed.incrementAndGet();
+        serviceNanos.addAndGet(System.nanoTime() - acquiredAt);
+        lock.lock();
+        try {
+            Waiter next = queue.poll();
+            if (next != null) {
+                // 许可直接转交给队首请求
+                next.state = State.GRANTED;
+                next.condition.signal();
+            } else {
+                active--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter lowestQueued() {
+        Waiter lowest = null;
+        for (Waiter waiter : queue) {
+            if (lowest == null || queue.comparator().compare(waiter, lowest) > 0) {
+                lowest = waiter;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * 调用方持有锁
+     */
+    private AdmissionRejectedException rejection(Priority priority, String reason) {
+        log.warn("模型调用被拒绝 ({}): 优先级 {}, 执行中 {}, 排队 {}", reason, priority, active, queue.size());
+        return new AdmissionRejectedException("服务繁忙 (" + reason + ")，请稍后重试", retryAfterSeconds());
+    }
+
+    /**
+     * 按平均服务耗时估算排在前面的请求全部完成所需时间
+     */
+    private long retryAfterSeconds() {
+        long count = completed.get();
+        double avgServiceSeconds = count == 0 ? 1 : serviceNanos.get() / 1e9 / count;
+        long estimate = (long) Math.ceil(avgServiceSeconds * (queue.size() + 1) / maxConcurrent);
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, estimate));
+    }
+
+    public Stats stats() {
+        Map<Priority, Integer> queuedByPriority = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            queuedByPriority.put(priority, 0);
+        }
+        int activeCount;
+        lock.lock();
+        try {
+            activeCount = active;
+            queue.forEach(waiter -> queuedByPriority.merge(waiter.priority(), 1, Integer::sum));
+        } finally {
+            lock.unlock();
+        }
+        long queuedCount = queued.get();
+        long completedCount = completed.get();
+        return new Stats(enabled, maxConcurrent, maxQueueSize, activeCount, queuedByPriority,
+                admitted.get(), queuedCount, rejected.get(), timedOut.get(), shed.get(),
+                queuedCount == 0 ? 0 : waitNanos.get() / 1_000_000.0 / queuedCount,
+                maxWaitNanos.get() / 1_000_000.0,
+                completedCount == 0 ? 0 : serviceNanos.get() / 1_000_000.0 / completedCount);
+    }
+
+    /**
+     * @param enabled       是否启用
+     * @param maxConcurrent 最大并发生成数
+     * @param maxQueueSize  等待队列容量
+     * @param active        执行中的生成数
+     * @param queueDepth    各优先级当前排队数
+     * @param admitted      获得许可的请求数
+     * @param queued        曾经排队的请求数
+     * @param rejected      被拒绝 (HTTP 429) 的请求数，含排队超时与被挤出
+     * @param timedOut      排队超时的请求数
+     * @param shed          被更高优先级请求挤出队列的请求数
+     * @param avgWaitMs     排队请求的平均等待耗时 (含最终被拒绝的请求)
+     * @param maxWaitMs     最长等待耗时
+     * @param avgServiceMs  持有许可的平均耗时 (即模型生成耗时)
+     */
+    public record Stats(boolean enabled, int maxConcurrent, int maxQueueSize, int active,
+                        Map<Priority, Integer> queueDepth, long admitted, long queued, long rejected,
+                        long timedOut, long shed, double avgWaitMs, double maxWaitMs, double avgServiceMs) {
+    }
+
+    private enum State {
+        WAITING, GRANTED, REJECTED
+    }
+
+    private static final class Waiter {
+
+        private final Priority priority;
+        private final long sequence;
+        private final Condition condition;
+        private State state = State.WAITING;
+
+        private Waiter(Priority priority, long sequence, Condition condition) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        private Priority priority() {
+            return priority;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+    }
+
+    private class AdmittedChatModel implements ChatLanguageModel {
+
+        private final ChatLanguageModel delegate;
+        private final Priority priority;
+
+        private AdmittedChatModel(ChatLanguageModel delegate, Priority priority) {
+            this.delegate = delegate;
+            this.priority = priority;
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            long acquiredAt = acquire(effectivePriority(priority));
+            try {
+                return delegate.generate(messages);
+            } finally {
+                release(acquiredAt);
+            }
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+            long acquiredAt = acquire(effectivePriority(priority));
+            try {
+                return delegate.generate(messages, toolSpecifications);
+            } finally {
+                release(acquiredAt);
+            }
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+            long acquiredAt = acquire(effectivePriority(priority));
+            try {
+                return delegate.generate(messages, toolSpecification);
+            } finally {
+                release(acquiredAt);
+            }
+        }
+
+        @Override
+        public Set<Capability> supportedCapabilities() {
+            return delegate.supportedCapabilities();
+        }
+    }
+
+    private class AdmittedStreamingChatModel implements StreamingChatLanguageModel {
+
+        private final StreamingChatLanguageModel delegate;
+        private final Priority priority;
+
+        private AdmittedStreamingChatModel(StreamingChatLanguageModel delegate, Priority priority) {
+            this.delegate = delegate;
+            this.priority = priority;
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            ReleasingHandler releasing = new ReleasingHandler(handler, acquire(effectivePriority(priority)));
+            try {
+                delegate.generate(messages, releasing);
+            } catch (RuntimeException e) {
+                releasing.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                             StreamingResponseHandler<AiMessage> handler) {
+            ReleasingHandler releasing = new ReleasingHandler(handler, acquire(effectivePriority(priority)));
+            try {
+                delegate.generate(messages, toolSpecifications, releasing);
+            } catch (RuntimeException e) {
+                releasing.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                             StreamingResponseHandler<AiMessage> handler) {
+            ReleasingHandler releasing = new ReleasingHandler(handler, acquire(effectivePriority(priority)));
+            try {
+                delegate.generate(messages, toolSpecification, releasing);
+            } catch (RuntimeException e) {
+                releasing.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 流式生成结束 (完成或失败) 时释放许可
+     */
+    private class ReleasingHandler implements StreamingResponseHandler<AiMessage> {
+
+        private final StreamingResponseHandler<AiMessage> delegate;
+        private final long acquiredAt;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private ReleasingHandler(StreamingResponseHandler<AiMessage> delegate, long acquiredAt) {
+            this.delegate = delegate;
+            this.acquiredAt = acquiredAt;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                AdmissionControl.this.release(acquiredAt);
+            }
+        }
+
+        @Override
+        public void onNext(String token) {
+            delegate.onNext(token);
+        }
+
+        @Override
+        public void onComplete(Response<AiMessage> response) {
+            release();
+            delegate.onComplete(response);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            release();
+            delegate.onError(error);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.langchain4j.chat;
+
+/**
+ * 模型并发已满且等待队列已满 (或排队超时) 时拒绝请求，对应 HTTP 429
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * 建议客户端重试前等待的秒数 (Retry-After)
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.langchain4j.chat;
+
+import com.example.langchain4j.config.AppProperties;
+import com.example.langchain4j.metrics.ModelMetrics;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * 相同对话请求合并 (single-flight)
+ *
+ * 同一时刻多个客户端提出相同的问题 (归一化后的提示词 + 模型参数一致) 时，只向模型发起一次生成，
+ * 其余请求等待并共享同一个结果。流式生成广播给所有订阅者：晚到的订阅者先补发已生成的 token，再接收后续 token。
+ * 只合并进行中的请求，生成结束后不保留结果。
+ */
+@Slf4j
+@Component
+public class SingleFlightChat {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * 影响生成结果的模型参数
+     */
+    private static final List<String> MODEL_PARAMETERS = List.of(
+            "base-url", "model-name", "temperature", "top-k", "top-p", "repeat-penalty", "seed", "num-predict",
+            "stop", "format");
+
+    private final ChatLanguageModel chatLanguageModel;
+    private final StreamingChatLanguageModel streamingChatLanguageModel;
+    private final boolean enabled;
+    private final String chatModelKey;
+    private final String streamingModelKey;
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> calls = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Broadcast> streams = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong streamRequests = new AtomicLong();
+    private final AtomicLong streamCoalesced = new AtomicLong();
+
+    public SingleFlightChat(ChatLanguageModel chatLanguageModel,
+                            StreamingChatLanguageModel streamingChatLanguageModel,
+                            AdmissionControl admissionControl, ModelMetrics modelMetrics,
+                            AppProperties appProperties, Environment environment) {
+        // 合并后的上游生成才占用准入许可、计入模型指标
+        this.chatLanguageModel = admissionControl.wrap(modelMetrics.wrap(chatLanguageModel, "chat"),
+                AdmissionControl.Priority.INTERACTIVE);
+        this.streamingChatLanguageModel = admissionControl.wrap(modelMetrics.wrap(streamingChatLanguageModel, "chat"),
+                AdmissionControl.Priority.INTERACTIVE);
+        this.enabled = appProperties.getChat().isCoalesceRequests();
+        this.chatModelKey = modelKey(environment, "langchain4j.ollama.chat-model.");
+        this.streamingModelKey = modelKey(environment, "langchain4j.ollama.streaming-chat-model.");
+    }
+
+    private static String modelKey(Environment environment, String prefix) {
+        StringBuilder key = new StringBuilder();
+        for (String parameter : MODEL_PARAMETERS) {
+            key.append(environment.getProperty(prefix + parameter, "")).append('|');
+        }
+        return key.toString();
+    }
+
+    /**
+     * 归一化提示词：NFKC、合并空白并去掉首尾空白 (大小写与标点可能影响回答，保持不变)
+     */
+    static String normalize(String prompt) {
+        String normalized = Normalizer.normalize(prompt, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * 同步生成；相同请求正在生成时等待其结果
+     */
+    public String generate(String prompt) {
+        requests.incrementAndGet();
+        if (!enabled) {
+            return chatLanguageModel.generate(prompt);
+        }
+
+        String key = chatModelKey + normalize(prompt);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> existing = calls.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            String response = chatLanguageModel.generate(prompt);
+            call.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * 流式生成；相同请求正在生成时订阅其 token 流
+     */
+    public void generate(String prompt, StreamingResponseHandler<AiMessage> handler) {
+        streamRequests.incrementAndGet();
+        if (!enabled) {
+            streamingChatLanguageModel.generate(prompt, handler);
+            return;
+        }
+
+        String key = streamingModelKey + normalize(prompt);
+        while (true) {
+            Broadcast broadcast = new Broadcast(key);
+            Broadcast existing = streams.putIfAbsent(key, broadcast);
+            if (existing == null) {
+                broadcast.subscribe(handler);
+                try {
+                    streamingChatLanguageModel.generate(prompt, broadcast);
+                } catch (RuntimeException e) {
+                    // 发起者直接收到异常 (如准入拒绝)，其余订阅者收到 onError
+                    broadcast.unsubscribe(handler);
+                    broadcast.onError(e);
+                    throw e;
+                }
+                return;
+            }
+            if (existing.subscribe(handler)) {
+                streamCoalesced.incrementAndGet();
+                return;
+            }
+            // 该生成恰好结束，重新发起
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, calls.size(), streams.size(), requests.get(), coalesced.get(),
+                streamRequests.get(), streamCoalesced.get());
+    }
+
+    /**
+     * @param enabled         是否启用请求合并
+     * @param inFlight        进行中的同步生成数
+     * @param streamsInFlight 进行中的流式生成数
+     * @param requests        同步请求总数
+     * @param coalesced       合并到已有生成的同步请求数 (未调用模型)
+     * @param streamRequests  流式请求总数
+     * @param streamCoalesced 合并到已有生成的流式请求数 (未调用模型)
+     */
+    public record Stats(boolean enabled, int inFlight, int streamsInFlight, long requests, long coalesced,
+                        long streamRequests, long streamCoalesced) {
+    }
+
+    /**
+     * 将一次流式生成广播给多个订阅者
+     *
+     * 所有回调在同一把锁内按顺序分发，保证每个订阅者收到完整且有序的 token 流；
+     * 单个订阅者的异常不影响其他订阅者。分发时会阻塞写 SSE，使用 ReentrantLock 而不是 synchronized，
+     * 虚拟线程模式下不会钉住载体线程。
+     */
+    private final class Broadcast implements StreamingResponseHandler<AiMessage> {
+
+        private final String key;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<StreamingResponseHandler<AiMessage>> subscribers = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean done;
+
+        private Broadcast(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return 生成已结束时返回 false
+         */
+        private boolean subscribe(StreamingResponseHandler<AiMessage> subscriber) {
+            lock.lock();
+            try {
+                if (done) {
+                    return false;
+                }
+                subscribers.add(subscriber);
+                for (String token : tokens) {
+                    deliver(() -> subscriber.onNext(token));
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void unsubscribe(StreamingResponseHandler<AiMessage> subscriber) {
+            lock.lock();
+            try {
+                subscribers.remove(subscriber);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onNext(String token) {
+            lock.lock();
+            try {
+                if (done) {
+                    return;
+                }
+                tokens.add(token);
+                for (StreamingResponseHandler<AiMessage> subscriber : subscribers) {
+                    deliver(() -> subscriber.onNext(token));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onComplete(Response<AiMessage> response) {
+            lock.lock();
+            try {
+                if (finish()) {
+                    for (StreamingResponseHandler<AiMessage> subscriber : subscribers) {
+                        deliver(() -> subscriber.onComplete(response));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            lock.lock();
+            try {
+                if (finish()) {
+                    for (StreamingResponseHandler<AiMessage> subscriber : subscribers) {
+                        deliver(() -> subscriber.onError(error));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 调用方持有锁
+         */
+        private boolean finish() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            streams.remove(key, this);
+            return true;
+        }
+
+        private void deliver(Runnable callback) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.warn("流式订阅者回调失败: {}", e.getMessage());
+            }
+        }
+    }
+}
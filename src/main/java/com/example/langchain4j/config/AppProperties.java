@@ -1,8 +1,14 @@
 package com.example.langchain4j.config;
 
+import com.example.langchain4j.store.Quantization;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Component
@@ -24,6 +30,21 @@ public class AppProperties {
      */
     private Retriever retriever = new Retriever();
 
+    /**
+     * 对话请求配置
+     */
+    private Chat chat = new Chat();
+
+    /**
+     * 会话记忆配置
+     */
+    private ChatMemory chatMemory = new ChatMemory();
+
+    /**
+     * 语义答案缓存配置
+     */
+    private AnswerCache answerCache = new AnswerCache();
+
     /**
      * 向量数据库通用配置
      */
@@ -35,6 +56,41 @@ public class AppProperties {
          * 向量维度 (BGE-Small-ZH 为 512)
          */
         private int dimension = 512;
+
+        /**
+         * 向量化工作线程数，0 表示使用全部 CPU 核数
+         */
+        private int workerThreads = 0;
+
+        /**
+         * 并行向量化时每批最少片段数
+         */
+        private int minBatchSize = 4;
+
+        /**
+         * 并行向量化时每批最多片段数
+         */
+        private int maxBatchSize = 64;
+
+        /**
+         * 是否启用持久化片段向量缓存 (导入时相同文本不再重复向量化)
+         */
+        private boolean cacheEnabled = true;
+
+        /**
+         * 持久化片段向量缓存目录
+         */
+        private String cacheDirectory = "data/embedding-cache";
+
+        /**
+         * 向量量化方式 (local profile 精确扫描): NONE / INT8 / BINARY
+         */
+        private Quantization quantization = Quantization.NONE;
+
+        /**
+         * 量化粗排的候选倍数，候选数 = 返回数量 * rescoreFactor，再用原始向量重新计算得分
+         */
+        private int rescoreFactor = 4;
     }
 
     @Data
@@ -48,6 +104,41 @@ public class AppProperties {
          * 文档切分：重叠长度
          */
         private int maxOverlapSize = 0;
+
+        /**
+         * 超过该大小的文件流式读取、按窗口切分，不整体加载到内存
+         */
+        private DataSize streamingThreshold = DataSize.ofMegabytes(16);
+
+        /**
+         * 导入时每累计多少个新片段向量化并写入一次
+         */
+        private int ingestBatchSize = 512;
+
+        /**
+         * 导入流水线各阶段之间的队列容量 (批次数)，队列满时上游阻塞
+         */
+        private int pipelineQueueCapacity = 4;
+
+        /**
+         * 外部文档目录，为空时使用 classpath 下的 documents 目录
+         */
+        private String directory;
+
+        /**
+         * 是否监听文档目录，文件变化后在后台增量导入
+         */
+        private boolean watchEnabled = true;
+
+        /**
+         * 文档目录最后一次变化后等待该时长无新变化再导入，连续的变化合并为一次
+         */
+        private Duration watchDebounce = Duration.ofSeconds(2);
+
+        /**
+         * 持续变化时最长等待时长，超过后立即导入已收集的变化
+         */
+        private Duration watchMaxDelay = Duration.ofSeconds(30);
     }
 
     @Data
@@ -61,6 +152,210 @@ public class AppProperties {
          * 最小相似度分数
          */
         private double minScore = 0.6;
+
+        /**
+         * 问题向量缓存最大条目数
+         */
+        private int queryCacheSize = 10000;
+
+        /**
+         * 问题向量缓存有效期
+         */
+        private Duration queryCacheTtl = Duration.ofHours(1);
+
+        /**
+         * 混合检索 (向量 + BM25 关键词)
+         */
+        private Hybrid hybrid = new Hybrid();
+
+        /**
+         * 上下文组装 (token 预算)
+         */
+        private Context context = new Context();
+
+        /**
+         * 联邦检索 (多个集合/向量库并行检索)
+         */
+        private Federation federation = new Federation();
+
+        @Data
+        public static class Hybrid {
+            /**
+             * 是否融合关键词检索结果
+             */
+            private boolean enabled = true;
+
+            /**
+             * 向量检索与关键词检索各自返回的候选数，融合后再取 maxResults 个
+             */
+            private int candidates = 10;
+
+            /**
+             * 倒数排名融合的平滑常数，越大排名靠后的结果权重越接近靠前的结果
+             */
+            private int rrfK = 60;
+
+            /**
+             * 关键词索引目录
+             */
+            private String directory = "data/keyword-index";
+        }
+
+        @Data
+        public static class Context {
+            /**
+             * 是否按 token 预算组装检索结果
+             */
+            private boolean enabled = true;
+
+            /**
+             * 注入提示词的检索内容 token 上限 (估算)，决定 prefill 耗时
+             */
+            private int maxTokens = 1500;
+
+            /**
+             * 剩余预算少于该值时不再截断加入片段
+             */
+            private int minSegmentTokens = 32;
+
+            /**
+             * 片段的字二元组有该比例出现在某个已选片段中时视为重复
+             */
+            private double duplicateSimilarity = 0.8;
+        }
+
+        @Data
+        public static class Federation {
+            /**
+             * 是否并行检索多个集合并合并结果
+             */
+            private boolean enabled = false;
+
+            /**
+             * 是否同时检索当前 profile 的集合 (app.vector-store.collection-name)
+             */
+            private boolean includePrimary = true;
+
+            /**
+             * 每个来源的默认检索超时，超时的来源本次不参与合并
+             */
+            private Duration timeout = Duration.ofSeconds(2);
+
+            /**
+             * 每个来源同时进行的检索数上限，超时后仍未结束的检索也计入，达到上限时跳过该来源
+             */
+            private int maxConcurrentPerSource = 16;
+
+            /**
+             * 额外检索的集合
+             */
+            private List<Source> sources = new ArrayList<>();
+        }
+
+        @Data
+        public static class Source {
+            /**
+             * 来源名称，用于日志、指标与片段元数据 (默认为 store/collectionName)
+             */
+            private String name;
+
+            /**
+             * 向量库类型: pgvector / milvus / chroma / elasticsearch (进程内向量库 local 只能作为当前集合参与)
+             */
+            private String store;
+
+            /**
+             * 集合/索引/表名称
+             */
+            private String collectionName;
+
+            /**
+             * 服务地址 (pgvector 为 JDBC URL)，为空时使用 app.vector-store 下对应向量库的配置
+             */
+            private String url;
+
+            /**
+             * 检索超时，为空时使用 federation.timeout
+             */
+            private Duration timeout;
+        }
+    }
+
+    @Data
+    public static class Chat {
+        /**
+         * 是否合并进行中的相同对话请求 (相同提示词与模型参数只调用一次模型)
+         */
+        private boolean coalesceRequests = true;
+
+        /**
+         * 模型调用准入控制
+         */
+        private Admission admission = new Admission();
+    }
+
+    @Data
+    public static class Admission {
+        /**
+         * 是否启用准入控制
+         */
+        private boolean enabled = true;
+
+        /**
+         * 同时发往模型的最大生成数
+         */
+        private int maxConcurrent = 4;
+
+        /**
+         * 等待队列容量，队列满时直接返回 429
+         */
+        private int maxQueueSize = 32;
+
+        /**
+         * 最长排队时间，超时返回 429
+         */
+        private Duration maxQueueWait = Duration.ofSeconds(20);
+    }
+
+    @Data
+    public static class ChatMemory {
+        /**
+         * 每个会话保留的最大消息数
+         */
+        private int maxMessages = 10;
+
+        /**
+         * 同时驻留的最大会话数，超出后淘汰最久未访问的会话
+         */
+        private int maxSessions = 10000;
+
+        /**
+         * 会话空闲超时时间，超时后记忆被清理
+         */
+        private Duration idleTtl = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class AnswerCache {
+        /**
+         * 是否启用语义答案缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 问题向量余弦相似度达到该值时视为同一问题
+         */
+        private double similarityThreshold = 0.95;
+
+        /**
+         * 最大缓存答案数，超出后淘汰最久未访问的答案
+         */
+        private int maxEntries = 1000;
+
+        /**
+         * 答案有效期
+         */
+        private Duration ttl = Duration.ofHours(24);
     }
 
     @Data
@@ -90,12 +385,22 @@ public class AppProperties {
          */
         private PgVector pgvector = new PgVector();
 
+        /**
+         * 进程内向量库配置 (local profile)
+         */
+        private Local local = new Local();
+
         @Data
         public static class Chroma {
             /**
              * Chroma 服务地址
              */
             private String url = "http://localhost:8000";
+
+            /**
+             * 导入时每次批量写入的最大片段数 (单次 HTTP 请求)
+             */
+            private int writeBatchSize = 256;
         }
 
         @Data
@@ -104,6 +409,11 @@ public class AppProperties {
              * Elasticsearch 服务地址
              */
             private String url = "http://localhost:9200";
+
+            /**
+             * 导入时每次批量写入的最大片段数 (单次 bulk 请求)
+             */
+            private int writeBatchSize = 500;
         }
 
         @Data
@@ -112,6 +422,11 @@ public class AppProperties {
              * Milvus 服务地址
              */
             private String url = "http://localhost:19530";
+
+            /**
+             * 导入时每次批量写入的最大片段数 (单次 insert)
+             */
+            private int writeBatchSize = 1000;
         }
 
         @Data
@@ -140,6 +455,108 @@ public class AppProperties {
              * 密码
              */
             private String password = "postgres";
+
+            /**
+             * 导入时每次批量写入的最大片段数 (单次 JDBC 批量插入)
+             */
+            private int writeBatchSize = 500;
+
+            /**
+             * 向量索引类型: hnsw / ivfflat / none
+             */
+            private String index = "hnsw";
+
+            /**
+             * IVFFlat 索引参数
+             */
+            private Ivfflat ivfflat = new Ivfflat();
+
+            /**
+             * HNSW 索引参数 (m / ef-construction 变化时启动时重建索引)
+             */
+            private Hnsw hnsw = new Hnsw();
+
+            /**
+             * 连接池配置
+             */
+            private Pool pool = new Pool();
+        }
+
+        @Data
+        public static class Ivfflat {
+            /**
+             * 聚类数，0 表示按行数自动计算 (100 万行以内 行数/1000，以上 sqrt(行数))
+             */
+            private int lists = 0;
+
+            /**
+             * 每次查询扫描的聚类数，0 表示 sqrt(lists)
+             */
+            private int probes = 0;
+        }
+
+        @Data
+        public static class Pool {
+            /**
+             * 最大连接数
+             */
+            private int maxSize = 10;
+
+            /**
+             * 最少空闲连接数
+             */
+            private int minIdle = 2;
+
+            /**
+             * 获取连接的最长等待时间
+             */
+            private Duration connectionTimeout = Duration.ofSeconds(5);
+
+            /**
+             * 连接最长存活时间，应小于数据库或中间网络设备的空闲断开时间
+             */
+            private Duration maxLifetime = Duration.ofMinutes(30);
+        }
+
+        @Data
+        public static class Local {
+            /**
+             * 数据目录，每个集合一个子目录
+             */
+            private String directory = "data/local-store";
+
+            /**
+             * 导入时每次批量写入的最大片段数
+             */
+            private int writeBatchSize = 1000;
+
+            /**
+             * 索引类型: flat (精确扫描) / hnsw (近似检索)
+             */
+            private String index = "flat";
+
+            /**
+             * HNSW 索引参数
+             */
+            private Hnsw hnsw = new Hnsw();
+        }
+
+        @Data
+        public static class Hnsw {
+            /**
+             * 每层邻居数上限 (第 0 层为 2M)
+             */
+            private int m = 16;
+
+            /**
+             * 构建时的候选集大小
+             */
+            private int efConstruction = 200;
+
+            /**
+             * 检索时的候选集大小，越大召回率越高、延迟越高
+             */
+            private int efSearch = 64;
         }
     }
 }
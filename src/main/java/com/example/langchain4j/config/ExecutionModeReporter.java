@@ -0,0 +1,37 @@
+package com.example.langchain4j.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时输出请求执行模式
+ *
+ * spring.threads.virtual.enabled = true 且运行在 Java 21+ 时，Tomcat 为每个请求创建一个虚拟线程，
+ * 请求中阻塞的模型、向量库与 JDBC 调用只挂起虚拟线程，不再受 server.tomcat.threads.max 限制；
+ * 在 Java 17 上该配置不生效，仍使用平台线程池。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExecutionModeReporter {
+
+    private final Environment environment;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("请求执行模式: 虚拟线程 (Java {})", Runtime.version().feature());
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("已启用 spring.threads.virtual.enabled，但当前 Java {} 不支持虚拟线程 (需要在 Java 21+ 上运行)，"
+                    + "仍使用平台线程池", Runtime.version().feature());
+        } else {
+            log.info("请求执行模式: 平台线程池 (server.tomcat.threads.max = {})",
+                    environment.getProperty("server.tomcat.threads.max", "200"));
+        }
+    }
+}
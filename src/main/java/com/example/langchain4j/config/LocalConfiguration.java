@@ -0,0 +1,118 @@
+package com.example.langchain4j.config;
+
+import com.example.langchain4j.chat.AdmissionControl;
+import com.example.langchain4j.embedding.ParallelEmbeddingModel;
+import com.example.langchain4j.embedding.PersistentEmbeddingCache;
+import com.example.langchain4j.memory.SessionChatMemoryProvider;
+import com.example.langchain4j.metrics.ModelMetrics;
+import com.example.langchain4j.rag.ContextAssembler;
+import com.example.langchain4j.rag.FederatedSearch;
+import com.example.langchain4j.rag.HybridSearch;
+import com.example.langchain4j.rag.QueryEmbeddingCache;
+import com.example.langchain4j.rag.SemanticAnswerCache;
+import com.example.langchain4j.rag.TimedContentRetriever;
+import com.example.langchain4j.rag.TimedEmbeddingModel;
+import com.example.langchain4j.store.HnswIndex;
+import com.example.langchain4j.store.LocalEmbeddingStore;
+import com.example.langchain4j.tools.IngestionHelper;
+import com.example.langchain4j.tools.IngestionJob;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Paths;
+
+@Configuration
+@Profile("local") // 仅在 local profile 激活时生效
+@Slf4j
+@RequiredArgsConstructor
+public class LocalConfiguration {
+
+    private final AppProperties appProperties;
+    private final IngestionHelper ingestionHelper;
+
+    @Bean
+    EmbeddingModel embeddingModel() {
+        // 使用本地量化的 BGE-Small-ZH 模型，专门针对中文优化，且无需联网；由多线程引擎并行批量向量化
+        return ParallelEmbeddingModel.bgeSmallZh(appProperties.getEmbedding());
+    }
+
+    private static final String OLD_MARKER_FILE = "data/.local_ingested";
+    private static final String STORE_TYPE = "local";
+
+    @Bean
+    EmbeddingStore<TextSegment> embeddingStore() {
+        // 进程内向量库：向量存放在本地内存映射文件中，检索无网络开销
+        AppProperties.VectorStore.Local local = appProperties.getVectorStore().getLocal();
+        HnswIndex.Options hnsw = "hnsw".equalsIgnoreCase(local.getIndex())
+                ? new HnswIndex.Options(local.getHnsw().getM(), local.getHnsw().getEfConstruction(),
+                        local.getHnsw().getEfSearch())
+                : null;
+        EmbeddingStore<TextSegment> embeddingStore = new LocalEmbeddingStore(
+                Paths.get(local.getDirectory(), appProperties.getVectorStore().getCollectionName()),
+                appProperties.getEmbedding().getDimension(), hnsw,
+                appProperties.getEmbedding().getQuantization(), appProperties.getEmbedding().getRescoreFactor());
+
+        return embeddingStore;
+    }
+
+    @Bean
+    IngestionJob ingestionJob(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                              PersistentEmbeddingCache embeddingCache, HybridSearch hybridSearch) {
+        // 文档导入在应用启动完成后于后台执行，不阻塞 Bean 创建；片段向量优先从持久化缓存读取
+        return new IngestionJob(STORE_TYPE, OLD_MARKER_FILE, embeddingStore, embeddingCache.wrap(embeddingModel),
+                appProperties, ingestionHelper, hybridSearch.index(STORE_TYPE),
+                appProperties.getVectorStore().getLocal().getWriteBatchSize());
+    }
+
+    @Bean
+    ContentRetriever contentRetriever(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                                      QueryEmbeddingCache queryEmbeddingCache, HybridSearch hybridSearch,
+                                      ContextAssembler contextAssembler, FederatedSearch federatedSearch,
+                                      MeterRegistry meterRegistry) {
+        // 检索链路与其他 profile 一致 (见 PgVectorConfiguration)
+        return contextAssembler.wrap(hybridSearch.wrap(new TimedContentRetriever(federatedSearch.retriever(
+                embeddingStore,
+                new TimedEmbeddingModel(queryEmbeddingCache.wrap(embeddingModel), meterRegistry, STORE_TYPE),
+                STORE_TYPE, hybridSearch.vectorMaxResults()), meterRegistry, STORE_TYPE), STORE_TYPE));
+    }
+
+    @Bean
+    com.example.langchain4j.service.KnowledgeBaseService knowledgeBaseService(ChatLanguageModel chatLanguageModel,
+            ContentRetriever contentRetriever,
+            SessionChatMemoryProvider chatMemoryProvider,
+            SemanticAnswerCache answerCache,
+            AdmissionControl admissionControl,
+            ModelMetrics modelMetrics) {
+        // 语义答案缓存：相似的首轮提问直接返回缓存答案，不再调用大模型
+        return answerCache.wrap(AiServices.builder(com.example.langchain4j.service.KnowledgeBaseService.class)
+                        .chatLanguageModel(admissionControl.wrap(
+                                modelMetrics.wrap(chatLanguageModel, "rag"), AdmissionControl.Priority.RAG))
+                        .contentRetriever(contentRetriever) // 注入检索器，启用 RAG
+                        .chatMemoryProvider(chatMemoryProvider)
+                        .build());
+    }
+
+    @Bean
+    com.example.langchain4j.service.StreamingKnowledgeBaseService streamingKnowledgeBaseService(
+            StreamingChatLanguageModel streamingChatLanguageModel, ContentRetriever contentRetriever,
+            SessionChatMemoryProvider chatMemoryProvider, AdmissionControl admissionControl,
+            ModelMetrics modelMetrics) {
+        return AiServices.builder(com.example.langchain4j.service.StreamingKnowledgeBaseService.class)
+                .streamingChatLanguageModel(admissionControl.wrap(
+                        modelMetrics.wrap(streamingChatLanguageModel, "rag"), AdmissionControl.Priority.RAG))
+                .contentRetriever(contentRetriever)
+                .chatMemoryProvider(chatMemoryProvider)
+                .build();
+    }
+}
@@ -1,30 +1,35 @@
 package com.example.langchain4j.config;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.TextDocumentParser;
+import com.example.langchain4j.chat.AdmissionControl;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.bgesmallzhq.BgeSmallZhQuantizedEmbeddingModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import com.example.langchain4j.embedding.ParallelEmbeddingModel;
+import com.example.langchain4j.embedding.PersistentEmbeddingCache;
+import com.example.langchain4j.memory.SessionChatMemoryProvider;
+import com.example.langchain4j.metrics.ModelMetrics;
+import com.example.langchain4j.rag.ContextAssembler;
+import com.example.langchain4j.rag.FederatedSearch;
+import com.example.langchain4j.rag.HybridSearch;
+import com.example.langchain4j.rag.QueryEmbeddingCache;
+import com.example.langchain4j.rag.SemanticAnswerCache;
+import com.example.langchain4j.rag.TimedContentRetriever;
+import com.example.langchain4j.rag.TimedEmbeddingModel;
+import com.example.langchain4j.store.IndexedPgVectorEmbeddingStore;
 import com.example.langchain4j.tools.IngestionHelper;
-
-import java.io.IOException;
-import java.net.URISyntaxException;
-import java.nio.file.Path;
-import java.util.List;
+import com.example.langchain4j.tools.IngestionJob;
 
 @Configuration
 @Profile("pgvector")
@@ -37,82 +42,93 @@ public class PgVectorConfiguration {
 
     @Bean
     EmbeddingModel embeddingModel() {
-        return new BgeSmallZhQuantizedEmbeddingModel();
+        // 使用本地量化的 BGE-Small-ZH 模型，专门针对中文优化，且无需联网；由多线程引擎并行批量向量化
+        return ParallelEmbeddingModel.bgeSmallZh(appProperties.getEmbedding());
     }
 
     private static final String OLD_MARKER_FILE = "data/.pgvector_ingested";
     private static final String STORE_TYPE = "pgvector";
 
-    @Bean
-    EmbeddingStore<TextSegment> embeddingStore(EmbeddingModel embeddingModel) throws IOException, URISyntaxException {
-        String table = appProperties.getVectorStore().getCollectionName();
-
-        EmbeddingStore<TextSegment> embeddingStore = PgVectorEmbeddingStore.builder()
-                .host(appProperties.getVectorStore().getPgvector().getHost())
-                .port(appProperties.getVectorStore().getPgvector().getPort())
-                .database(appProperties.getVectorStore().getPgvector().getDatabase())
-                .user(appProperties.getVectorStore().getPgvector().getUser())
-                .password(appProperties.getVectorStore().getPgvector().getPassword())
-                .table(table)
-                .dimension(appProperties.getEmbedding().getDimension())
-                .useIndex(true)
-                .indexListSize(100)
-                .createTable(true)
-                .dropTableFirst(false)
-                .build();
-
-        // 1. 获取需要导入的新文件
-        List<Path> newFiles = ingestionHelper.resolveNewFiles(STORE_TYPE, OLD_MARKER_FILE);
-
-        if (newFiles.isEmpty()) {
-            return embeddingStore;
-        }
-
-        // 2. 加载新文件
-        long startTime = System.currentTimeMillis();
-        List<Document> documents = newFiles.stream()
-                .map(path -> FileSystemDocumentLoader.loadDocument(path, new TextDocumentParser()))
-                .toList();
-
-        log.info("加载了 {} 个新文档", documents.size());
-
-        // 3. 将文档切分并存入向量数据库
-        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                .documentSplitter(dev.langchain4j.data.document.splitter.DocumentSplitters.recursive(
-                        appProperties.getDocument().getMaxSegmentSize(),
-                        appProperties.getDocument().getMaxOverlapSize()))
-                .embeddingModel(embeddingModel)
-                .embeddingStore(embeddingStore)
-                .build();
-
-        ingestor.ingest(documents);
-
-        long duration = System.currentTimeMillis() - startTime;
-        log.info("新文档向量化并导入 PGVector 完成，耗时: {}ms", duration);
+    @Bean(destroyMethod = "close")
+    HikariDataSource pgVectorDataSource(MeterRegistry meterRegistry) {
+        AppProperties.VectorStore.PgVector config = appProperties.getVectorStore().getPgvector();
+        HikariConfig hikari = new HikariConfig();
+        hikari.setJdbcUrl(String.format("jdbc:postgresql://%s:%d/%s",
+                config.getHost(), config.getPort(), config.getDatabase()));
+        hikari.setUsername(config.getUser());
+        hikari.setPassword(config.getPassword());
+        hikari.setPoolName("pgvector");
+        hikari.setMaximumPoolSize(config.getPool().getMaxSize());
+        hikari.setMinimumIdle(config.getPool().getMinIdle());
+        hikari.setConnectionTimeout(config.getPool().getConnectionTimeout().toMillis());
+        hikari.setMaxLifetime(config.getPool().getMaxLifetime().toMillis());
+        // 连接池指标: hikaricp_connections_active / pending / usage 等
+        hikari.setMetricRegistry(meterRegistry);
+        return new HikariDataSource(hikari);
+    }
 
-        // 4. 更新清单文件
-        ingestionHelper.updateInventory(STORE_TYPE, newFiles);
+    @Bean
+    EmbeddingStore<TextSegment> embeddingStore(HikariDataSource pgVectorDataSource) {
+        AppProperties.VectorStore.PgVector config = appProperties.getVectorStore().getPgvector();
+        AppProperties.VectorStore.Hnsw hnsw = config.getHnsw();
+        // 检索走向量索引，每次查询设置 probes / ef_search
+        return new IndexedPgVectorEmbeddingStore(pgVectorDataSource,
+                appProperties.getVectorStore().getCollectionName(),
+                appProperties.getEmbedding().getDimension(),
+                new IndexedPgVectorEmbeddingStore.Options(IndexedPgVectorEmbeddingStore.indexType(config.getIndex()),
+                        config.getIvfflat().getLists(), config.getIvfflat().getProbes(),
+                        hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch()));
+    }
 
-        return embeddingStore;
+    @Bean
+    IngestionJob ingestionJob(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                              PersistentEmbeddingCache embeddingCache, HybridSearch hybridSearch) {
+        // 文档导入在应用启动完成后于后台执行，不阻塞 Bean 创建；片段向量优先从持久化缓存读取
+        return new IngestionJob(STORE_TYPE, OLD_MARKER_FILE, embeddingStore, embeddingCache.wrap(embeddingModel),
+                appProperties, ingestionHelper, hybridSearch.index(STORE_TYPE),
+                appProperties.getVectorStore().getPgvector().getWriteBatchSize());
     }
 
     @Bean
-    ContentRetriever contentRetriever(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel) {
-        return EmbeddingStoreContentRetriever.builder()
-                .embeddingStore(embeddingStore)
-                .embeddingModel(embeddingModel)
-                .maxResults(appProperties.getRetriever().getMaxResults())
-                .minScore(appProperties.getRetriever().getMinScore())
-                .build();
+    ContentRetriever contentRetriever(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                                      QueryEmbeddingCache queryEmbeddingCache, HybridSearch hybridSearch,
+                                      ContextAssembler contextAssembler, FederatedSearch federatedSearch,
+                                      MeterRegistry meterRegistry) {
+        // 包装检索器与问题向量化模型，用于统计 RAG 各阶段耗时；问题向量优先从缓存获取
+        // 可并行检索多个集合 (app.retriever.federation)
+        // 向量检索结果与关键词检索结果融合 (app.retriever.hybrid)，再按 token 预算组装 (app.retriever.context)
+        return contextAssembler.wrap(hybridSearch.wrap(new TimedContentRetriever(federatedSearch.retriever(
+                embeddingStore,
+                new TimedEmbeddingModel(queryEmbeddingCache.wrap(embeddingModel), meterRegistry, STORE_TYPE),
+                STORE_TYPE, hybridSearch.vectorMaxResults()), meterRegistry, STORE_TYPE), STORE_TYPE));
     }
 
     @Bean
     com.example.langchain4j.service.KnowledgeBaseService knowledgeBaseService(ChatLanguageModel chatLanguageModel,
-                                                                              ContentRetriever contentRetriever) {
-        return AiServices.builder(com.example.langchain4j.service.KnowledgeBaseService.class)
-                .chatLanguageModel(chatLanguageModel)
+                                                                              ContentRetriever contentRetriever,
+                                                                              SessionChatMemoryProvider chatMemoryProvider,
+                                                                              SemanticAnswerCache answerCache,
+                                                                              AdmissionControl admissionControl,
+                                                                              ModelMetrics modelMetrics) {
+        // 语义答案缓存：相似的首轮提问直接返回缓存答案，不再调用大模型
+        return answerCache.wrap(AiServices.builder(com.example.langchain4j.service.KnowledgeBaseService.class)
+                        .chatLanguageModel(admissionControl.wrap(
+                                modelMetrics.wrap(chatLanguageModel, "rag"), AdmissionControl.Priority.RAG))
+                        .contentRetriever(contentRetriever)
+                        .chatMemoryProvider(chatMemoryProvider)
+                        .build());
+    }
+
+    @Bean
+    com.example.langchain4j.service.StreamingKnowledgeBaseService streamingKnowledgeBaseService(
+            StreamingChatLanguageModel streamingChatLanguageModel, ContentRetriever contentRetriever,
+            SessionChatMemoryProvider chatMemoryProvider, AdmissionControl admissionControl,
+            ModelMetrics modelMetrics) {
+        return AiServices.builder(com.example.langchain4j.service.StreamingKnowledgeBaseService.class)
+                .streamingChatLanguageModel(admissionControl.wrap(
+                        modelMetrics.wrap(streamingChatLanguageModel, "rag"), AdmissionControl.Priority.RAG))
                 .contentRetriever(contentRetriever)
-                .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
+                .chatMemoryProvider(chatMemoryProvider)
                 .build();
     }
 }
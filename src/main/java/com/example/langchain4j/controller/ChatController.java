@@ -1,24 +1,61 @@
 package com.example.langchain4j.controller;
 
+import com.example.langchain4j.chat.AdmissionRejectedException;
+import com.example.langchain4j.chat.SingleFlightChat;
+import com.example.langchain4j.rag.RagTimings;
 import com.example.langchain4j.service.KnowledgeBaseService;
-import dev.langchain4j.model.chat.ChatLanguageModel;
+import com.example.langchain4j.service.StreamingKnowledgeBaseService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.service.TokenStream;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Chat REST 控制器
  *
  * 提供 HTTP 接口来测试 AI 对话功能
  */
+@Slf4j
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
 
-    private final ChatLanguageModel chatLanguageModel;
+    /**
+     * SSE 连接超时时间，需大于模型的 timeout (PT60S)
+     */
+    private static final long STREAM_TIMEOUT_MS = 120_000L;
+
+    /**
+     * 会话 ID 请求/响应头，RAG 对话按会话隔离记忆
+     */
+    private static final String SESSION_HEADER = "X-Session-Id";
+
+    private final SingleFlightChat singleFlightChat;
     private final KnowledgeBaseService knowledgeBaseService;
+    private final StreamingKnowledgeBaseService streamingKnowledgeBaseService;
 
-    public ChatController(ChatLanguageModel chatLanguageModel, KnowledgeBaseService knowledgeBaseService) {
-        this.chatLanguageModel = chatLanguageModel;
+    public ChatController(SingleFlightChat singleFlightChat,
+                          KnowledgeBaseService knowledgeBaseService,
+                          StreamingKnowledgeBaseService streamingKnowledgeBaseService) {
+        this.singleFlightChat = singleFlightChat;
         this.knowledgeBaseService = knowledgeBaseService;
+        this.streamingKnowledgeBaseService = streamingKnowledgeBaseService;
     }
 
     /**
@@ -28,17 +65,100 @@ public class ChatController {
      */
     @GetMapping
     public String chat(@RequestParam String message) {
-        return chatLanguageModel.generate(message);
+        return singleFlightChat.generate(message);
     }
 
     /**
      * RAG 对话接口 (带知识库)
      *
      * 使用方式: GET /api/chat/rag?message=LangChain4j有哪些特性
+     * 请求头 X-Session-Id 指定会话；未指定时生成新会话，并通过响应头 X-Session-Id 返回
      */
     @GetMapping("/rag")
-    public String chatWithRag(@RequestParam String message) {
-        return knowledgeBaseService.chat(message);
+    public String chatWithRag(@RequestParam String message,
+                              @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+                              HttpServletResponse httpResponse) {
+        return knowledgeBaseService.chat(resolveSessionId(sessionId, httpResponse), message);
+    }
+
+    /**
+     * 流式 RAG 对话接口 (SSE，带知识库)
+     *
+     * 使用方式: GET /api/chat/rag/stream?message=LangChain4j有哪些特性
+     * 事件: sources (检索命中的片段，先于首个 token) -> token -> done (各阶段耗时) / error
+     */
+    @GetMapping(value = "/rag/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatWithRagStream(@RequestParam String message,
+                                        @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+                                        HttpServletResponse httpResponse) {
+        String session = resolveSessionId(sessionId, httpResponse);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        long startTime = System.currentTimeMillis();
+        // 检索 (向量化 + 向量搜索) 在 chat() 调用中同步完成
+        RagTimings timings = RagTimings.begin();
+        TokenStream tokenStream;
+        try {
+            tokenStream = streamingKnowledgeBaseService.chat(session, message);
+        } finally {
+            RagTimings.end();
+        }
+
+        long[] firstTokenTime = {-1};
+        tokenStream
+                .onRetrieved(contents -> send(emitter, closed,
+                        SseEmitter.event().name("sources").data(toSources(contents))))
+                .onNext(token -> {
+                    if (firstTokenTime[0] < 0) {
+                        firstTokenTime[0] = System.currentTimeMillis() - startTime;
+                    }
+                    send(emitter, closed, tokenEvent(token));
+                })
+                .onComplete(response -> {
+                    long duration = System.currentTimeMillis() - startTime;
+                    log.info("流式 RAG 完成: 向量化 {}ms, 检索 {}ms, 首 token {}ms, 总耗时 {}ms",
+                            timings.getEmbedMs(), timings.getSearchMs(), firstTokenTime[0], duration);
+                    send(emitter, closed, SseEmitter.event().name("done").data(Map.of(
+                            "embedMs", timings.getEmbedMs(),
+                            "searchMs", timings.getSearchMs(),
+                            "contextTokens", timings.getContextTokens(),
+                            "savedTokens", timings.getSavedTokens(),
+                            "firstTokenMs", firstTokenTime[0],
+                            "totalMs", duration)));
+                    if (closed.compareAndSet(false, true)) {
+                        emitter.complete();
+                    }
+                })
+                .onError(error -> {
+                    log.error("流式 RAG 对话失败", error);
+                    send(emitter, closed, SseEmitter.event().name("error").data(String.valueOf(error.getMessage())));
+                    if (closed.compareAndSet(false, true)) {
+                        emitter.completeWithError(error);
+                    }
+                })
+                .start();
+        return emitter;
+    }
+
+    private String resolveSessionId(String sessionId, HttpServletResponse httpResponse) {
+        String session = (sessionId == null || sessionId.isBlank()) ? UUID.randomUUID().toString() : sessionId;
+        httpResponse.setHeader(SESSION_HEADER, session);
+        return session;
+    }
+
+    private List<Map<String, Object>> toSources(List<Content> contents) {
+        return contents.stream()
+                .map(content -> {
+                    Map<String, Object> source = new LinkedHashMap<>();
+                    source.put("text", content.textSegment().text());
+                    source.put("metadata", content.textSegment().metadata().toMap());
+                    return source;
+                })
+                .toList();
     }
 
     /**
@@ -49,16 +169,119 @@ public class ChatController {
      */
     @PostMapping
     public ChatResponse chatPost(@RequestBody ChatRequest request) {
-        System.out.println("收到 POST 请求: " + request.getMessage());
+        log.debug("收到 POST 请求: {}", request.getMessage());
         try {
-            String response = chatLanguageModel.generate(request.getMessage());
-            System.out.println("模型响应: " + response);
+            String response = singleFlightChat.generate(request.getMessage());
+            log.debug("模型响应: {}", response);
             return new ChatResponse(response);
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("POST 对话失败", e);
             return new ChatResponse("Error: " + e.getMessage());
         }
     }
+
+    /**
+     * 流式对话接口 (SSE，不带 RAG)
+     *
+     * 使用方式: GET /api/chat/stream?message=你好
+     * 事件: token (逐个 token) -> done (首 token 耗时与总耗时) / error
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestParam String message) {
+        return stream(message);
+    }
+
+    /**
+     * 流式对话接口 (SSE，POST 方式)
+     *
+     * 使用方式: POST /api/chat/stream
+     * Body: { "message": "你好" }
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStreamPost(@RequestBody ChatRequest request) {
+        return stream(request.getMessage());
+    }
+
+    /**
+     * 发起流式生成后立即返回 SseEmitter，token 由模型回调线程推送，不占用请求线程；
+     * 相同问题正在生成时直接订阅该生成
+     */
+    private SseEmitter stream(String message) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        long startTime = System.currentTimeMillis();
+        singleFlightChat.generate(message, new StreamingResponseHandler<AiMessage>() {
+
+            private long firstTokenTime = -1;
+
+            @Override
+            public void onNext(String token) {
+                if (firstTokenTime < 0) {
+                    firstTokenTime = System.currentTimeMillis() - startTime;
+                    log.info("流式对话首 token 耗时: {}ms", firstTokenTime);
+                }
+                send(emitter, closed, tokenEvent(token));
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                long duration = System.currentTimeMillis() - startTime;
+                send(emitter, closed, SseEmitter.event().name("done")
+                        .data(Map.of("firstTokenMs", firstTokenTime, "totalMs", duration)));
+                if (closed.compareAndSet(false, true)) {
+                    emitter.complete();
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                log.error("流式对话失败", error);
+                send(emitter, closed, SseEmitter.event().name("error").data(String.valueOf(error.getMessage())));
+                if (closed.compareAndSet(false, true)) {
+                    emitter.completeWithError(error);
+                }
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * token 事件以 JSON 包装为 {"t": token}：SSE 客户端会去掉 data 行开头的一个空格，
+     * 直接发送 token 时 " world" 这样的 token 会丢失前导空格，英文单词与缩进连在一起
+     */
+    private static SseEmitter.SseEventBuilder tokenEvent(String token) {
+        return SseEmitter.event().name("token").data(Map.of("t", token), MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * 模型繁忙 (并发与等待队列已满或排队超时) 时快速失败: HTTP 429 + Retry-After
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<String> handleRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    private void send(SseEmitter emitter, AtomicBoolean closed, SseEmitter.SseEventBuilder event) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，后续 token 直接丢弃
+            closed.set(true);
+            log.debug("SSE 客户端已断开: {}", e.getMessage());
+        }
+    }
+
     // 请求/响应 DTO
     public static class ChatRequest {
         private String message;
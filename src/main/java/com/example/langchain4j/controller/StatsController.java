@@ -0,0 +1,166 @@
+package com.example.langchain4j.controller;
+
+import com.example.langchain4j.chat.AdmissionControl;
+import com.example.langchain4j.chat.SingleFlightChat;
+import com.example.langchain4j.embedding.ParallelEmbeddingModel;
+import com.example.langchain4j.embedding.PersistentEmbeddingCache;
+import com.example.langchain4j.memory.SessionChatMemoryProvider;
+import com.example.langchain4j.rag.ContextAssembler;
+import com.example.langchain4j.rag.FederatedSearch;
+import com.example.langchain4j.rag.HybridSearch;
+import com.example.langchain4j.rag.QueryEmbeddingCache;
+import com.example.langchain4j.rag.SemanticAnswerCache;
+import com.example.langchain4j.tools.IngestionJob;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 运行状态统计接口
+ */
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final SessionChatMemoryProvider chatMemoryProvider;
+    private final IngestionJob ingestionJob;
+    private final EmbeddingModel embeddingModel;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final PersistentEmbeddingCache embeddingCache;
+    private final SemanticAnswerCache answerCache;
+    private final SingleFlightChat singleFlightChat;
+    private final AdmissionControl admissionControl;
+    private final HybridSearch hybridSearch;
+    private final ContextAssembler contextAssembler;
+    private final FederatedSearch federatedSearch;
+
+    public StatsController(SessionChatMemoryProvider chatMemoryProvider, IngestionJob ingestionJob,
+                           EmbeddingModel embeddingModel, QueryEmbeddingCache queryEmbeddingCache,
+                           PersistentEmbeddingCache embeddingCache, SemanticAnswerCache answerCache,
+                           SingleFlightChat singleFlightChat, AdmissionControl admissionControl,
+                           HybridSearch hybridSearch, ContextAssembler contextAssembler,
+                           FederatedSearch federatedSearch) {
+        this.chatMemoryProvider = chatMemoryProvider;
+        this.ingestionJob = ingestionJob;
+        this.embeddingModel = embeddingModel;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.embeddingCache = embeddingCache;
+        this.answerCache = answerCache;
+        this.singleFlightChat = singleFlightChat;
+        this.admissionControl = admissionControl;
+        this.hybridSearch = hybridSearch;
+        this.contextAssembler = contextAssembler;
+        this.federatedSearch = federatedSearch;
+    }
+
+    /**
+     * 会话记忆统计
+     *
+     * 使用方式: GET /api/stats/memory
+     */
+    @GetMapping("/memory")
+    public SessionChatMemoryProvider.Stats memory() {
+        return chatMemoryProvider.stats();
+    }
+
+    /**
+     * 文档导入进度与就绪状态
+     *
+     * 使用方式: GET /api/stats/ingestion
+     */
+    @GetMapping("/ingestion")
+    public IngestionJob.Progress ingestion() {
+        return ingestionJob.progress();
+    }
+
+    /**
+     * 向量化引擎吞吐量
+     *
+     * 使用方式: GET /api/stats/embedding
+     */
+    @GetMapping("/embedding")
+    public ParallelEmbeddingModel.Stats embedding() {
+        return embeddingModel instanceof ParallelEmbeddingModel parallel ? parallel.stats() : null;
+    }
+
+    /**
+     * 问题向量缓存命中率与节省耗时
+     *
+     * 使用方式: GET /api/stats/query-cache
+     */
+    @GetMapping("/query-cache")
+    public QueryEmbeddingCache.Stats queryCache() {
+        return queryEmbeddingCache.stats();
+    }
+
+    /**
+     * 导入时片段向量持久化缓存命中率
+     *
+     * 使用方式: GET /api/stats/embedding-cache
+     */
+    @GetMapping("/embedding-cache")
+    public PersistentEmbeddingCache.Stats embeddingCache() {
+        return embeddingCache.stats();
+    }
+
+    /**
+     * 语义答案缓存命中率
+     *
+     * 使用方式: GET /api/stats/answer-cache
+     */
+    @GetMapping("/answer-cache")
+    public SemanticAnswerCache.Stats answerCache() {
+        return answerCache.stats();
+    }
+
+    /**
+     * 相同对话请求合并统计
+     *
+     * 使用方式: GET /api/stats/single-flight
+     */
+    @GetMapping("/single-flight")
+    public SingleFlightChat.Stats singleFlight() {
+        return singleFlightChat.stats();
+    }
+
+    /**
+     * 模型调用准入控制：执行中/排队数、拒绝数与等待耗时
+     *
+     * 使用方式: GET /api/stats/admission
+     */
+    @GetMapping("/admission")
+    public AdmissionControl.Stats admission() {
+        return admissionControl.stats();
+    }
+
+    /**
+     * 混合检索：关键词索引规模与检索耗时
+     *
+     * 使用方式: GET /api/stats/hybrid-search
+     */
+    @GetMapping("/hybrid-search")
+    public HybridSearch.Stats hybridSearch() {
+        return hybridSearch.stats();
+    }
+
+    /**
+     * 上下文组装：检索与注入的 token 数、平均每次节省的 token 数
+     *
+     * 使用方式: GET /api/stats/context
+     */
+    @GetMapping("/context")
+    public ContextAssembler.Stats context() {
+        return contextAssembler.stats();
+    }
+
+    /**
+     * 联邦检索：各来源的检索次数、耗时、超时与失败数
+     *
+     * 使用方式: GET /api/stats/federation
+     */
+    @GetMapping("/federation")
+    public FederatedSearch.Stats federation() {
+        return federatedSearch.stats();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.langchain4j.embedding;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhq.BgeSmallZhQuantizedEmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多核并行的批量向量化引擎
+ *
+ * 将 embedAll 的输入按动态批大小切分，交给固定大小的工作线程池并行处理；
+ * 被包装的模型在工作线程内顺序执行，避免 ONNX 模型内部再次并行导致线程争用。
+ * 单个片段 (如问题向量化) 直接在调用线程执行，不经过线程池。
+ */
+@Slf4j
+public class ParallelEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    /**
+     * 本地量化 BGE-Small-ZH 模型标识 (用于持久化向量缓存的键)
+     */
+    public static final String BGE_SMALL_ZH_Q = "bge-small-zh-q";
+
+    private final String modelId;
+    private final EmbeddingModel delegate;
+    private final int workerThreads;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final ExecutorService executor;
+
+    private final AtomicLong segments = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    /**
+     * @param modelId       模型标识
+     * @param delegate      实际执行向量化的模型，应在调用线程内顺序执行
+     * @param workerThreads 工作线程数
+     * @param minBatchSize  每批最少片段数
+     * @param maxBatchSize  每批最多片段数
+     */
+    public ParallelEmbeddingModel(String modelId, EmbeddingModel delegate,
+                                  int workerThreads, int minBatchSize, int maxBatchSize) {
+        this.modelId = modelId;
+        this.delegate = delegate;
+        this.workerThreads = workerThreads;
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "embedding-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 使用本地量化的 BGE-Small-ZH 模型创建并行向量化引擎
+     */
+    public static ParallelEmbeddingModel bgeSmallZh(AppProperties.Embedding config) {
+        int threads = config.getWorkerThreads() > 0
+                ? config.getWorkerThreads()
+                : Runtime.getRuntime().availableProcessors();
+        // 传入同步 Executor，使模型在工作线程内顺序执行，并行度完全由本类的线程池控制
+        EmbeddingModel model = new BgeSmallZhQuantizedEmbeddingModel(Runnable::run);
+        log.info("向量化引擎: BGE-Small-ZH，工作线程 {}，批大小 {}-{}",
+                threads, config.getMinBatchSize(), config.getMaxBatchSize());
+        return new ParallelEmbeddingModel(BGE_SMALL_ZH_Q, model, threads,
+                config.getMinBatchSize(), config.getMaxBatchSize());
+    }
+
+    public String modelId() {
+        return modelId;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        long start = System.nanoTime();
+        try {
+            if (textSegments.size() <= 1) {
+                return delegate.embedAll(textSegments);
+            }
+            return embedInParallel(textSegments);
+        } finally {
+            segments.addAndGet(textSegments.size());
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private Response<List<Embedding>> embedInParallel(List<TextSegment> textSegments) {
+        int batchSize = batchSize(textSegments.size());
+        List<Future<Response<List<Embedding>>>> futures = new ArrayList<>();
+        for (int from = 0; from < textSegments.size(); from += batchSize) {
+            List<TextSegment> batch = textSegments.subList(from, Math.min(from + batchSize, textSegments.size()));
+            futures.add(executor.submit(() -> delegate.embedAll(batch)));
+            batches.incrementAndGet();
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        int inputTokens = 0;
+        try {
+            for (Future<Response<List<Embedding>>> future : futures) {
+                Response<List<Embedding>> response = future.get();
+                embeddings.addAll(response.content());
+                if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                    inputTokens += response.tokenUsage().inputTokenCount();
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("向量化被中断", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("向量化失败", e.getCause());
+        }
+        return Response.from(embeddings, new TokenUsage(inputTokens));
+    }
+
+    /**
+     * 动态批大小：让每个工作线程分到约两批，便于负载均衡，并限制在 [minBatchSize, maxBatchSize] 内
+     */
+    int batchSize(int total) {
+        int perWorker = (int) Math.ceil(total / (workerThreads * 2.0));
+        return Math.min(maxBatchSize, Math.max(minBatchSize, perWorker));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public Stats stats() {
+        long segmentCount = segments.get();
+        long nanos = busyNanos.get();
+        double throughput = nanos == 0 ? 0 : segmentCount * 1_000_000_000.0 / nanos;
+        return new Stats(workerThreads, minBatchSize, maxBatchSize, segmentCount, batches.get(), throughput);
+    }
+
+    /**
+     * @param workerThreads     工作线程数
+     * @param minBatchSize      最小批大小
+     * @param maxBatchSize      最大批大小
+     * @param segments          累计向量化片段数
+     * @param batches           累计并行批次数
+     * @param segmentsPerSecond 向量化吞吐量 (片段/秒，按 embedAll 调用耗时计算)
+     */
+    public record Stats(int workerThreads, int minBatchSize, int maxBatchSize,
+                        long segments, long batches, double segmentsPerSecond) {
+    }
+}
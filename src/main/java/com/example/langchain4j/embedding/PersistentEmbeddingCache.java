@@ -0,0 +1,276 @@
+package com.example.langchain4j.embedding;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持久化的片段向量缓存
+ *
+ * 以 (模型 ID, 片段文本 SHA-256) 为键，将原始 float 向量追加写入
+ * {cacheDirectory}/{modelId}-{dimension}.bin。切换向量库或重建集合时，
+ * 相同文本直接从缓存读取，无需再次运行模型。
+ *
+ * 文件由定长记录组成: [32 字节 SHA-256][dimension 个 float]。
+ * 启动时将已有文件分块内存映射并顺序扫描建立索引，之后追加的记录通过 FileChannel 读写。
+ */
+@Slf4j
+@Component
+public class PersistentEmbeddingCache {
+
+    private static final int HASH_BYTES = 32;
+
+    private final boolean enabled;
+    private final Path directory;
+
+    /**
+     * 模型 ID -> 缓存文件
+     */
+    private final Map<String, CacheFile> files = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PersistentEmbeddingCache(AppProperties appProperties) {
+        this.enabled = appProperties.getEmbedding().isCacheEnabled();
+        this.directory = Paths.get(appProperties.getEmbedding().getCacheDirectory());
+    }
+
+    /**
+     * 为导入链路包装向量化模型：命中缓存的片段直接返回，仅将未命中的片段交给模型批量向量化
+     */
+    public EmbeddingModel wrap(EmbeddingModel delegate) {
+        if (!enabled) {
+            return delegate;
+        }
+        String modelId = delegate instanceof ParallelEmbeddingModel parallel
+                ? parallel.modelId()
+                : delegate.getClass().getName();
+        return new CachedEmbeddingModel(delegate, modelId);
+    }
+
+    @PreDestroy
+    public void close() {
+        files.values().forEach(CacheFile::close);
+        files.clear();
+    }
+
+    public Stats stats() {
+        long entries = files.values().stream().mapToLong(file -> file.index.size()).sum();
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return new Stats(enabled, entries, hitCount, misses.get(), total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    /**
+     * @param enabled  是否启用
+     * @param entries  缓存的向量条数
+     * @param hits     命中次数
+     * @param misses   未命中次数
+     * @param hitRatio 命中率
+     */
+    public record Stats(boolean enabled, long entries, long hits, long misses, double hitRatio) {
+    }
+
+    private CacheFile file(String modelId, int dimension) {
+        return files.computeIfAbsent(modelId + "-" + dimension, name -> {
+            try {
+                return new CacheFile(directory.resolve(name + ".bin"), dimension);
+            } catch (IOException e) {
+                throw new UncheckedIOException("打开向量缓存失败: " + name, e);
+            }
+        });
+    }
+
+    private static Key key(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return Key.of(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * SHA-256 摘要作为键 (equals/hashCode 基于内容)
+     */
+    private record Key(long a, long b, long c, long d) {
+        static Key of(byte[] hash) {
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new Key(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(a).putLong(b).putLong(c).putLong(d);
+        }
+    }
+
+    private static class CacheFile {
+
+        private final Path path;
+        private final int recordBytes;
+        private final int dimension;
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> chunks = new ArrayList<>();
+        private final int recordsPerChunk;
+        private final long mappedRecords;
+        private final Map<Key, Long> index = new ConcurrentHashMap<>();
+        private long records;
+
+        CacheFile(Path path, int dimension) throws IOException {
+            this.path = path;
+            this.dimension = dimension;
+            this.recordBytes = HASH_BYTES + dimension * Float.BYTES;
+            this.recordsPerChunk = Integer.MAX_VALUE / recordBytes;
+            Files.createDirectories(path.getParent());
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // 丢弃异常退出时写了一半的记录
+            long size = channel.size();
+            this.records = size / recordBytes;
+            if (size % recordBytes != 0) {
+                channel.truncate(records * recordBytes);
+            }
+
+            long start = System.currentTimeMillis();
+            for (long first = 0; first < records; first += recordsPerChunk) {
+                long count = Math.min(recordsPerChunk, records - first);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        first * recordBytes, count * recordBytes);
+                for (int i = 0; i < count; i++) {
+                    chunk.position(i * recordBytes);
+                    index.put(new Key(chunk.getLong(), chunk.getLong(), chunk.getLong(), chunk.getLong()), first + i);
+                }
+                chunks.add(chunk);
+            }
+            this.mappedRecords = records;
+            log.info("加载向量缓存 {}: {} 条，耗时 {}ms", path, records, System.currentTimeMillis() - start);
+        }
+
+        Embedding get(Key key) {
+            Long record = index.get(key);
+            if (record == null) {
+                return null;
+            }
+            float[] vector = new float[dimension];
+            if (record < mappedRecords) {
+                ByteBuffer chunk = chunks.get((int) (record / recordsPerChunk)).duplicate();
+                chunk.position((int) (record % recordsPerChunk) * recordBytes + HASH_BYTES);
+                chunk.asFloatBuffer().get(vector);
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(dimension * Float.BYTES);
+                try {
+                    long position = record * recordBytes + HASH_BYTES;
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position()) < 0) {
+                            return null;
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("读取向量缓存失败: {}", path, e);
+                    return null;
+                }
+                buffer.flip();
+                buffer.asFloatBuffer().get(vector);
+            }
+            return Embedding.from(vector);
+        }
+
+        synchronized void append(Key key, Embedding embedding) {
+            if (index.containsKey(key) || embedding.dimension() != dimension) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(recordBytes);
+            key.writeTo(buffer);
+            buffer.asFloatBuffer().put(embedding.vector());
+            buffer.position(recordBytes).flip();
+            try {
+                long position = records * recordBytes;
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                index.put(key, records++);
+            } catch (IOException e) {
+                log.warn("写入向量缓存失败: {}", path, e);
+            }
+        }
+
+        synchronized void close() {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭向量缓存失败: {}", path, e);
+            }
+        }
+    }
+
+    private class CachedEmbeddingModel implements EmbeddingModel {
+
+        private final EmbeddingModel delegate;
+        private final String modelId;
+
+        private CachedEmbeddingModel(EmbeddingModel delegate, String modelId) {
+            this.delegate = delegate;
+            this.modelId = modelId;
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            CacheFile file = file(modelId, delegate.dimension());
+
+            Embedding[] embeddings = new Embedding[textSegments.size()];
+            Key[] keys = new Key[textSegments.size()];
+            List<Integer> missed = new ArrayList<>();
+            for (int i = 0; i < textSegments.size(); i++) {
+                keys[i] = key(textSegments.get(i).text());
+                embeddings[i] = file.get(keys[i]);
+                if (embeddings[i] == null) {
+                    missed.add(i);
+                }
+            }
+            hits.addAndGet(textSegments.size() - missed.size());
+            misses.addAndGet(missed.size());
+
+            if (!missed.isEmpty()) {
+                List<TextSegment> toEmbed = missed.stream().map(textSegments::get).toList();
+                List<Embedding> computed = delegate.embedAll(toEmbed).content();
+                for (int i = 0; i < missed.size(); i++) {
+                    int position = missed.get(i);
+                    embeddings[position] = computed.get(i);
+                    file.append(keys[position], computed.get(i));
+                }
+            }
+            return Response.from(List.of(embeddings));
+        }
+
+        @Override
+        public int dimension() {
+            return delegate.dimension();
+        }
+    }
+}
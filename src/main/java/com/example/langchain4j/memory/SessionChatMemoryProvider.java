@@ -0,0 +1,193 @@
+package com.example.langchain4j.memory;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按会话隔离的对话记忆提供者
+ *
+ * 每个 sessionId 拥有独立的 MessageWindowChatMemory，
+ * 会话总数受 maxSessions 限制 (LRU 淘汰)，空闲超过 idleTtl 的会话被清理。
+ * 消息总数在写入、清空与淘汰会话时增量维护，读取指标不遍历会话
+ */
+@Slf4j
+@Component
+public class SessionChatMemoryProvider implements ChatMemoryProvider {
+
+    private final int maxMessages;
+    private final int maxSessions;
+    private final long idleTtlMillis;
+
+    /**
+     * accessOrder = true: 迭代顺序即最近最少访问顺序，头部最先被淘汰
+     */
+    private final LinkedHashMap<Object, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicInteger messages = new AtomicInteger();
+
+    public SessionChatMemoryProvider(AppProperties appProperties) {
+        AppProperties.ChatMemory config = appProperties.getChatMemory();
+        this.maxMessages = config.getMaxMessages();
+        this.maxSessions = config.getMaxSessions();
+        this.idleTtlMillis = config.getIdleTtl().toMillis();
+    }
+
+    @Override
+    public ChatMemory get(Object memoryId) {
+        long now = System.currentTimeMillis();
+        synchronized (sessions) {
+            expireIdle(now);
+
+            Entry entry = sessions.get(memoryId);
+            if (entry != null) {
+                hits.incrementAndGet();
+                entry.lastAccess = now;
+                return entry.memory;
+            }
+
+            misses.incrementAndGet();
+            entry = new Entry(new CountingChatMemory(MessageWindowChatMemory.builder()
+                    .id(memoryId)
+                    .maxMessages(maxMessages)
+                    .build()), now);
+            sessions.put(memoryId, entry);
+            evictOverflow();
+            return entry.memory;
+        }
+    }
+
+    /**
+     * 按访问顺序从头部清理过期会话，遇到第一个未过期的即停止
+     */
+    private void expireIdle(long now) {
+        Iterator<Entry> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (now - entry.lastAccess < idleTtlMillis) {
+                break;
+            }
+            it.remove();
+            entry.memory.release();
+            expirations.incrementAndGet();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Object, Entry>> it = sessions.entrySet().iterator();
+        while (sessions.size() > maxSessions && it.hasNext()) {
+            Map.Entry<Object, Entry> evicted = it.next();
+            it.remove();
+            evicted.getValue().memory.release();
+            evictions.incrementAndGet();
+            log.debug("会话记忆已满，淘汰最久未访问的会话: {}", evicted.getKey());
+        }
+    }
+
+    /**
+     * 当前驻留的会话数
+     */
+    public int residentSessions() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * 所有驻留会话的消息总数
+     */
+    public int residentMessages() {
+        return messages.get();
+    }
+
+    public Stats stats() {
+        return new Stats(residentSessions(), residentMessages(), hits.get(), misses.get(), evictions.get(),
+                expirations.get());
+    }
+
+    /**
+     * @param residentSessions 当前驻留会话数
+     * @param residentMessages 所有驻留会话的消息总数
+     * @param hits             命中已有会话的次数
+     * @param misses           新建会话的次数
+     * @param evictions        因超过 maxSessions 被 LRU 淘汰的会话数
+     * @param expirations      因空闲超时被清理的会话数
+     */
+    public record Stats(int residentSessions, int residentMessages, long hits, long misses, long evictions, long expirations) {
+    }
+
+    private static class Entry {
+        private final CountingChatMemory memory;
+        private long lastAccess;
+
+        private Entry(CountingChatMemory memory, long lastAccess) {
+            this.memory = memory;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * 记录消息数变化的对话记忆：窗口满时旧消息被移出，写入后按实际条数计算增量；
+     * 会话被淘汰后不再计入总数 (调用方可能仍持有该记忆)
+     */
+    private class CountingChatMemory implements ChatMemory {
+        private final ChatMemory delegate;
+        private int size;
+        private boolean resident = true;
+
+        private CountingChatMemory(ChatMemory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object id() {
+            return delegate.id();
+        }
+
+        @Override
+        public synchronized void add(ChatMessage message) {
+            delegate.add(message);
+            int current = delegate.messages().size();
+            if (resident) {
+                messages.addAndGet(current - size);
+            }
+            size = current;
+        }
+
+        @Override
+        public List<ChatMessage> messages() {
+            return delegate.messages();
+        }
+
+        @Override
+        public synchronized void clear() {
+            delegate.clear();
+            if (resident) {
+                messages.addAndGet(-size);
+            }
+            size = 0;
+        }
+
+        private synchronized void release() {
+            if (resident) {
+                messages.addAndGet(-size);
+                resident = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.langchain4j.metrics;
+
+import com.example.langchain4j.chat.AdmissionControl;
+import com.example.langchain4j.chat.SingleFlightChat;
+import com.example.langchain4j.embedding.PersistentEmbeddingCache;
+import com.example.langchain4j.memory.SessionChatMemoryProvider;
+import com.example.langchain4j.rag.HybridSearch;
+import com.example.langchain4j.rag.QueryEmbeddingCache;
+import com.example.langchain4j.rag.SemanticAnswerCache;
+import com.example.langchain4j.tools.IngestionJob;
+import com.example.langchain4j.tools.IngestionPipeline;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 将各组件已有的统计 (/api/stats/*) 注册为 Micrometer 指标，抓取时读取，不在请求链路上额外计数
+ */
+@Component
+@RequiredArgsConstructor
+public class AppMeterBinder implements MeterBinder {
+
+    private final SessionChatMemoryProvider chatMemoryProvider;
+    private final IngestionJob ingestionJob;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final PersistentEmbeddingCache embeddingCache;
+    private final SemanticAnswerCache answerCache;
+    private final SingleFlightChat singleFlightChat;
+    private final AdmissionControl admissionControl;
+    private final HybridSearch hybridSearch;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // 会话记忆
+        Gauge.builder("chat.memory.sessions", chatMemoryProvider, SessionChatMemoryProvider::residentSessions)
+                .description("驻留的会话数")
+                .register(registry);
+        Gauge.builder("chat.memory.messages", chatMemoryProvider, SessionChatMemoryProvider::residentMessages)
+                .description("所有驻留会话的消息总数")
+                .register(registry);
+
+        // 文档导入
+        String store = ingestionJob.progress().storeType();
+        FunctionCounter.builder("ingestion.segments", ingestionJob, job -> job.progress().segments())
+                .description("导入时向量化的片段数")
+                .tags("store", store)
+                .register(registry);
+        FunctionCounter.builder("ingestion.segments.reused", ingestionJob, job -> job.progress().reusedSegments())
+                .description("导入时内容未变、直接复用的片段数")
+                .tags("store", store)
+                .register(registry);
+        Gauge.builder("ingestion.segments.per.second", ingestionJob, job -> job.progress().segmentsPerSecond())
+                .description("导入吞吐量")
+                .tags("store", store)
+                .register(registry);
+        for (String stage : List.of(IngestionPipeline.SPLIT, IngestionPipeline.EMBED, IngestionPipeline.STORE)) {
+            Gauge.builder("ingestion.stage.utilization", ingestionJob, job -> job.progress().stages().stream()
+                            .filter(stats -> stats.name().equals(stage))
+                            .mapToDouble(IngestionPipeline.StageStats::utilization)
+                            .sum())
+                    .description("导入流水线各阶段忙碌时间占比，接近 1 的阶段即为瓶颈")
+                    .tags("store", store, "stage", stage)
+                    .register(registry);
+        }
+
+        Gauge.builder("rag.keyword.index.segments", hybridSearch, search -> search.stats().segments())
+                .description("关键词索引的片段数")
+                .tags("store", store)
+                .register(registry);
+
+        // 缓存
+        cache(registry, "query-embedding", queryEmbeddingCache,
+                cache -> cache.stats().hits(), cache -> cache.stats().misses());
+        cache(registry, "segment-embedding", embeddingCache,
+                cache -> cache.stats().hits(), cache -> cache.stats().misses());
+        cache(registry, "answer", answerCache,
+                cache -> cache.stats().hits(), cache -> cache.stats().misses());
+
+        // 请求合并与准入控制
+        FunctionCounter.builder("chat.coalesced", singleFlightChat,
+                        chat -> chat.stats().coalesced() + chat.stats().streamCoalesced())
+                .description("合并到进行中生成的请求数")
+                .register(registry);
+        Gauge.builder("admission.active", admissionControl, control -> control.stats().active())
+                .description("执行中的模型生成数")
+                .register(registry);
+        for (AdmissionControl.Priority priority : AdmissionControl.Priority.values()) {
+            Gauge.builder("admission.queue.depth", admissionControl,
+                            control -> control.stats().queueDepth().get(priority))
+                    .description("等待许可的请求数")
+                    .tags("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        FunctionCounter.builder("admission.rejected", admissionControl, control -> control.stats().rejected())
+                .description("被拒绝 (HTTP 429) 的请求数")
+                .register(registry);
+        Gauge.builder("admission.wait.avg", admissionControl, control -> control.stats().avgWaitMs())
+                .description("排队请求的平均等待耗时")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    private static <T> void cache(MeterRegistry registry, String name, T cache,
+                                  ToDoubleFunction<T> hits, ToDoubleFunction<T> misses) {
+        FunctionCounter.builder("app.cache.gets", cache, hits)
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("app.cache.gets", cache, misses)
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+    }
+}
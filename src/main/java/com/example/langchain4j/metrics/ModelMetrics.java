@@ -0,0 +1,223 @@
+package com.example.langchain4j.metrics;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 大模型调用指标
+ *
+ * - llm.generation: 生成总耗时 (path = chat / rag，mode = sync / stream，outcome = success / error)
+ * - llm.time.to.first.token: 流式生成的首 token 耗时
+ * - llm.tokens.per.second: 输出速率 (流式按首 token 之后的解码耗时计算)
+ * - llm.tokens: 输出 token 数
+ *
+ * 包装在准入控制之内，只统计模型本身的耗时，排队时间见 /api/stats/admission。
+ */
+@Component
+public class ModelMetrics {
+
+    private final MeterRegistry registry;
+
+    public ModelMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @param path 调用来源 (chat / rag)
+     */
+    public ChatLanguageModel wrap(ChatLanguageModel delegate, String path) {
+        return new MeteredChatModel(delegate, new Meters(path, "sync"));
+    }
+
+    /**
+     * @param path 调用来源 (chat / rag)
+     */
+    public StreamingChatLanguageModel wrap(StreamingChatLanguageModel delegate, String path) {
+        return new MeteredStreamingChatModel(delegate, new Meters(path, "stream"));
+    }
+
+    private class Meters {
+
+        private final Timer success;
+        private final Timer error;
+        private final Timer firstToken;
+        private final DistributionSummary tokensPerSecond;
+        private final Counter tokens;
+
+        private Meters(String path, String mode) {
+            this.success = generation(path, mode, "success");
+            this.error = generation(path, mode, "error");
+            this.firstToken = Timer.builder("llm.time.to.first.token")
+                    .description("流式生成的首 token 耗时")
+                    .tags("path", path)
+                    .register(registry);
+            this.tokensPerSecond = DistributionSummary.builder("llm.tokens.per.second")
+                    .description("输出 token 速率")
+                    .baseUnit("tokens/s")
+                    .tags("path", path, "mode", mode)
+                    .register(registry);
+            this.tokens = Counter.builder("llm.tokens")
+                    .description("输出 token 数")
+                    .baseUnit("tokens")
+                    .tags("path", path, "mode", mode)
+                    .register(registry);
+        }
+
+        private Timer generation(String path, String mode, String outcome) {
+            return Timer.builder("llm.generation")
+                    .description("大模型生成总耗时")
+                    .tags("path", path, "mode", mode, "outcome", outcome)
+                    .register(registry);
+        }
+
+        /**
+         * @param decodeNanos 输出 token 所用的时间
+         */
+        private void recordTokens(int outputTokens, long decodeNanos) {
+            if (outputTokens <= 0) {
+                return;
+            }
+            tokens.increment(outputTokens);
+            if (decodeNanos > 0) {
+                tokensPerSecond.record(outputTokens * 1e9 / decodeNanos);
+            }
+        }
+
+        private Response<AiMessage> time(Supplier<Response<AiMessage>> call) {
+            long start = System.nanoTime();
+            Response<AiMessage> response;
+            try {
+                response = call.get();
+            } catch (RuntimeException e) {
+                error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            success.record(elapsed, TimeUnit.NANOSECONDS);
+            recordTokens(outputTokens(response, 0), elapsed);
+            return response;
+        }
+    }
+
+    private static int outputTokens(Response<AiMessage> response, int fallback) {
+        TokenUsage usage = response == null ? null : response.tokenUsage();
+        return usage != null && usage.outputTokenCount() != null ? usage.outputTokenCount() : fallback;
+    }
+
+    private static class MeteredChatModel implements ChatLanguageModel {
+
+        private final ChatLanguageModel delegate;
+        private final Meters meters;
+
+        private MeteredChatModel(ChatLanguageModel delegate, Meters meters) {
+            this.delegate = delegate;
+            this.meters = meters;
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return meters.time(() -> delegate.generate(messages));
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+            return meters.time(() -> delegate.generate(messages, toolSpecifications));
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+            return meters.time(() -> delegate.generate(messages, toolSpecification));
+        }
+
+        @Override
+        public Set<Capability> supportedCapabilities() {
+            return delegate.supportedCapabilities();
+        }
+    }
+
+    private static class MeteredStreamingChatModel implements StreamingChatLanguageModel {
+
+        private final StreamingChatLanguageModel delegate;
+        private final Meters meters;
+
+        private MeteredStreamingChatModel(StreamingChatLanguageModel delegate, Meters meters) {
+            this.delegate = delegate;
+            this.meters = meters;
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            delegate.generate(messages, new MeteredHandler(handler, meters));
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                             StreamingResponseHandler<AiMessage> handler) {
+            delegate.generate(messages, toolSpecifications, new MeteredHandler(handler, meters));
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                             StreamingResponseHandler<AiMessage> handler) {
+            delegate.generate(messages, toolSpecification, new MeteredHandler(handler, meters));
+        }
+    }
+
+    /**
+     * 回调由模型的单个 IO 线程按顺序调用，字段无需同步
+     */
+    private static class MeteredHandler implements StreamingResponseHandler<AiMessage> {
+
+        private final StreamingResponseHandler<AiMessage> delegate;
+        private final Meters meters;
+        private final long start = System.nanoTime();
+        private long firstToken = -1;
+        private int tokens;
+
+        private MeteredHandler(StreamingResponseHandler<AiMessage> delegate, Meters meters) {
+            this.delegate = delegate;
+            this.meters = meters;
+        }
+
+        @Override
+        public void onNext(String token) {
+            if (firstToken < 0) {
+                firstToken = System.nanoTime();
+                meters.firstToken.record(firstToken - start, TimeUnit.NANOSECONDS);
+            }
+            tokens++;
+            delegate.onNext(token);
+        }
+
+        @Override
+        public void onComplete(Response<AiMessage> response) {
+            long now = System.nanoTime();
+            meters.success.record(now - start, TimeUnit.NANOSECONDS);
+            meters.recordTokens(outputTokens(response, tokens), firstToken < 0 ? 0 : now - firstToken);
+            delegate.onComplete(response);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            meters.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            delegate.onError(error);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.langchain4j.rag;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 按 token 预算组装 RAG 上下文，位于检索器与模型之间
+ *
+ * 按检索排名依次处理片段:
+ * 1. 压缩空白 (连续空白合并，去掉空行)
+ * 2. 内容基本已被某个已选片段覆盖 (字二元组有 duplicateSimilarity 比例出现在该片段中) 的片段丢弃
+ * 3. 与已选片段首尾重叠的部分 (切分时的 overlap) 从当前片段中去掉
+ * 4. 放得下则整段加入；放不下且剩余预算不足 minSegmentTokens 时跳过该片段 (之后更短的片段仍可整段加入)；
+ *    否则优先保留与问题重合词多的句子 (按原文顺序拼接) 填满剩余预算，没有整句放得下时按字符截断，
+ *    之后的片段全部丢弃
+ *
+ * token 数为保守估算 (每个汉字 1 个，其他非空白字符每 4 个 1 个)，实际 token 数通常更少。
+ * 每次检索的原始 / 注入 token 数与节省的 token 数记录到 rag.context.tokens 指标，并写入 RagTimings。
+ */
+@Slf4j
+@Component
+public class ContextAssembler {
+
+    private static final Pattern BLANK_LINES = Pattern.compile("\\s*\\n\\s*");
+    private static final Pattern SPACES = Pattern.compile("[ \\t\\x0B\\f\\r\\u3000]+");
+
+    /**
+     * 首尾重叠至少这么多字符才去重，避免误删常见短语
+     */
+    private static final int MIN_OVERLAP_CHARS = 16;
+    private static final String ELLIPSIS = "…";
+
+    private final boolean enabled;
+    private final int maxTokens;
+    private final int minSegmentTokens;
+    private final double duplicateSimilarity;
+
+    private final DistributionSummary retrievedSummary;
+    private final DistributionSummary injectedSummary;
+    private final DistributionSummary savedSummary;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retrievedSegments = new AtomicLong();
+    private final AtomicLong injectedSegments = new AtomicLong();
+    private final AtomicLong duplicateSegments = new AtomicLong();
+    private final AtomicLong trimmedSegments = new AtomicLong();
+    private final AtomicLong droppedSegments = new AtomicLong();
+    private final AtomicLong retrievedTokens = new AtomicLong();
+    private final AtomicLong injectedTokens = new AtomicLong();
+
+    public ContextAssembler(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.Retriever.Context config = appProperties.getRetriever().getContext();
+        this.enabled = config.isEnabled();
+        this.maxTokens = config.getMaxTokens();
+        this.minSegmentTokens = config.getMinSegmentTokens();
+        this.duplicateSimilarity = config.getDuplicateSimilarity();
+        this.retrievedSummary = DistributionSummary.builder("rag.context.tokens")
+                .description("每次检索的上下文 token 数 (估算)")
+                .tags("stage", "retrieved")
+                .register(meterRegistry);
+        this.injectedSummary = DistributionSummary.builder("rag.context.tokens")
+                .description("每次检索的上下文 token 数 (估算)")
+                .tags("stage", "injected")
+                .register(meterRegistry);
+        this.savedSummary = DistributionSummary.builder("rag.context.tokens.saved")
+                .description("上下文组装每次节省的 token 数 (估算)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 包装检索器，对检索结果按预算组装；未启用时原样返回
+     */
+    public ContentRetriever wrap(ContentRetriever delegate) {
+        if (!enabled) {
+            return delegate;
+        }
+        return query -> assemble(query, delegate.retrieve(query));
+    }
+
+    /**
+     * 保守估算 token 数
+     */
+    static int estimateTokens(String text) {
+        int han = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+                han++;
+            } else if (!Character.isWhitespace(codePoint)) {
+                other++;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return han + (other + 3) / 4;
+    }
+
+    List<Content> assemble(Query query, List<Content> contents) {
+        Set<String> queryTerms = new HashSet<>(KeywordIndex.tokenize(query.text()));
+        List<Content> assembled = new ArrayList<>();
+        List<String> accepted = new ArrayList<>();
+        List<Set<Integer>> acceptedBigrams = new ArrayList<>();
+        int retrieved = 0;
+        int injected = 0;
+        boolean exhausted = false;
+        int duplicates = 0;
+        int trimmed = 0;
+        int dropped = 0;
+
+        for (Content content : contents) {
+            TextSegment segment = content.textSegment();
+            retrieved += estimateTokens(segment.text());
+            int remaining = maxTokens - injected;
+            if (exhausted || remaining <= 0) {
+                dropped++;
+                continue;
+            }
+            String text = compress(segment.text());
+            Set<Integer> bigrams = bigrams(text);
+            if (text.isEmpty() || isDuplicate(text, bigrams, accepted, acceptedBigrams)) {
+                duplicates++;
+                continue;
+            }
+            for (String previous : accepted) {
+                text = removeOverlap(previous, text);
+            }
+            if (text.isEmpty()) {
+                duplicates++;
+                continue;
+            }
+
+            int tokens = estimateTokens(text);
+            if (tokens > remaining) {
+                if (remaining < minSegmentTokens) {
+                    dropped++;
+                    continue;
+                }
+                String extracted = extract(text, queryTerms, remaining);
+                if (extracted.isEmpty()) {
+                    // 没有整句放得下 (如不含句末标点的长句)，按字符截断
+                    extracted = truncate(text, remaining);
+                }
+                if (extracted.isEmpty()) {
+                    dropped++;
+                    continue;
+                }
+                text = extracted;
+                tokens = estimateTokens(text);
+                trimmed++;
+                // 截断后的片段已用满预算，之后的片段全部丢弃
+                exhausted = true;
+            }
+            injected += tokens;
+            accepted.add(text);
+            acceptedBigrams.add(bigrams);
+            assembled.add(text.equals(segment.text()) ? content
+                    : Content.from(TextSegment.from(text, segment.metadata())));
+        }
+
+        record(contents.size(), assembled.size(), duplicates, trimmed, dropped, retrieved, injected);
+        if (log.isDebugEnabled()) {
+            log.debug("上下文组装: {} 个片段 {} tokens -> {} 个片段 {} tokens (去重 {}，截断 {}，丢弃 {})",
+                    contents.size(), retrieved, assembled.size(), injected, duplicates, trimmed, dropped);
+        }
+        return assembled;
+    }
+
+    private void record(int retrievedCount, int injectedCount, int duplicates, int trimmed, int dropped,
+                        int retrieved, int injected) {
+        requests.incrementAndGet();
+        retrievedSegments.addAndGet(retrievedCount);
+        injectedSegments.addAndGet(injectedCount);
+        duplicateSegments.addAndGet(duplicates);
+        trimmedSegments.addAndGet(trimmed);
+        droppedSegments.addAndGet(dropped);
+        retrievedTokens.addAndGet(retrieved);
+        injectedTokens.addAndGet(injected);
+        retrievedSummary.record(retrieved);
+        injectedSummary.record(injected);
+        savedSummary.record(Math.max(0, retrieved - injected));
+        RagTimings.recordContext(injected, Math.max(0, retrieved - injected));
+    }
+
+    private static String compress(String text) {
+        return BLANK_LINES.matcher(SPACES.matcher(text).replaceAll(" ")).replaceAll("\n").trim();
+    }
+
+    private boolean isDuplicate(String text, Set<Integer> bigrams, List<String> accepted,
+                                List<Set<Integer>> acceptedBigrams) {
+        for (int i = 0; i < accepted.size(); i++) {
+            if (accepted.get(i).contains(text)) {
+                return true;
+            }
+            Set<Integer> other = acceptedBigrams.get(i);
+            int intersection = 0;
+            for (Integer bigram : bigrams) {
+                if (other.contains(bigram)) {
+                    intersection++;
+                }
+            }
+            if (!bigrams.isEmpty() && (double) intersection / bigrams.size() >= duplicateSimilarity) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<Integer> bigrams(String text) {
+        Set<Integer> bigrams = new HashSet<>();
+        for (int i = 0; i + 1 < text.length(); i++) {
+            bigrams.add(text.charAt(i) << 16 | text.charAt(i + 1));
+        }
+        return bigrams;
+    }
+
+    /**
+     * 去掉 text 中与 previous 首尾重叠的部分 (previous 的结尾是 text 的开头，或 text 的结尾是 previous 的开头)
+     */
+    static String removeOverlap(String previous, String text) {
+        int max = Math.min(previous.length(), text.length()) - 1;
+        for (int length = max; length >= MIN_OVERLAP_CHARS; length--) {
+            if (previous.regionMatches(previous.length() - length, text, 0, length)) {
+                return text.substring(length).trim();
+            }
+            if (text.regionMatches(text.length() - length, previous, 0, length)) {
+                return text.substring(0, text.length() - length).trim();
+            }
+        }
+        return text;
+    }
+
+    /**
+     * 从片段中挑选句子填满预算：与问题重合词多的句子优先，按原文顺序拼接，不相邻的句子之间以省略号分隔
+     */
+    private static String extract(String text, Set<String> queryTerms, int budget) {
+        List<String> sentences = sentences(text);
+        List<Integer> order = new ArrayList<>();
+        int[] scores = new int[sentences.size()];
+        for (int i = 0; i < sentences.size(); i++) {
+            order.add(i);
+            for (String token : new HashSet<>(KeywordIndex.tokenize(sentences.get(i)))) {
+                if (queryTerms.contains(token)) {
+                    scores[i]++;
+                }
+            }
+        }
+        order.sort(Comparator.<Integer>comparingInt(i -> -scores[i]).thenComparingInt(i -> i));
+
+        boolean[] selected = new boolean[sentences.size()];
+        int used = 0;
+        for (int i : order) {
+            int tokens = estimateTokens(sentences.get(i)) + 1;
+            if (used + tokens <= budget) {
+                selected[i] = true;
+                used += tokens;
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        int last = -1;
+        for (int i = 0; i < sentences.size(); i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            if (last >= 0 && i != last + 1) {
+                result.append(ELLIPSIS);
+            }
+            result.append(sentences.get(i));
+            last = i;
+        }
+        return result.toString().trim();
+    }
+
+    /**
+     * 保留片段开头不超过预算的部分，末尾加省略号
+     */
+    static String truncate(String text, int budget) {
+        int han = 0;
+        // 末尾的省略号
+        int other = 1;
+        int end = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+                han++;
+            } else if (!Character.isWhitespace(codePoint)) {
+                other++;
+            }
+            if (han + (other + 3) / 4 > budget) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+            end = i;
+        }
+        String head = text.substring(0, end).trim();
+        return head.isEmpty() ? "" : head + ELLIPSIS;
+    }
+
+    /**
+     * 按中英文句末标点与换行切句，标点保留在句尾
+     */
+    private static List<String> sentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean end = c == '。' || c == '！' || c == '？' || c == '；' || c == '!' || c == '?' || c == ';'
+                    || c == '\n'
+                    || (c == '.' && (i + 1 == text.length() || Character.isWhitespace(text.charAt(i + 1))));
+            if (end) {
+                addSentence(sentences, text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        addSentence(sentences, text.substring(start));
+        return sentences;
+    }
+
+    private static void addSentence(List<String> sentences, String sentence) {
+        if (!sentence.isBlank()) {
+            sentences.add(sentence);
+        }
+    }
+
+    public Stats stats() {
+        long count = requests.get();
+        long retrieved = retrievedTokens.get();
+        long injected = injectedTokens.get();
+        return new Stats(enabled, maxTokens, count, retrievedSegments.get(), injectedSegments.get(),
+                duplicateSegments.get(), trimmedSegments.get(), droppedSegments.get(), retrieved, injected,
+                count == 0 ? 0 : (double) (retrieved - injected) / count);
+    }
+
+    /**
+     * @param enabled                  是否启用
+     * @param maxTokens                上下文 token 预算
+     * @param requests                 组装次数
+     * @param retrievedSegments        检索返回的片段数
+     * @param injectedSegments         注入提示词的片段数
+     * @param duplicateSegments        因重复丢弃的片段数
+     * @param trimmedSegments          按句截断的片段数
+     * @param droppedSegments          预算用尽丢弃的片段数
+     * @param retrievedTokens          检索返回的 token 数 (估算)
+     * @param injectedTokens           注入提示词的 token 数 (估算)
+     * @param avgSavedTokensPerRequest 平均每次节省的 token 数
+     */
+    public record Stats(boolean enabled, int maxTokens, long requests, long retrievedSegments,
+                        long injectedSegments, long duplicateSegments, long trimmedSegments, long droppedSegments,
+                        long retrievedTokens, long injectedTokens, double avgSavedTokensPerRequest) {
+    }
+}
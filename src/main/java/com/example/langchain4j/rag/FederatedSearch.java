@@ -0,0 +1,401 @@
+package com.example.langchain4j.rag;
+
+import com.example.langchain4j.config.AppProperties;
+import com.example.langchain4j.store.IndexedPgVectorEmbeddingStore;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.chroma.ChromaEmbeddingStore;
+import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import dev.langchain4j.store.embedding.milvus.MilvusEmbeddingStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 联邦检索：问题只向量化一次，并行检索多个集合 (可以在不同类型的向量库中)，按相似度合并为全局 top-k
+ *
+ * 每个来源有独立的超时，超时的检索被取消、失败的检索被记录，本次只合并按时返回的来源，
+ * 单个来源变慢或不可用时检索延迟不超过其超时；某个来源积压的检索达到 maxConcurrentPerSource 时直接跳过该来源，
+ * 不会因为一个挂起的来源占满线程。多个来源返回相同文本时只保留得分最高的一条，
+ * 片段元数据 {@value #SOURCE_METADATA} 记录其来源名称。
+ * 各向量库的相似度都是余弦相似度映射到 [0, 1]，可以直接比较；所有来源须使用相同的向量化模型。
+ * 额外来源只读，由各自的部署导入文档 (不支持 local：其文件由所属进程独占读写)；
+ * 关键词索引 (混合检索) 只覆盖当前 profile 的集合。
+ */
+@Slf4j
+@Component
+public class FederatedSearch {
+
+    public static final String SOURCE_METADATA = "federation_source";
+
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+    private final AppProperties.Retriever.Federation config;
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    private final List<AutoCloseable> resources = new CopyOnWriteArrayList<>();
+
+    private volatile ExecutorService executor;
+
+    public FederatedSearch(AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.appProperties = appProperties;
+        this.meterRegistry = meterRegistry;
+        this.config = appProperties.getRetriever().getFederation();
+    }
+
+    /**
+     * 向量检索器：未启用联邦检索时为普通的单集合检索器，否则并行检索当前集合与 sources 中的各集合
+     *
+     * @param primaryStore   当前 profile 的向量库
+     * @param embeddingModel 问题向量化模型
+     * @param storeType      当前向量库类型，作为当前集合的来源名称
+     * @param maxResults     合并后返回的结果数 (每个来源也各取这么多)
+     */
+    public ContentRetriever retriever(EmbeddingStore<TextSegment> primaryStore, EmbeddingModel embeddingModel,
+                                      String storeType, int maxResults) {
+        double minScore = appProperties.getRetriever().getMinScore();
+        if (!config.isEnabled()) {
+            return EmbeddingStoreContentRetriever.builder()
+                    .embeddingStore(primaryStore)
+                    .embeddingModel(embeddingModel)
+                    .maxResults(maxResults)
+                    .minScore(minScore)
+                    .build();
+        }
+
+        List<Source> active = new ArrayList<>();
+        if (config.isIncludePrimary()) {
+            active.add(source(storeType, primaryStore, config.getTimeout()));
+        }
+        for (AppProperties.Retriever.Source source : config.getSources()) {
+            String name = source.getName() != null ? source.getName()
+                    : source.getStore() + "/" + source.getCollectionName();
+            try {
+                active.add(source(name, createStore(source),
+                        source.getTimeout() != null ? source.getTimeout() : config.getTimeout()));
+                log.info("联邦检索来源: {} ({} / {})", name, source.getStore(), source.getCollectionName());
+            } catch (RuntimeException e) {
+                // 启动时不可用的来源不阻止应用启动，本次运行不参与检索
+                log.error("联邦检索来源 {} 初始化失败，已跳过", name, e);
+            }
+        }
+        if (active.isEmpty()) {
+            throw new IllegalStateException("联邦检索没有可用的来源 (app.retriever.federation)");
+        }
+        sources.addAll(active);
+        return new FederatedContentRetriever(active, embeddingModel, maxResults, minScore, executor());
+    }
+
+    private Source source(String name, EmbeddingStore<TextSegment> store, Duration timeout) {
+        Timer timer = Timer.builder("rag.federated.search")
+                .description("联邦检索单个来源的检索耗时")
+                .tags("source", name)
+                .register(meterRegistry);
+        return new Source(name, store, timeout.toNanos(), new Semaphore(config.getMaxConcurrentPerSource()), timer,
+                failureCounter(name, "timeout"), failureCounter(name, "error"), failureCounter(name, "rejected"));
+    }
+
+    private Counter failureCounter(String source, String reason) {
+        return Counter.builder("rag.federated.failures")
+                .description("联邦检索来源超时、失败或因积压被跳过的次数")
+                .tags("source", source, "reason", reason)
+                .register(meterRegistry);
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "federated-search-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * 按来源的向量库类型创建只读的向量库，连接参数默认沿用 app.vector-store 下对应向量库的配置
+     */
+    private EmbeddingStore<TextSegment> createStore(AppProperties.Retriever.Source source) {
+        AppProperties.VectorStore stores = appProperties.getVectorStore();
+        int dimension = appProperties.getEmbedding().getDimension();
+        String collection = source.getCollectionName();
+        String url = source.getUrl();
+        return switch (source.getStore().trim().toLowerCase(Locale.ROOT)) {
+            case "pgvector" -> {
+                AppProperties.VectorStore.PgVector pgvector = stores.getPgvector();
+                HikariConfig hikari = new HikariConfig();
+                hikari.setJdbcUrl(url != null ? url : String.format("jdbc:postgresql://%s:%d/%s",
+                        pgvector.getHost(), pgvector.getPort(), pgvector.getDatabase()));
+                hikari.setUsername(pgvector.getUser());
+                hikari.setPassword(pgvector.getPassword());
+                hikari.setPoolName("federation-" + collection);
+                hikari.setMaximumPoolSize(pgvector.getPool().getMaxSize());
+                hikari.setMinimumIdle(0);
+                hikari.setConnectionTimeout(pgvector.getPool().getConnectionTimeout().toMillis());
+                hikari.setMaxLifetime(pgvector.getPool().getMaxLifetime().toMillis());
+                hikari.setMetricRegistry(meterRegistry);
+                HikariDataSource dataSource = new HikariDataSource(hikari);
+                resources.add(dataSource);
+                AppProperties.VectorStore.Hnsw hnsw = pgvector.getHnsw();
+                // 表与索引由维护该集合的部署管理，这里不执行 DDL
+                yield new IndexedPgVectorEmbeddingStore(dataSource, collection, dimension,
+                        new IndexedPgVectorEmbeddingStore.Options(
+                                IndexedPgVectorEmbeddingStore.indexType(pgvector.getIndex()),
+                                pgvector.getIvfflat().getLists(), pgvector.getIvfflat().getProbes(),
+                                hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch()),
+                        false);
+            }
+            case "milvus" -> MilvusEmbeddingStore.builder()
+                    .uri(url != null ? url : stores.getMilvus().getUrl())
+                    .collectionName(collection)
+                    .dimension(dimension)
+                    .build();
+            case "chroma" -> ChromaEmbeddingStore.builder()
+                    .baseUrl(url != null ? url : stores.getChroma().getUrl())
+                    .collectionName(collection)
+                    .build();
+            case "elasticsearch" -> ElasticsearchEmbeddingStore.builder()
+                    .serverUrl(url != null ? url : stores.getElasticsearch().getUrl())
+                    .indexName(collection)
+                    .build();
+            // LocalEmbeddingStore 打开时会补齐索引、重写日志与量化文件，且其他进程写入时无法安全并发读取内存映射文件
+            case "local" -> throw new IllegalArgumentException(
+                    "进程内向量库 (local) 不能作为联邦检索的额外来源，请使用 include-primary 检索当前 local 集合");
+            default -> throw new IllegalArgumentException("不支持的向量库类型: " + source.getStore());
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.shutdownNow();
+        }
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("联邦检索来源关闭失败", e);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(config.isEnabled(), sources.stream()
+                .map(source -> new SourceStats(source.name, (long) source.timer.count(),
+                        source.timer.mean(TimeUnit.MILLISECONDS),
+                        (long) source.timeouts.count(), (long) source.errors.count(),
+                        (long) source.rejected.count(), source.matches.sum()))
+                .toList());
+    }
+
+    /**
+     * @param enabled 是否启用联邦检索
+     * @param sources 各来源的检索统计
+     */
+    public record Stats(boolean enabled, List<SourceStats> sources) {
+    }
+
+    /**
+     * @param name        来源名称
+     * @param searches    按时完成的检索次数
+     * @param avgSearchMs 按时完成的检索平均耗时
+     * @param timeouts    超时次数
+     * @param errors      失败次数
+     * @param rejected    因积压被跳过的次数
+     * @param matches     返回的候选总数
+     */
+    public record SourceStats(String name, long searches, double avgSearchMs, long timeouts, long errors,
+                              long rejected, long matches) {
+    }
+
+    private static final class Source {
+        private final String name;
+        private final EmbeddingStore<TextSegment> store;
+        private final long timeoutNanos;
+        private final Semaphore inFlight;
+        private final Timer timer;
+        private final Counter timeouts;
+        private final Counter errors;
+        private final Counter rejected;
+        private final LongAdder matches = new LongAdder();
+
+        Source(String name, EmbeddingStore<TextSegment> store, long timeoutNanos, Semaphore inFlight, Timer timer,
+               Counter timeouts, Counter errors, Counter rejected) {
+            this.name = name;
+            this.store = store;
+            this.timeoutNanos = timeoutNanos;
+            this.inFlight = inFlight;
+            this.timer = timer;
+            this.timeouts = timeouts;
+            this.errors = errors;
+            this.rejected = rejected;
+        }
+    }
+
+    private static final class FederatedContentRetriever implements ContentRetriever {
+
+        private final List<Source> sources;
+        private final EmbeddingModel embeddingModel;
+        private final int maxResults;
+        private final double minScore;
+        private final ExecutorService executor;
+
+        FederatedContentRetriever(List<Source> sources, EmbeddingModel embeddingModel, int maxResults,
+                                  double minScore, ExecutorService executor) {
+            this.sources = sources;
+            this.embeddingModel = embeddingModel;
+            this.maxResults = maxResults;
+            this.minScore = minScore;
+            this.executor = executor;
+        }
+
+        @Override
+        public List<Content> retrieve(Query query) {
+            // 在调用线程上向量化，问题向量缓存与 RAG 耗时统计照常生效
+            Embedding embedding = embeddingModel.embed(query.text()).content();
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(embedding)
+                    .maxResults(maxResults)
+                    .minScore(minScore)
+                    .build();
+
+            long start = System.nanoTime();
+            List<Call> calls = new ArrayList<>(sources.size());
+            for (Source source : sources) {
+                if (!source.inFlight.tryAcquire()) {
+                    source.rejected.increment();
+                    calls.add(null);
+                    continue;
+                }
+                calls.add(new Call(source, request, executor));
+            }
+
+            List<Tagged> merged = new ArrayList<>();
+            for (int i = 0; i < sources.size(); i++) {
+                Source source = sources.get(i);
+                Call call = calls.get(i);
+                if (call == null) {
+                    continue;
+                }
+                try {
+                    long remaining = source.timeoutNanos - (System.nanoTime() - start);
+                    List<EmbeddingMatch<TextSegment>> matches = call.future.get(Math.max(0, remaining),
+                            TimeUnit.NANOSECONDS);
+                    source.matches.add(matches.size());
+                    for (EmbeddingMatch<TextSegment> match : matches) {
+                        if (match.embedded() != null) {
+                            merged.add(new Tagged(source.name, match));
+                        }
+                    }
+                } catch (TimeoutException e) {
+                    call.cancel();
+                    source.timeouts.increment();
+                    log.debug("联邦检索来源 {} 超时", source.name);
+                } catch (ExecutionException e) {
+                    source.errors.increment();
+                    log.warn("联邦检索来源 {} 检索失败: {}", source.name, e.getCause().toString());
+                } catch (InterruptedException e) {
+                    calls.stream().skip(i).filter(c -> c != null).forEach(Call::cancel);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            merged.sort(Comparator.comparingDouble((Tagged tagged) -> tagged.match.score()).reversed());
+            Set<String> seen = new HashSet<>();
+            List<Content> contents = new ArrayList<>(maxResults);
+            for (Tagged tagged : merged) {
+                TextSegment segment = tagged.match.embedded();
+                if (!seen.add(segment.text())) {
+                    continue;
+                }
+                contents.add(Content.from(TextSegment.from(segment.text(),
+                        segment.metadata().copy().put(SOURCE_METADATA, tagged.source))));
+                if (contents.size() == maxResults) {
+                    break;
+                }
+            }
+            return contents;
+        }
+    }
+
+    /**
+     * 提交到线程池的单个来源检索，持有该来源的一个并发许可
+     *
+     * 许可恰好释放一次：检索开始执行后由执行线程释放；取消时检索尚未开始执行 (线程池不会再调用它) 则由取消方释放
+     */
+    private static final class Call {
+
+        private final Source source;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final Future<List<EmbeddingMatch<TextSegment>>> future;
+
+        Call(Source source, EmbeddingSearchRequest request, ExecutorService executor) {
+            this.source = source;
+            Future<List<EmbeddingMatch<TextSegment>>> submitted;
+            try {
+                submitted = executor.submit(() -> {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return List.of();
+                    }
+                    try {
+                        long searchStart = System.nanoTime();
+                        List<EmbeddingMatch<TextSegment>> matches = source.store.search(request).matches();
+                        source.timer.record(System.nanoTime() - searchStart, TimeUnit.NANOSECONDS);
+                        return matches;
+                    } finally {
+                        source.inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                source.inFlight.release();
+                throw e;
+            }
+            this.future = submitted;
+        }
+
+        void cancel() {
+            future.cancel(true);
+            if (claimed.compareAndSet(false, true)) {
+                source.inFlight.release();
+            }
+        }
+    }
+
+    private record Tagged(String source, EmbeddingMatch<TextSegment> match) {
+    }
+}
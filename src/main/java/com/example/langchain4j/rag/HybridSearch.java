@@ -0,0 +1,170 @@
+package com.example.langchain4j.rag;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 混合检索：向量检索与 BM25 关键词检索 ({@link KeywordIndex}) 的结果按倒数排名融合 (RRF)
+ *
+ * 每个向量库 profile 一个关键词索引 ({directory}/{storeType}.json)，由导入任务随向量库同步增删；
+ * 检索时两路各取 candidates 个候选，片段得分为 Σ 1 / (rrfK + 排名)，按得分取前 maxResults 个。
+ * 向量检索受 minScore 过滤，关键词检索不设阈值，型号、专有名词等向量相似度不足的精确匹配也能被召回。
+ */
+@Slf4j
+@Component
+public class HybridSearch {
+
+    private final boolean enabled;
+    private final int maxResults;
+    private final int candidates;
+    private final int rrfK;
+    private final Path directory;
+    private final MeterRegistry meterRegistry;
+
+    private volatile KeywordIndex index;
+
+    public HybridSearch(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.Retriever retriever = appProperties.getRetriever();
+        AppProperties.Retriever.Hybrid config = retriever.getHybrid();
+        this.enabled = config.isEnabled();
+        this.maxResults = retriever.getMaxResults();
+        this.candidates = Math.max(config.getCandidates(), retriever.getMaxResults());
+        this.rrfK = config.getRrfK();
+        this.directory = Paths.get(config.getDirectory());
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 向量检索器应返回的结果数：启用混合检索时为融合候选数
+     */
+    public int vectorMaxResults() {
+        return enabled ? candidates : maxResults;
+    }
+
+    /**
+     * 指定向量库的关键词索引 (首次调用时从磁盘加载)，未启用混合检索时返回 null
+     */
+    public synchronized KeywordIndex index(String storeType) {
+        if (!enabled) {
+            return null;
+        }
+        if (index == null) {
+            index = KeywordIndex.open(directory.resolve(storeType + ".json"));
+        }
+        return index;
+    }
+
+    /**
+     * 包装向量检索器，融合关键词检索结果；未启用时原样返回
+     */
+    public ContentRetriever wrap(ContentRetriever vectorRetriever, String storeType) {
+        if (!enabled) {
+            return vectorRetriever;
+        }
+        Timer timer = Timer.builder("rag.keyword.search")
+                .description("BM25 关键词检索耗时")
+                .tags("store", storeType)
+                .register(meterRegistry);
+        return new HybridContentRetriever(vectorRetriever, index(storeType), timer);
+    }
+
+    @PreDestroy
+    public void close() {
+        KeywordIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.save();
+        } catch (IOException e) {
+            log.warn("关键词索引保存失败", e);
+        }
+    }
+
+    public Stats stats() {
+        KeywordIndex current = index;
+        KeywordIndex.Stats indexStats = current == null ? new KeywordIndex.Stats(0, 0, 0, 0) : current.stats();
+        return new Stats(enabled, candidates, rrfK, indexStats.segments(), indexStats.terms(),
+                indexStats.searches(), indexStats.avgSearchMs());
+    }
+
+    /**
+     * @param enabled     是否启用混合检索
+     * @param candidates  每路检索的候选数
+     * @param rrfK        RRF 平滑常数
+     * @param segments    关键词索引的片段数
+     * @param terms       关键词索引的词表大小
+     * @param searches    关键词检索次数
+     * @param avgSearchMs 关键词检索平均耗时
+     */
+    public record Stats(boolean enabled, int candidates, int rrfK, int segments, int terms, long searches,
+                        double avgSearchMs) {
+    }
+
+    private class HybridContentRetriever implements ContentRetriever {
+
+        private final ContentRetriever vectorRetriever;
+        private final KeywordIndex keywordIndex;
+        private final Timer timer;
+
+        HybridContentRetriever(ContentRetriever vectorRetriever, KeywordIndex keywordIndex, Timer timer) {
+            this.vectorRetriever = vectorRetriever;
+            this.keywordIndex = keywordIndex;
+            this.timer = timer;
+        }
+
+        @Override
+        public List<Content> retrieve(Query query) {
+            List<Content> vectorHits = vectorRetriever.retrieve(query);
+            long start = System.nanoTime();
+            List<KeywordIndex.Hit> keywordHits = keywordIndex.search(query.text(), candidates);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            // 以片段文本去重：各向量库返回的元数据类型可能与索引中的不完全一致
+            Map<String, Fused> fused = new LinkedHashMap<>();
+            for (int rank = 0; rank < vectorHits.size(); rank++) {
+                Content content = vectorHits.get(rank);
+                fused.computeIfAbsent(content.textSegment().text(), text -> new Fused(content))
+                        .score += 1.0 / (rrfK + rank + 1);
+            }
+            for (int rank = 0; rank < keywordHits.size(); rank++) {
+                KeywordIndex.Hit hit = keywordHits.get(rank);
+                fused.computeIfAbsent(hit.segment().text(), text -> new Fused(Content.from(hit.segment())))
+                        .score += 1.0 / (rrfK + rank + 1);
+            }
+
+            // 稳定排序：得分相同时向量检索结果在前
+            List<Fused> ranked = new ArrayList<>(fused.values());
+            ranked.sort((a, b) -> Double.compare(b.score, a.score));
+            return ranked.stream()
+                    .limit(maxResults)
+                    .map(result -> result.content)
+                    .toList();
+        }
+    }
+
+    private static final class Fused {
+        private final Content content;
+        private double score;
+
+        Fused(Content content) {
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.langchain4j.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内 BM25 倒排索引，补充向量检索对产品型号、专有名词等精确词的召回
+ *
+ * 分词: 文本经 NFKC 归一化并转小写；连续汉字切成相邻二元组 (单个汉字保留为一元)，
+ * 字母数字串整体作为一个词 (如 "x200-pro")，含 - _ . 连接符时再额外拆出各部分。
+ *
+ * 以片段在向量库中的 ID 为键，随导入增量增删；删除只标记文档槽位，
+ * 失效槽位超过有效文档数时重建倒排表。索引以 JSON 快照持久化，启动时读取并重新分词。
+ */
+@Slf4j
+public class KeywordIndex {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_COMPACT_SLOTS = 1024;
+
+    private final Path path;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 片段 ID -> 文档槽位
+     */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /**
+     * 文档槽位 -> 文档，已删除的槽位为 null
+     */
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private long totalLength;
+    private int deletedSlots;
+    private boolean dirty;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+
+    private KeywordIndex(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 打开索引，快照不存在或无法读取时返回空索引 (由导入任务对照清单补齐)
+     */
+    public static KeywordIndex open(Path path) {
+        KeywordIndex index = new KeywordIndex(path);
+        if (!Files.exists(path)) {
+            return index;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Snapshot snapshot = MAPPER.readValue(path.toFile(), Snapshot.class);
+            for (StoredSegment stored : snapshot.segments()) {
+                index.addLocked(stored.id(), TextSegment.from(stored.text(), Metadata.from(stored.metadata())));
+            }
+            log.info("关键词索引已加载: {} 个片段，{} 个词，耗时 {}ms", index.slots.size(), index.postings.size(),
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("关键词索引读取失败，将重新建立: {}", path, e);
+            index = new KeywordIndex(path);
+        }
+        return index;
+    }
+
+    /**
+     * 分词，结果保留重复词 (用于计算词频)
+     */
+    public static List<String> tokenize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder han = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+                flushWord(word, tokens);
+                han.appendCodePoint(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushHan(han, tokens);
+                word.appendCodePoint(codePoint);
+            } else if (isConnector(codePoint) && word.length() > 0 && next < normalized.length()
+                    && Character.isLetterOrDigit(normalized.codePointAt(next))
+                    && Character.UnicodeScript.of(normalized.codePointAt(next)) != Character.UnicodeScript.HAN) {
+                // 型号中的连接符: x200-pro、v1.2
+                word.appendCodePoint(codePoint);
+            } else {
+                flushHan(han, tokens);
+                flushWord(word, tokens);
+            }
+            i = next;
+        }
+        flushHan(han, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static boolean isConnector(int codePoint) {
+        return codePoint == '-' || codePoint == '_' || codePoint == '.';
+    }
+
+    private static void flushHan(StringBuilder han, List<String> tokens) {
+        int length = han.codePointCount(0, han.length());
+        if (length == 1) {
+            tokens.add(han.toString());
+        } else if (length > 1) {
+            int[] codePoints = han.codePoints().toArray();
+            for (int i = 0; i + 1 < codePoints.length; i++) {
+                tokens.add(new String(codePoints, i, 2));
+            }
+        }
+        han.setLength(0);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() == 0) {
+            return;
+        }
+        String token = word.toString();
+        tokens.add(token);
+        if (token.indexOf('-') >= 0 || token.indexOf('_') >= 0 || token.indexOf('.') >= 0) {
+            for (String part : token.split("[-_.]")) {
+                if (!part.isEmpty()) {
+                    tokens.add(part);
+                }
+            }
+        }
+        word.setLength(0);
+    }
+
+    /**
+     * 写入片段，已存在的 ID 会被替换
+     */
+    public void add(List<String> ids, List<TextSegment> segments) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                addLocked(ids.get(i), segments.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(String id, TextSegment segment) {
+        removeLocked(id);
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> tokens = tokenize(segment.text());
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        String[] terms = frequencies.keySet().toArray(String[]::new);
+        int[] freqs = new int[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            freqs[t] = frequencies.get(terms[t]);
+        }
+        Doc doc = new Doc(id, segment, tokens.size(), terms, freqs);
+        int slot = docs.size();
+        docs.add(doc);
+        slots.put(id, slot);
+        index(slot, doc);
+        totalLength += doc.length();
+        dirty = true;
+    }
+
+    private void index(int slot, Doc doc) {
+        for (int t = 0; t < doc.terms().length; t++) {
+            postings.computeIfAbsent(doc.terms()[t], term -> new Postings()).add(slot, doc.freqs()[t]);
+        }
+    }
+
+    public void remove(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::removeLocked);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 只保留给定的片段 ID，返回删除的片段数
+     */
+    public int retainAll(Set<String> ids) {
+        lock.writeLock().lock();
+        try {
+            List<String> stale = slots.keySet().stream().filter(id -> !ids.contains(id)).toList();
+            stale.forEach(this::removeLocked);
+            compactIfNeeded();
+            return stale.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        Doc doc = docs.set(slot, null);
+        for (String term : doc.terms()) {
+            Postings list = postings.get(term);
+            if (--list.live == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= doc.length();
+        deletedSlots++;
+        dirty = true;
+    }
+
+    /**
+     * 失效槽位多于有效文档时重新编号并重建倒排表
+     */
+    private void compactIfNeeded() {
+        if (deletedSlots < MIN_COMPACT_SLOTS || deletedSlots < slots.size()) {
+            return;
+        }
+        List<Doc> live = docs.stream().filter(doc -> doc != null).toList();
+        docs.clear();
+        slots.clear();
+        postings.clear();
+        for (Doc doc : live) {
+            int slot = docs.size();
+            docs.add(doc);
+            slots.put(doc.id(), slot);
+            index(slot, doc);
+        }
+        deletedSlots = 0;
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return slots.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * BM25 检索，按得分从高到低返回最多 maxResults 个片段
+     */
+    public List<Hit> search(String query, int maxResults) {
+        long start = System.nanoTime();
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            int documentCount = slots.size();
+            if (documentCount == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            float[] scores = new float[docs.size()];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - list.live + 0.5) / (list.live + 0.5));
+                for (int p = 0; p < list.size; p++) {
+                    int slot = list.slots[p];
+                    Doc doc = docs.get(slot);
+                    if (doc == null) {
+                        continue;
+                    }
+                    int tf = list.freqs[p];
+                    double norm = K1 * (1 - B + B * doc.length() / averageLength);
+                    if (scores[slot] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = slot;
+                    }
+                    scores[slot] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>((a, b) -> Double.compare(a.score(), b.score()));
+            for (int t = 0; t < touchedCount; t++) {
+                int slot = touched[t];
+                if (top.size() < maxResults) {
+                    Doc doc = docs.get(slot);
+                    top.add(new Hit(doc.id(), doc.segment(), scores[slot]));
+                } else if (scores[slot] > top.peek().score()) {
+                    Doc doc = docs.get(slot);
+                    top.poll();
+                    top.add(new Hit(doc.id(), doc.segment(), scores[slot]));
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+            searches.incrementAndGet();
+            searchNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 有变化时写入快照，先写临时文件再原子替换
+     */
+    public void save() throws IOException {
+        Snapshot snapshot;
+        lock.readLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            List<StoredSegment> segments = new ArrayList<>(slots.size());
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    segments.add(new StoredSegment(doc.id(), doc.segment().text(), doc.segment().metadata().toMap()));
+                }
+            }
+            snapshot = new Snapshot(segments);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), snapshot);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lock.writeLock().lock();
+        try {
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            long count = searches.get();
+            return new Stats(slots.size(), postings.size(), count,
+                    count == 0 ? 0 : searchNanos.get() / 1e6 / count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id      片段在向量库中的 ID
+     * @param segment 片段
+     * @param score   BM25 得分
+     */
+    public record Hit(String id, TextSegment segment, double score) {
+    }
+
+    /**
+     * @param segments    索引的片段数
+     * @param terms       词表大小
+     * @param searches    检索次数
+     * @param avgSearchMs 平均检索耗时
+     */
+    public record Stats(int segments, int terms, long searches, double avgSearchMs) {
+    }
+
+    private record Doc(String id, TextSegment segment, int length, String[] terms, int[] freqs) {
+    }
+
+    private record StoredSegment(String id, String text, Map<String, Object> metadata) {
+    }
+
+    private record Snapshot(List<StoredSegment> segments) {
+    }
+
+    /**
+     * 词的倒排表，live 为其中未删除的文档数 (即文档频率)
+     */
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+        private int live;
+
+        void add(int slot, int freq) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            slots[size] = slot;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.langchain4j.rag;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 问题向量缓存
+ *
+ * 检索链路中同一问题 (忽略全角半角、空白与句末标点差异) 只向量化一次，向量化使用原始问题文本。
+ * 缓存条目数受 maxSize 限制 (LRU 淘汰)，写入超过 ttl 的条目失效。
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.。…~]+$");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern HAN_SPACING = Pattern.compile("(?<=\\p{IsHan})\\s+|\\s+(?=\\p{IsHan})");
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    /**
+     * accessOrder = true: 头部为最久未访问的条目
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong missNanos = new AtomicLong();
+
+    public QueryEmbeddingCache(AppProperties appProperties) {
+        AppProperties.Retriever config = appProperties.getRetriever();
+        this.maxSize = config.getQueryCacheSize();
+        this.ttlMillis = config.getQueryCacheTtl().toMillis();
+    }
+
+    /**
+     * 归一化问题文本作为缓存键：NFKC (全角字符转半角)、合并空白、去掉汉字两侧的空白与句末的问号句号等；
+     * 大小写与句中标点保持不变 ("C#" 与 "C"、"3.5" 与 "3 5" 是不同的问题)
+     */
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        normalized = TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+        normalized = HAN_SPACING.matcher(normalized).replaceAll("");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * 为检索链路包装向量化模型：以归一化后的文本查缓存，未命中时使用原始文本向量化并写入缓存
+     */
+    public EmbeddingModel wrap(EmbeddingModel delegate) {
+        return new CachedEmbeddingModel(delegate);
+    }
+
+    private Embedding get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.createdAt >= ttlMillis) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return entry.embedding;
+        }
+    }
+
+    private void put(String key, Embedding embedding) {
+        synchronized (entries) {
+            entries.put(key, new Entry(embedding, System.currentTimeMillis()));
+            Iterator<String> it = entries.keySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        double avgMissMs = missCount == 0 ? 0 : missNanos.get() / 1_000_000.0 / missCount;
+        return new Stats(size, hitCount, missCount, evictions.get(),
+                total == 0 ? 0 : (double) hitCount / total, avgMissMs, (long) (hitCount * avgMissMs));
+    }
+
+    /**
+     * @param size          当前缓存条目数
+     * @param hits          命中次数
+     * @param misses        未命中次数
+     * @param evictions     淘汰 (容量或过期) 次数
+     * @param hitRatio      命中率
+     * @param avgEmbedMs    未命中时向量化的平均耗时
+     * @param savedMs       估算节省的向量化耗时 (命中次数 × 平均耗时)
+     */
+    public record Stats(int size, long hits, long misses, long evictions, double hitRatio,
+                        double avgEmbedMs, long savedMs) {
+    }
+
+    private record Entry(Embedding embedding, long createdAt) {
+    }
+
+    private class CachedEmbeddingModel implements EmbeddingModel {
+
+        private final EmbeddingModel delegate;
+
+        private CachedEmbeddingModel(EmbeddingModel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+            for (TextSegment segment : textSegments) {
+                String key = normalize(segment.text());
+                Embedding embedding = get(key);
+                if (embedding != null) {
+                    hits.incrementAndGet();
+                } else {
+                    misses.incrementAndGet();
+                    long start = System.nanoTime();
+                    embedding = delegate.embed(segment.text()).content();
+                    missNanos.addAndGet(System.nanoTime() - start);
+                    put(key, embedding);
+                }
+                embeddings.add(embedding);
+            }
+            return Response.from(embeddings);
+        }
+
+        @Override
+        public int dimension() {
+            return delegate.dimension();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.langchain4j.rag;
+
+/**
+ * RAG 单次请求的分阶段耗时记录
+ *
+ * AiServices 在调用线程中同步完成检索，因此用 ThreadLocal 在
+ * 调用方与检索链路 (TimedEmbeddingModel / TimedContentRetriever) 之间传递
+ */
+public class RagTimings {
+
+    private static final ThreadLocal<RagTimings> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 当前线程累计的问题向量化耗时，TimedContentRetriever 据此从检索总耗时中扣除向量化部分
+     */
+    private static final ThreadLocal<long[]> THREAD_EMBED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private long embedNanos;
+    private long retrieveNanos;
+    private int contextTokens = -1;
+    private int savedTokens;
+
+    /**
+     * 开始记录当前线程上的检索耗时
+     */
+    public static RagTimings begin() {
+        RagTimings timings = new RagTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * 结束记录，必须与 begin() 成对调用
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    static void recordEmbed(long nanos) {
+        THREAD_EMBED_NANOS.get()[0] += nanos;
+        RagTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.embedNanos += nanos;
+        }
+    }
+
+    static long threadEmbedNanos() {
+        return THREAD_EMBED_NANOS.get()[0];
+    }
+
+    static void recordRetrieve(long nanos) {
+        RagTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.retrieveNanos += nanos;
+        }
+    }
+
+    static void recordContext(int injectedTokens, int saved) {
+        RagTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.contextTokens = injectedTokens;
+            timings.savedTokens = saved;
+        }
+    }
+
+    /**
+     * 问题向量化耗时 (ms)
+     */
+    public long getEmbedMs() {
+        return embedNanos / 1_000_000;
+    }
+
+    /**
+     * 向量检索耗时 (ms)，即检索总耗时扣除向量化部分
+     */
+    public long getSearchMs() {
+        return Math.max(0, retrieveNanos - embedNanos) / 1_000_000;
+    }
+
+    /**
+     * 注入提示词的上下文 token 数 (估算)，未经过上下文组装时为 -1
+     */
+    public int getContextTokens() {
+        return contextTokens;
+    }
+
+    /**
+     * 上下文组装节省的 token 数 (估算)
+     */
+    public int getSavedTokens() {
+        return savedTokens;
+    }
+}
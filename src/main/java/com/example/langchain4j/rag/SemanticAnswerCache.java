@@ -0,0 +1,224 @@
+package com.example.langchain4j.rag;
+
+import com.example.langchain4j.config.AppProperties;
+import com.example.langchain4j.memory.SessionChatMemoryProvider;
+import com.example.langchain4j.service.KnowledgeBaseService;
+import com.example.langchain4j.store.VectorMath;
+import com.example.langchain4j.tools.CorpusChangedEvent;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 语义答案缓存
+ *
+ * 位于 {@link KnowledgeBaseService#chat} 之前：问题向量与已缓存问题的余弦相似度达到阈值时直接返回缓存的答案，
+ * 不再调用大模型。只对会话的第一轮提问生效 (追问依赖上下文，不能复用其他会话的答案)，
+ * 命中时仍将问答写入会话记忆，后续追问不受影响。
+ * 条目数受 maxEntries 限制 (LRU 淘汰)，写入超过 ttl 的条目失效，知识库内容变化时全部失效。
+ * 相似度扫描在锁外对条目快照进行 (写入时复制)，锁内只做精确匹配与 LRU 更新。
+ */
+@Slf4j
+@Component
+public class SemanticAnswerCache {
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final EmbeddingModel embeddingModel;
+    private final SessionChatMemoryProvider chatMemoryProvider;
+
+    /**
+     * 问题原文 (去掉首尾空白) -> 条目，accessOrder = true: 头部为最久未访问的条目
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * entries 的只读快照，每次增删条目后在锁内替换，供锁外的相似度扫描使用
+     */
+    private volatile Entry[] snapshot = new Entry[0];
+
+    /**
+     * 每次失效时递增，避免失效前开始生成的答案在失效后写入缓存
+     */
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SemanticAnswerCache(AppProperties appProperties, EmbeddingModel embeddingModel,
+                               QueryEmbeddingCache queryEmbeddingCache,
+                               SessionChatMemoryProvider chatMemoryProvider) {
+        AppProperties.AnswerCache config = appProperties.getAnswerCache();
+        this.enabled = config.isEnabled();
+        this.similarityThreshold = config.getSimilarityThreshold();
+        this.maxEntries = config.getMaxEntries();
+        this.ttlMillis = config.getTtl().toMillis();
+        // 与检索链路共用问题向量缓存，同一问题只向量化一次
+        this.embeddingModel = queryEmbeddingCache.wrap(embeddingModel);
+        this.chatMemoryProvider = chatMemoryProvider;
+    }
+
+    /**
+     * 为知识库服务包装语义答案缓存
+     */
+    public KnowledgeBaseService wrap(KnowledgeBaseService delegate) {
+        return enabled ? new CachedKnowledgeBaseService(delegate) : delegate;
+    }
+
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+            entries.clear();
+            snapshot = new Entry[0];
+            generation++;
+        }
+        invalidations.incrementAndGet();
+        log.info("[{}] 知识库内容变化 (新增/修改 {} 个，删除 {} 个文件)，清空 {} 条缓存答案",
+                event.storeType(), event.changedFiles(), event.removedFiles(), size);
+    }
+
+    private Lookup lookup(String key, float[] question) {
+        long now = System.currentTimeMillis();
+        Entry[] candidates;
+        long expectedGeneration;
+        synchronized (entries) {
+            Entry exact = entries.get(key);
+            if (exact != null && now - exact.createdAt() < ttlMillis) {
+                return new Lookup(exact.answer(), generation);
+            }
+            candidates = snapshot;
+            expectedGeneration = generation;
+        }
+
+        Entry best = null;
+        double bestScore = similarityThreshold;
+        List<Entry> expired = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (now - entry.createdAt() >= ttlMillis) {
+                expired.add(entry);
+                continue;
+            }
+            double score = VectorMath.dot(question, entry.question());
+            if (score >= bestScore) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+
+        synchronized (entries) {
+            boolean removed = false;
+            for (Entry entry : expired) {
+                if (entries.remove(entry.key(), entry)) {
+                    evictions.incrementAndGet();
+                    removed = true;
+                }
+            }
+            if (removed) {
+                snapshot = entries.values().toArray(new Entry[0]);
+            }
+            // 扫描期间条目可能已被淘汰或缓存已清空；get 同时刷新 LRU 顺序
+            if (best != null && entries.get(best.key()) != best) {
+                best = null;
+            }
+            return new Lookup(best == null ? null : best.answer(), expectedGeneration);
+        }
+    }
+
+    private void put(String key, float[] question, String answer, long expectedGeneration) {
+        synchronized (entries) {
+            if (generation != expectedGeneration) {
+                return;
+            }
+            entries.put(key, new Entry(key, question, answer, System.currentTimeMillis()));
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+            snapshot = entries.values().toArray(new Entry[0]);
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return new Stats(enabled, size, hitCount, misses.get(), bypassed.get(), evictions.get(),
+                invalidations.get(), total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    /**
+     * @param enabled       是否启用
+     * @param size          当前缓存答案数
+     * @param hits          命中次数 (未调用大模型)
+     * @param misses        未命中次数
+     * @param bypassed      非首轮提问、未查询缓存的次数
+     * @param evictions     淘汰 (容量或过期) 次数
+     * @param invalidations 因知识库变化清空缓存的次数
+     * @param hitRatio      命中率 (不含 bypassed)
+     */
+    public record Stats(boolean enabled, int size, long hits, long misses, long bypassed, long evictions,
+                        long invalidations, double hitRatio) {
+    }
+
+    private record Entry(String key, float[] question, String answer, long createdAt) {
+    }
+
+    private record Lookup(String answer, long generation) {
+    }
+
+    private class CachedKnowledgeBaseService implements KnowledgeBaseService {
+
+        private final KnowledgeBaseService delegate;
+
+        private CachedKnowledgeBaseService(KnowledgeBaseService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String chat(String sessionId, String userMessage) {
+            ChatMemory memory = chatMemoryProvider.get(sessionId);
+            if (!memory.messages().isEmpty()) {
+                bypassed.incrementAndGet();
+                return delegate.chat(sessionId, userMessage);
+            }
+
+            String key = userMessage.strip();
+            float[] question = VectorMath.normalize(embeddingModel.embed(userMessage).content().vector());
+            Lookup lookup = lookup(key, question);
+            if (lookup.answer() != null) {
+                hits.incrementAndGet();
+                memory.add(UserMessage.from(userMessage));
+                memory.add(AiMessage.from(lookup.answer()));
+                return lookup.answer();
+            }
+
+            misses.incrementAndGet();
+            String answer = delegate.chat(sessionId, userMessage);
+            put(key, question, answer, lookup.generation());
+            return answer;
+        }
+    }
+}
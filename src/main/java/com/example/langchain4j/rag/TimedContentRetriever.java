@@ -0,0 +1,43 @@
+package com.example.langchain4j.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录检索总耗时的 ContentRetriever 包装
+ *
+ * 向量检索耗时 (检索总耗时扣除问题向量化部分) 按向量库类型记录到 rag.vector.search 指标
+ */
+public class TimedContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+    private final Timer searchTimer;
+
+    public TimedContentRetriever(ContentRetriever delegate, MeterRegistry registry, String storeType) {
+        this.delegate = delegate;
+        this.searchTimer = Timer.builder("rag.vector.search")
+                .description("向量检索耗时 (不含问题向量化)")
+                .tags("store", storeType)
+                .register(registry);
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        long start = System.nanoTime();
+        long embedBefore = RagTimings.threadEmbedNanos();
+        try {
+            return delegate.retrieve(query);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RagTimings.recordRetrieve(elapsed);
+            long embed = RagTimings.threadEmbedNanos() - embedBefore;
+            searchTimer.record(Math.max(0, elapsed - embed), TimeUnit.NANOSECONDS);
+        }
+    }
+}
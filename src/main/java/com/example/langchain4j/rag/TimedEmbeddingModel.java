@@ -0,0 +1,45 @@
+package com.example.langchain4j.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录问题向量化耗时的 EmbeddingModel 包装，仅用于检索链路 (含缓存命中，指标 rag.query.embedding)
+ */
+public class TimedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final Timer embedTimer;
+
+    public TimedEmbeddingModel(EmbeddingModel delegate, MeterRegistry registry, String storeType) {
+        this.delegate = delegate;
+        this.embedTimer = Timer.builder("rag.query.embedding")
+                .description("检索时的问题向量化耗时")
+                .tags("store", storeType)
+                .register(registry);
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        long start = System.nanoTime();
+        try {
+            return delegate.embedAll(textSegments);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RagTimings.recordEmbed(elapsed);
+            embedTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
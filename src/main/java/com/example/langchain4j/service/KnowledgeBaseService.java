@@ -1,5 +1,8 @@
 package com.example.langchain4j.service;
 
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+
 /**
  * 知识库服务接口
  * 
@@ -9,8 +12,9 @@ public interface KnowledgeBaseService {
     /**
      * 基于知识库进行对话
      * 
+     * @param sessionId   会话 ID，不同会话的对话记忆相互隔离
      * @param userMessage 用户消息
      * @return AI 响应
      */
-    String chat(String userMessage);
+    String chat(@MemoryId String sessionId, @UserMessage String userMessage);
 }
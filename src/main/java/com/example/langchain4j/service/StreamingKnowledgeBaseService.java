@@ -0,0 +1,23 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+
+/**
+ * 流式知识库服务接口
+ *
+ * 与 KnowledgeBaseService 相同的 RAG 流程，但以 TokenStream 逐个返回 token
+ */
+public interface StreamingKnowledgeBaseService {
+    /**
+     * 基于知识库进行流式对话
+     *
+     * 检索在调用时同步完成，start() 后先回调 onRetrieved，再逐个回调 onNext
+     *
+     * @param sessionId   会话 ID，与 KnowledgeBaseService 共享同一份会话记忆
+     * @param userMessage 用户消息
+     * @return token 流
+     */
+    TokenStream chat(@MemoryId String sessionId, @UserMessage String userMessage);
+}
@@ -0,0 +1,495 @@
+package com.example.langchain4j.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * HNSW (Hierarchical Navigable Small World) 近似最近邻索引
+ *
+ * 节点即 {@link MappedVectorFile} 中的行号，向量需已归一化 (内积即余弦相似度)。
+ * 第 0 层邻接表定长存放在内存映射文件 hnsw.links 中，每行为 [层数+1, 邻居数, 邻居...]，
+ * 启动时直接映射无需解析；上层节点很少，保存在 hnsw.meta 中。
+ *
+ * 插入可并发执行：每个节点的邻接表由分段锁保护，产生新的最高层时持有全局锁。
+ * hnsw.meta 仅在正常关闭时写入，打开后即删除；异常退出后找不到 meta，由调用方重建索引。
+ */
+@Slf4j
+public class HnswIndex implements AutoCloseable {
+
+    /**
+     * @param m              每层邻居数上限 (第 0 层为 2M)
+     * @param efConstruction 构建时的候选集大小
+     * @param efSearch       检索时的候选集大小
+     */
+    public record Options(int m, int efConstruction, int efSearch) {
+    }
+
+    private static final int META_MAGIC = 0x484E5357;
+    private static final int LOCK_STRIPES = 4096;
+    private static final int[] EMPTY = new int[0];
+
+    private final MappedVectorFile vectors;
+    private final Options options;
+    private final int maxNeighbors0;
+    private final double levelMultiplier;
+    private final Path metaPath;
+    private final LinkFile links;
+    private final boolean loaded;
+
+    /**
+     * 上层邻接表：节点 -> [层 - 1][邻居数, 邻居...]
+     */
+    private final Map<Integer, int[][]> upper = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ReentrantLock globalLock = new ReentrantLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile int entryPoint = -1;
+    private volatile int maxLevel = -1;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    HnswIndex(Path directory, MappedVectorFile vectors, Options options) throws IOException {
+        this.vectors = vectors;
+        this.options = options;
+        this.maxNeighbors0 = options.m() * 2;
+        this.levelMultiplier = 1 / Math.log(Math.max(2, options.m()));
+        this.metaPath = directory.resolve("hnsw.meta");
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(vectors.dimension()));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        boolean metaLoaded = Files.exists(metaPath) && loadMeta();
+        if (!metaLoaded) {
+            upper.clear();
+            Files.deleteIfExists(directory.resolve("hnsw.links"));
+        }
+        this.links = new LinkFile(directory.resolve("hnsw.links"), 2 + maxNeighbors0);
+        this.loaded = metaLoaded;
+        // 运行期间索引与 meta 不一致，正常关闭时重新写入
+        Files.deleteIfExists(metaPath);
+    }
+
+    /**
+     * 是否从磁盘加载了完整的索引 (否则为空索引，需要调用方插入全部节点)
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    Options options() {
+        return options;
+    }
+
+    boolean contains(int node) {
+        return level(node) >= 0;
+    }
+
+    /**
+     * 清空索引
+     */
+    void clear() throws IOException {
+        globalLock.lock();
+        try {
+            links.reset();
+            upper.clear();
+            size.set(0);
+            entryPoint = -1;
+            maxLevel = -1;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 插入节点 (向量需已写入)，可由多个线程并发调用
+     */
+    void insert(int node) throws IOException {
+        float[] query = vectors.read(node);
+        int level = randomLevel();
+        links.ensureCapacity(node + 1L);
+        synchronized (lock(node)) {
+            IntBuffer row = links.chunk(node);
+            int offset = links.offset(node);
+            row.put(offset, level + 1);
+            row.put(offset + 1, 0);
+            if (level > 0) {
+                int[][] lists = new int[level][];
+                for (int l = 0; l < level; l++) {
+                    lists[l] = new int[1 + options.m()];
+                }
+                upper.put(node, lists);
+            }
+        }
+
+        globalLock.lock();
+        int entry = entryPoint;
+        int top = maxLevel;
+        if (entry < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            size.incrementAndGet();
+            globalLock.unlock();
+            return;
+        }
+        // 产生新的最高层时持有全局锁直到完成，避免其他线程从尚未连通的入口进入
+        boolean newTop = level > top;
+        if (!newTop) {
+            globalLock.unlock();
+        }
+        try {
+            Scratch s = scratch.get();
+            ScoredNode current = new ScoredNode(entry, vectors.dot(entry, query, s.buffer));
+            for (int l = top; l > level; l--) {
+                current = greedy(query, current, l, s);
+            }
+            for (int l = Math.min(level, top); l >= 0; l--) {
+                List<ScoredNode> candidates = sortedDescending(searchLayer(query, current, options.efConstruction(), l, s));
+                int[] selected = selectNeighbors(candidates, options.m(), s);
+                synchronized (lock(node)) {
+                    setNeighbors(node, l, selected, selected.length);
+                }
+                int capacity = l == 0 ? maxNeighbors0 : options.m();
+                for (int neighbor : selected) {
+                    link(neighbor, node, l, capacity, s);
+                }
+                current = candidates.get(0);
+            }
+            if (newTop) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+            size.incrementAndGet();
+        } finally {
+            if (newTop) {
+                globalLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 近似检索
+     *
+     * @param query  归一化后的查询向量
+     * @param k      返回数量
+     * @param accept 节点过滤条件 (例如排除已删除的节点)，被排除的节点仍参与图遍历
+     * @return 按相似度降序排列的结果
+     */
+    List<ScoredNode> search(float[] query, int k, IntPredicate accept) {
+        int entry = entryPoint;
+        if (entry < 0) {
+            return List.of();
+        }
+        Scratch s = scratch.get();
+        ScoredNode current = new ScoredNode(entry, vectors.dot(entry, query, s.buffer));
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedy(query, current, l, s);
+        }
+        return sortedDescending(searchLayer(query, current, Math.max(options.efSearch(), k), 0, s)).stream()
+                .filter(candidate -> accept.test(candidate.node()))
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() throws IOException {
+        globalLock.lock();
+        try {
+            links.close();
+            saveMeta();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    private ScoredNode greedy(float[] query, ScoredNode start, int level, Scratch s) {
+        ScoredNode current = start;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : neighbors(current.node(), level)) {
+                float score = vectors.dot(neighbor, query, s.buffer);
+                if (score > current.score()) {
+                    current = new ScoredNode(neighbor, score);
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层从 entry 出发做最佳优先搜索，返回最相似的 ef 个节点 (小顶堆)
+     */
+    private PriorityQueue<ScoredNode> searchLayer(float[] query, ScoredNode entry, int ef, int level, Scratch s) {
+        s.startVisit();
+        s.visit(entry.node());
+        PriorityQueue<ScoredNode> candidates = new PriorityQueue<>(Comparator.comparingDouble(ScoredNode::score).reversed());
+        PriorityQueue<ScoredNode> results = new PriorityQueue<>(Comparator.comparingDouble(ScoredNode::score));
+        candidates.add(entry);
+        results.add(entry);
+        while (!candidates.isEmpty()) {
+            ScoredNode candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            for (int neighbor : neighbors(candidate.node(), level)) {
+                if (!s.visit(neighbor)) {
+                    continue;
+                }
+                float score = vectors.dot(neighbor, query, s.buffer);
+                if (results.size() < ef || score > results.peek().score()) {
+                    ScoredNode next = new ScoredNode(neighbor, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式邻居选择：候选与已选邻居的相似度高于与基准节点的相似度时舍弃，保留不同方向的邻居
+     *
+     * @param candidates 按与基准节点相似度降序排列的候选
+     */
+    private int[] selectNeighbors(List<ScoredNode> candidates, int max, Scratch s) {
+        List<Integer> selected = new ArrayList<>(max);
+        for (ScoredNode candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            vectors.chunk(candidate.node()).get(vectors.offset(candidate.node()), s.candidate);
+            boolean diverse = true;
+            for (int chosen : selected) {
+                if (vectors.dot(chosen, s.candidate, s.buffer) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate.node());
+            }
+        }
+        return selected.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 为 neighbor 添加指向 node 的反向连接，超出上限时重新选择邻居
+     */
+    private void link(int neighbor, int node, int level, int capacity, Scratch s) {
+        synchronized (lock(neighbor)) {
+            int[] current = neighborsLocked(neighbor, level);
+            if (current.length < capacity) {
+                int[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = node;
+                setNeighbors(neighbor, level, grown, grown.length);
+                return;
+            }
+            vectors.chunk(neighbor).get(vectors.offset(neighbor), s.base);
+            List<ScoredNode> candidates = new ArrayList<>(current.length + 1);
+            for (int existing : current) {
+                candidates.add(new ScoredNode(existing, vectors.dot(existing, s.base, s.buffer)));
+            }
+            candidates.add(new ScoredNode(node, vectors.dot(node, s.base, s.buffer)));
+            candidates.sort(Comparator.comparingDouble(ScoredNode::score).reversed());
+            int[] selected = selectNeighbors(candidates, capacity, s);
+            setNeighbors(neighbor, level, selected, selected.length);
+        }
+    }
+
+    private int[] neighbors(int node, int level) {
+        synchronized (lock(node)) {
+            return neighborsLocked(node, level);
+        }
+    }
+
+    private int[] neighborsLocked(int node, int level) {
+        if (level == 0) {
+            IntBuffer row = links.chunk(node);
+            int offset = links.offset(node);
+            int count = row.get(offset + 1);
+            int[] result = new int[count];
+            row.get(offset + 2, result, 0, count);
+            return result;
+        }
+        int[][] lists = upper.get(node);
+        if (lists == null || level > lists.length) {
+            return EMPTY;
+        }
+        int[] list = lists[level - 1];
+        return Arrays.copyOfRange(list, 1, 1 + list[0]);
+    }
+
+    private void setNeighbors(int node, int level, int[] neighbors, int count) {
+        if (level == 0) {
+            IntBuffer row = links.chunk(node);
+            int offset = links.offset(node);
+            row.put(offset + 2, neighbors, 0, count);
+            row.put(offset + 1, count);
+            return;
+        }
+        int[] list = upper.get(node)[level - 1];
+        System.arraycopy(neighbors, 0, list, 1, count);
+        list[0] = count;
+    }
+
+    private int level(int node) {
+        if (node >= links.capacity()) {
+            return -1;
+        }
+        synchronized (lock(node)) {
+            return links.chunk(node).get(links.offset(node)) - 1;
+        }
+    }
+
+    private int randomLevel() {
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(random) * levelMultiplier);
+    }
+
+    private Object lock(int node) {
+        return locks[node & (LOCK_STRIPES - 1)];
+    }
+
+    private static List<ScoredNode> sortedDescending(PriorityQueue<ScoredNode> queue) {
+        List<ScoredNode> list = new ArrayList<>(queue);
+        list.sort(Comparator.comparingDouble(ScoredNode::score).reversed());
+        return list;
+    }
+
+    private boolean loadMeta() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(metaPath)))) {
+            if (in.readInt() != META_MAGIC || in.readInt() != options.m()) {
+                log.info("HNSW 索引参数变化，重建索引");
+                return false;
+            }
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            size.set(in.readInt());
+            int upperNodes = in.readInt();
+            for (int i = 0; i < upperNodes; i++) {
+                int node = in.readInt();
+                int[][] lists = new int[in.readInt()][];
+                for (int l = 0; l < lists.length; l++) {
+                    lists[l] = new int[1 + options.m()];
+                    int count = in.readInt();
+                    lists[l][0] = count;
+                    for (int j = 1; j <= count; j++) {
+                        lists[l][j] = in.readInt();
+                    }
+                }
+                upper.put(node, lists);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("读取 HNSW 索引失败，重建索引: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void saveMeta() throws IOException {
+        Path tmp = metaPath.resolveSibling(metaPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(META_MAGIC);
+            out.writeInt(options.m());
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            out.writeInt(size.get());
+            out.writeInt(upper.size());
+            for (Map.Entry<Integer, int[][]> entry : upper.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int[] list : entry.getValue()) {
+                    out.writeInt(list[0]);
+                    for (int j = 1; j <= list[0]; j++) {
+                        out.writeInt(list[j]);
+                    }
+                }
+            }
+        }
+        Files.move(tmp, metaPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 线程私有的临时数组与访问标记
+     */
+    private static class Scratch {
+        final float[] buffer;
+        final float[] base;
+        final float[] candidate;
+        int[] visited = new int[1024];
+        int tag;
+
+        Scratch(int dimension) {
+            buffer = new float[dimension];
+            base = new float[dimension];
+            candidate = new float[dimension];
+        }
+
+        void startVisit() {
+            if (++tag == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                tag = 1;
+            }
+        }
+
+        /**
+         * @return 首次访问返回 true
+         */
+        boolean visit(int node) {
+            if (node >= visited.length) {
+                visited = Arrays.copyOf(visited, Math.max(node + 1, visited.length * 2));
+            }
+            if (visited[node] == tag) {
+                return false;
+            }
+            visited[node] = tag;
+            return true;
+        }
+    }
+
+    /**
+     * 第 0 层邻接表文件
+     */
+    private static class LinkFile extends MappedRowFile<IntBuffer> {
+
+        LinkFile(Path path, int stride) throws IOException {
+            super(path, stride, Integer.BYTES);
+        }
+
+        @Override
+        protected IntBuffer view(ByteBuffer chunk) {
+            return chunk.asIntBuffer();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.langchain4j.store;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.pgvector.DefaultMetadataStorageConfig;
+import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 可调优的 PgVector 向量库
+ *
+ * 在 {@link PgVectorEmbeddingStore} 基础上:
+ * 1. 向量索引可选 IVFFlat / HNSW / 不建索引，参数变化时启动时重建，切换类型时删除另一种索引；
+ * 2. 不带过滤条件的检索改为 ORDER BY embedding <=> ? LIMIT n，使查询能走向量索引
+ *    (原实现按派生的 score 列排序，只能全表扫描)，并在同一事务内用 SET LOCAL 设置本次查询的
+ *    ivfflat.probes / hnsw.ef_search (ef_search 不小于 maxResults，否则 HNSW 返回的结果不足)；
+ *    连接直接取自连接池，不再像父类那样每次查询前执行 CREATE EXTENSION。
+ * 带元数据过滤条件的检索仍由原实现处理。
+ */
+@Slf4j
+public class IndexedPgVectorEmbeddingStore extends PgVectorEmbeddingStore {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    public enum IndexType {
+        NONE, IVFFLAT, HNSW
+    }
+
+    /**
+     * @param index          索引类型
+     * @param lists          IVFFlat 聚类数，0 表示按行数自动计算 (100 万行以内 行数/1000，以上 sqrt(行数))
+     * @param probes         IVFFlat 每次查询扫描的聚类数，0 表示 sqrt(lists)
+     * @param m              HNSW 每层邻居数
+     * @param efConstruction HNSW 构建时的候选列表大小
+     * @param efSearch       HNSW 查询时的候选列表大小
+     */
+    public record Options(IndexType index, int lists, int probes, int m, int efConstruction, int efSearch) {
+    }
+
+    private final Options options;
+    private final int probes;
+
+    public IndexedPgVectorEmbeddingStore(DataSource dataSource, String table, int dimension, Options options) {
+        this(dataSource, table, dimension, options, true);
+    }
+
+    /**
+     * @param manageSchema 是否建表并按配置维护索引；只检索其他实例维护的表时为 false，不执行任何 DDL
+     */
+    public IndexedPgVectorEmbeddingStore(DataSource dataSource, String table, int dimension, Options options,
+                                         boolean manageSchema) {
+        // 不让父类建 IVFFlat 索引，索引由 ensureIndex 统一维护
+        super(dataSource, table, dimension, false, null, manageSchema, false,
+                DefaultMetadataStorageConfig.defaultConfig());
+        this.options = options;
+        int lists = manageSchema ? ensureIndex() : existingLists();
+        this.probes = options.probes() > 0 ? options.probes() : Math.max(1, (int) Math.round(Math.sqrt(lists)));
+        if (options.index() == IndexType.IVFFLAT) {
+            log.info("pgvector 检索参数: ivfflat.probes = {}", probes);
+        } else if (options.index() == IndexType.HNSW) {
+            log.info("pgvector 检索参数: hnsw.ef_search = {}", options.efSearch());
+        }
+    }
+
+    /**
+     * 按配置创建或重建向量索引
+     *
+     * @return IVFFlat 实际使用的 lists，其他索引类型返回 0
+     */
+    private int ensureIndex() {
+        String ivfflatIndex = table + "_ivfflat_index";
+        String hnswIndex = table + "_hnsw_index";
+        try (Connection connection = datasource.getConnection(); Statement statement = connection.createStatement()) {
+            switch (options.index()) {
+                case NONE -> {
+                    dropIndex(statement, ivfflatIndex);
+                    dropIndex(statement, hnswIndex);
+                    return 0;
+                }
+                case HNSW -> {
+                    dropIndex(statement, ivfflatIndex);
+                    Set<String> expected = Set.of("m=" + options.m(), "ef_construction=" + options.efConstruction());
+                    Set<String> current = indexOptions(connection, hnswIndex);
+                    if (!expected.equals(current)) {
+                        rebuildIndex(statement, hnswIndex, current, String.format(
+                                "CREATE INDEX %s ON %s USING hnsw (embedding vector_cosine_ops) "
+                                        + "WITH (m = %d, ef_construction = %d)",
+                                hnswIndex, table, options.m(), options.efConstruction()));
+                    }
+                    return 0;
+                }
+                default -> {
+                    dropIndex(statement, hnswIndex);
+                    Set<String> current = indexOptions(connection, ivfflatIndex);
+                    int currentLists = lists(current, 0);
+                    int lists = options.lists() > 0 ? options.lists() : autoLists(connection);
+                    // 自动计算时行数小幅变化不重建，lists 偏离超过一倍才重建
+                    boolean stale = options.lists() > 0
+                            ? lists != currentLists
+                            : currentLists == 0 || lists > currentLists * 2 || lists * 2 < currentLists;
+                    if (!stale) {
+                        return currentLists;
+                    }
+                    rebuildIndex(statement, ivfflatIndex, current, String.format(
+                            "CREATE INDEX %s ON %s USING ivfflat (embedding vector_cosine_ops) WITH (lists = %d)",
+                            ivfflatIndex, table, lists));
+                    return lists;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("pgvector 索引创建失败", e);
+        }
+    }
+
+    /**
+     * 已有 IVFFlat 索引的 lists，没有时按默认值 100 计算 probes
+     */
+    private int existingLists() {
+        try (Connection connection = datasource.getConnection()) {
+            return lists(indexOptions(connection, table + "_ivfflat_index"), 100);
+        } catch (SQLException e) {
+            throw new IllegalStateException("pgvector 索引信息读取失败", e);
+        }
+    }
+
+    private static int lists(Set<String> indexOptions, int absent) {
+        if (indexOptions == null) {
+            return absent;
+        }
+        return indexOptions.stream()
+                .filter(option -> option.startsWith("lists="))
+                .mapToInt(option -> Integer.parseInt(option.substring("lists=".length())))
+                .findFirst().orElse(100);
+    }
+
+    /**
+     * 索引的存储参数 (例如 lists=100)，索引不存在时返回 null
+     */
+    private static Set<String> indexOptions(Connection connection, String indexName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT reloptions FROM pg_class WHERE relname = ? AND relkind = 'i'")) {
+            statement.setString(1, indexName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                Array options = resultSet.getArray(1);
+                return options == null ? Set.of() : new TreeSet<>(Arrays.asList((String[]) options.getArray()));
+            }
+        }
+    }
+
+    private int autoLists(Connection connection) throws SQLException {
+        long rows;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT reltuples::bigint FROM pg_class WHERE relname = ? AND relkind = 'r'")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                rows = resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        }
+        if (rows <= 0) {
+            // 从未 ANALYZE 过时 reltuples 为 -1，空表建出的 IVFFlat 聚类中心没有意义
+            log.warn("pgvector 表 {} 为空或缺少统计信息，IVFFlat 按 lists = 100 创建，行数增长一倍以上后重启会按行数重建", table);
+            return 100;
+        }
+        return (int) Math.max(10, rows <= 1_000_000 ? rows / 1000 : Math.sqrt(rows));
+    }
+
+    private void rebuildIndex(Statement statement, String indexName, Set<String> current, String createSql)
+            throws SQLException {
+        long start = System.currentTimeMillis();
+        log.info("pgvector 创建向量索引 {} (原参数: {})", indexName, current == null ? "无" : current);
+        dropIndex(statement, indexName);
+        statement.executeUpdate(createSql);
+        log.info("pgvector 向量索引 {} 创建完成，耗时: {}ms", indexName, System.currentTimeMillis() - start);
+    }
+
+    private static void dropIndex(Statement statement, String indexName) throws SQLException {
+        statement.executeUpdate("DROP INDEX IF EXISTS " + indexName);
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.filter() != null) {
+            return super.search(request);
+        }
+        PGvector query = new PGvector(request.queryEmbedding().vector());
+        String sql = String.format("SELECT embedding_id, embedding <=> ? AS distance, text, metadata FROM %s "
+                + "ORDER BY embedding <=> ? LIMIT ?", table);
+        // 父类 getConnection() 每次都执行 CREATE EXTENSION，检索时直接从连接池取连接
+        try (Connection connection = datasource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                String setting = searchSetting(request.maxResults());
+                if (setting != null) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(setting);
+                    }
+                }
+                List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setObject(1, query);
+                    statement.setObject(2, query);
+                    statement.setInt(3, request.maxResults());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            // 与父类一致: 余弦距离 [0, 2] 映射为相关度 [0, 1]
+                            double score = (2 - resultSet.getDouble("distance")) / 2;
+                            if (score < request.minScore()) {
+                                break;
+                            }
+                            String text = resultSet.getString("text");
+                            matches.add(new EmbeddingMatch<>(score, resultSet.getString("embedding_id"), null,
+                                    text == null ? null : TextSegment.from(text, metadata(resultSet))));
+                        }
+                    }
+                }
+                connection.commit();
+                return new EmbeddingSearchResult<>(matches);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("pgvector 检索失败", e);
+        }
+    }
+
+    /**
+     * 本次查询的索引参数，只在当前事务内生效
+     */
+    private String searchSetting(int maxResults) {
+        return switch (options.index()) {
+            case IVFFLAT -> "SET LOCAL ivfflat.probes = " + probes;
+            case HNSW -> "SET LOCAL hnsw.ef_search = " + Math.min(1000, Math.max(options.efSearch(), maxResults));
+            case NONE -> null;
+        };
+    }
+
+    private static Metadata metadata(ResultSet resultSet) throws SQLException {
+        String json = resultSet.getString("metadata");
+        if (json == null || json.isEmpty()) {
+            return new Metadata();
+        }
+        try {
+            return Metadata.from(JSON.readValue(json, METADATA_TYPE));
+        } catch (IOException e) {
+            throw new IllegalStateException("pgvector 片段元数据解析失败: " + json, e);
+        }
+    }
+
+    /**
+     * 解析索引类型配置 (不区分大小写)
+     */
+    public static IndexType indexType(String value) {
+        return IndexType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.langchain4j.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 进程内向量库 (local profile)
+ *
+ * 向量归一化后按行存放在内存映射文件 vectors.f32 中，片段文本与元数据记录在 segments.jsonl，
+ * 默认检索时对全部向量做精确内积扫描，片段较多时按块并行扫描；
+ * 配置 HNSW 时使用 {@link HnswIndex} 近似检索 (带元数据过滤条件的检索仍走精确扫描)。
+ * 精确扫描可选 int8 / 二值量化：先扫描体积小得多的量化编码粗排，再用原始向量对候选重新计算得分。
+ * 量化编码是原始向量之外额外保存的文件；每次打开递增数据目录中的代数 (generation 文件)，
+ * 编码文件记录的代数与上一次打开不一致 (期间以其他量化方式打开并写入过) 时从原始向量重建。
+ * 删除的行号会被新片段复用，因此向量文件不需要压缩。使用 HNSW 时已删除的节点仍留在图中，
+ * 直到启动时删除比例过高触发重建后才会复用。
+ */
+@Slf4j
+public class LocalEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    /**
+     * 超过该数量时并行扫描
+     */
+    private static final int PARALLEL_SCAN_THRESHOLD = 50_000;
+
+    /**
+     * 图中已删除节点超过该比例时，启动时重建 HNSW 索引
+     */
+    private static final double HNSW_REBUILD_RATIO = 0.2;
+
+    private final int dimension;
+    private final MappedVectorFile vectors;
+    private final SegmentLog segmentLog;
+    private final HnswIndex index;
+    private final QuantizedVectors codes;
+    private final int rescoreFactor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 行号 -> 片段 ID，已删除的行为 null
+     */
+    private final List<String> ids = new ArrayList<>();
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * @param directory 数据目录
+     * @param dimension 向量维度
+     */
+    public LocalEmbeddingStore(Path directory, int dimension) {
+        this(directory, dimension, null);
+    }
+
+    /**
+     * @param directory 数据目录
+     * @param dimension 向量维度
+     * @param hnsw      HNSW 索引参数，为 null 时使用精确扫描
+     */
+    public LocalEmbeddingStore(Path directory, int dimension, HnswIndex.Options hnsw) {
+        this(directory, dimension, hnsw, Quantization.NONE, 1);
+    }
+
+    /**
+     * @param directory     数据目录
+     * @param dimension     向量维度
+     * @param hnsw          HNSW 索引参数，为 null 时使用精确扫描
+     * @param quantization  精确扫描时的量化方式
+     * @param rescoreFactor 量化粗排的候选倍数 (候选数 = maxResults * rescoreFactor)
+     */
+    public LocalEmbeddingStore(Path directory, int dimension, HnswIndex.Options hnsw,
+                               Quantization quantization, int rescoreFactor) {
+        this.dimension = dimension;
+        this.rescoreFactor = Math.max(1, rescoreFactor);
+        long start = System.currentTimeMillis();
+        try {
+            this.vectors = new MappedVectorFile(directory.resolve("vectors.f32"), dimension);
+            this.segmentLog = new SegmentLog(directory.resolve("segments.jsonl"));
+            segmentLog.replay(this::apply);
+            this.index = hnsw == null ? null : new HnswIndex(directory, vectors, hnsw);
+            // 任何量化方式打开都递增代数，量化编码只有在上一次打开时同步过才可复用
+            Path generationPath = directory.resolve("generation");
+            long previousGeneration = Math.max(0, QuantizedVectors.readGeneration(generationPath));
+            long generation = previousGeneration + 1;
+            Files.writeString(generationPath, Long.toString(generation), StandardCharsets.UTF_8);
+            this.codes = quantization == null || quantization == Quantization.NONE
+                    ? null
+                    : new QuantizedVectors(directory, dimension, quantization, previousGeneration);
+            if (codes != null) {
+                if (codes.isStale()) {
+                    for (int slot = 0; slot < ids.size(); slot++) {
+                        if (ids.get(slot) != null) {
+                            codes.write(slot, vectors.read(slot));
+                        }
+                    }
+                    log.info("量化编码 ({}) 缺失或已过期，已从原始向量重建 {} 行", quantization, slots.size());
+                }
+                codes.markSynced(generation);
+            }
+            if (index != null) {
+                prepareIndex();
+            }
+            for (int slot = ids.size() - 1; slot >= 0; slot--) {
+                if (ids.get(slot) == null && (index == null || !index.contains(slot))) {
+                    freeSlots.push(slot);
+                }
+            }
+            // 删除记录占多数时压缩日志
+            if (segmentLog.lines() > 2L * slots.size() + 1000) {
+                segmentLog.rewrite(liveEntries());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开本地向量库失败: " + directory, e);
+        }
+        log.info("本地向量库 {}: {} 个片段，维度 {}，索引 {}，量化 {}，加载耗时 {}ms", directory, slots.size(), dimension,
+                index == null ? "flat" : "hnsw " + index.options(), quantization, System.currentTimeMillis() - start);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return addAll(List.of(embedding)).get(0);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        return addAll(List.of(embedding), List.of(textSegment)).get(0);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return addAll(embeddings, null);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        List<String> newIds = embeddings.stream().map(e -> UUID.randomUUID().toString()).collect(Collectors.toList());
+        addAll(newIds, embeddings, textSegments);
+        return newIds;
+    }
+
+    private void addAll(List<String> newIds, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        if (textSegments != null && textSegments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("embeddings 与 textSegments 数量不一致");
+        }
+        int[] added = new int[embeddings.size()];
+        lock.writeLock().lock();
+        try {
+            List<SegmentLog.Entry> entries = new ArrayList<>(embeddings.size());
+            for (int i = 0; i < embeddings.size(); i++) {
+                float[] vector = embeddings.get(i).vector();
+                if (vector.length != dimension) {
+                    throw new IllegalArgumentException("向量维度 " + vector.length + " 与配置维度 " + dimension + " 不一致");
+                }
+                String id = newIds.get(i);
+                Integer existing = slots.get(id);
+                if (existing != null && index != null) {
+                    // 图中的节点不能原地替换向量，删除旧节点后分配新行号
+                    SegmentLog.Entry removal = SegmentLog.Entry.remove(existing, id);
+                    apply(removal);
+                    entries.add(removal);
+                    existing = null;
+                }
+                int slot = existing != null ? existing : (freeSlots.isEmpty() ? ids.size() : freeSlots.pop());
+                float[] normalized = VectorMath.normalize(vector);
+                vectors.write(slot, normalized);
+                if (codes != null) {
+                    codes.write(slot, normalized);
+                }
+
+                SegmentLog.Entry entry = SegmentLog.Entry.add(slot, id, textSegments == null ? null : textSegments.get(i));
+                apply(entry);
+                entries.add(entry);
+                added[i] = slot;
+            }
+            segmentLog.append(entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入本地向量库失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // 图插入支持并发，无需持有写锁；插入完成前的片段暂时不会被检索到
+        if (index != null) {
+            insertIntoIndex(IntStream.of(added));
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            List<SegmentLog.Entry> entries = new ArrayList<>();
+            for (String id : new LinkedHashSet<>(idsToRemove)) {
+                Integer slot = slots.get(id);
+                if (slot != null) {
+                    entries.add(SegmentLog.Entry.remove(slot, id));
+                }
+            }
+            remove(entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            List<SegmentLog.Entry> entries = new ArrayList<>();
+            for (int slot = 0; slot < ids.size(); slot++) {
+                TextSegment segment = segments.get(slot);
+                if (ids.get(slot) != null && segment != null && filter.test(segment.metadata())) {
+                    entries.add(SegmentLog.Entry.remove(slot, ids.get(slot)));
+                }
+            }
+            remove(entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            segments.clear();
+            slots.clear();
+            freeSlots.clear();
+            segmentLog.rewrite(List.of());
+            if (index != null) {
+                index.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空本地向量库失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = VectorMath.normalize(request.queryEmbedding().vector());
+        int maxResults = request.maxResults();
+        // 余弦相似度阈值，低于它的行不进入候选
+        double minCosine = request.minScore() * 2 - 1;
+        Filter filter = request.filter();
+
+        lock.readLock().lock();
+        try {
+            if (index != null && filter == null) {
+                return toResult(index.search(query, maxResults, slot -> slot < ids.size() && ids.get(slot) != null)
+                        .stream()
+                        .filter(candidate -> candidate.score() >= minCosine)
+                        .collect(Collectors.toList()));
+            }
+
+            int rows = ids.size();
+            int partitions = rows < PARALLEL_SCAN_THRESHOLD
+                    ? 1
+                    : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), rows / PARALLEL_SCAN_THRESHOLD));
+            int step = (rows + partitions - 1) / Math.max(1, partitions);
+
+            // 量化时先按编码粗排出 maxResults * rescoreFactor 个候选，再用原始向量重新计算得分
+            int limit = codes == null ? maxResults : maxResults * rescoreFactor;
+            IntStream range = IntStream.range(0, partitions);
+            List<PriorityQueue<ScoredNode>> partial = (partitions > 1 ? range.parallel() : range)
+                    .mapToObj(p -> scan(query, p * step, Math.min(rows, (p + 1) * step), limit, minCosine, filter))
+                    .collect(Collectors.toList());
+
+            PriorityQueue<ScoredNode> top = new PriorityQueue<>(Comparator.comparingDouble(ScoredNode::score));
+            for (PriorityQueue<ScoredNode> queue : partial) {
+                for (ScoredNode candidate : queue) {
+                    offer(top, candidate, limit);
+                }
+            }
+            List<ScoredNode> sorted = new ArrayList<>(top);
+            if (codes != null) {
+                float[] scratch = new float[dimension];
+                sorted = sorted.stream()
+                        .map(candidate -> new ScoredNode(candidate.node(), vectors.dot(candidate.node(), query, scratch)))
+                        .filter(candidate -> candidate.score() >= minCosine)
+                        .collect(Collectors.toList());
+            }
+            sorted.sort(Comparator.comparingDouble(ScoredNode::score).reversed());
+            return toResult(sorted.subList(0, Math.min(maxResults, sorted.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private EmbeddingSearchResult<TextSegment> toResult(List<ScoredNode> candidates) {
+        List<EmbeddingMatch<TextSegment>> matches = candidates.stream()
+                .map(c -> new EmbeddingMatch<>(RelevanceScore.fromCosineSimilarity(c.score()), ids.get(c.node()),
+                        Embedding.from(vectors.read(c.node())), segments.get(c.node())))
+                .collect(Collectors.toList());
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            segmentLog.close();
+            if (index != null) {
+                index.close();
+            }
+            if (codes != null) {
+                codes.close();
+            }
+            vectors.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private PriorityQueue<ScoredNode> scan(float[] query, int from, int to, int maxResults,
+                                          double minCosine, Filter filter) {
+        PriorityQueue<ScoredNode> top = new PriorityQueue<>(Comparator.comparingDouble(ScoredNode::score));
+        float[] scratch = new float[dimension];
+        QuantizedVectors.Query coarse = codes == null ? null : codes.prepare(query);
+        for (int slot = from; slot < to; slot++) {
+            if (ids.get(slot) == null) {
+                continue;
+            }
+            float score;
+            if (coarse == null) {
+                score = vectors.dot(slot, query, scratch);
+                if (score < minCosine) {
+                    continue;
+                }
+            } else {
+                // 量化得分与余弦相似度不可比，阈值在重新计算得分后判断
+                score = codes.score(slot, coarse);
+            }
+            if (top.size() >= maxResults && score <= top.peek().score()) {
+                continue;
+            }
+            if (filter != null) {
+                TextSegment segment = segments.get(slot);
+                if (segment == null || !filter.test(segment.metadata())) {
+                    continue;
+                }
+            }
+            offer(top, new ScoredNode(slot, score), maxResults);
+        }
+        return top;
+    }
+
+    private static void offer(PriorityQueue<ScoredNode> top, ScoredNode candidate, int maxResults) {
+        top.offer(candidate);
+        if (top.size() > maxResults) {
+            top.poll();
+        }
+    }
+
+    private void remove(List<SegmentLog.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        entries.forEach(this::apply);
+        if (index == null) {
+            entries.forEach(entry -> freeSlots.push(entry.slot()));
+        }
+        try {
+            segmentLog.append(entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入本地向量库失败", e);
+        }
+    }
+
+    /**
+     * 将日志记录应用到内存索引
+     */
+    private void apply(SegmentLog.Entry entry) {
+        int slot = entry.slot();
+        while (ids.size() <= slot) {
+            ids.add(null);
+            segments.add(null);
+        }
+        if (entry.isAdd()) {
+            String previous = ids.get(slot);
+            if (previous != null && !previous.equals(entry.id())) {
+                slots.remove(previous);
+            }
+            ids.set(slot, entry.id());
+            segments.set(slot, entry.segment());
+            slots.put(entry.id(), slot);
+        } else if (entry.id().equals(ids.get(slot))) {
+            ids.set(slot, null);
+            segments.set(slot, null);
+            slots.remove(entry.id());
+        }
+    }
+
+    private List<SegmentLog.Entry> liveEntries() {
+        List<SegmentLog.Entry> live = new ArrayList<>(slots.size());
+        for (int slot = 0; slot < ids.size(); slot++) {
+            if (ids.get(slot) != null) {
+                live.add(SegmentLog.Entry.add(slot, ids.get(slot), segments.get(slot)));
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 加载或重建 HNSW 索引，使其与片段日志一致
+     */
+    private void prepareIndex() throws IOException {
+        long tombstones = IntStream.range(0, ids.size())
+                .filter(slot -> ids.get(slot) == null && index.contains(slot))
+                .count();
+        if (index.isLoaded() && tombstones > index.size() * HNSW_REBUILD_RATIO) {
+            log.info("HNSW 索引中已删除节点 {} 个，重建索引", tombstones);
+            index.clear();
+        }
+        long start = System.currentTimeMillis();
+        int[] missing = IntStream.range(0, ids.size())
+                .filter(slot -> ids.get(slot) != null && !index.contains(slot))
+                .toArray();
+        if (missing.length > 0) {
+            insertIntoIndex(IntStream.of(missing));
+            log.info("HNSW 索引插入 {} 个节点，耗时 {}ms", missing.length, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void insertIntoIndex(IntStream slotsToInsert) {
+        slotsToInsert.parallel().forEach(slot -> {
+            try {
+                index.insert(slot);
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入 HNSW 索引失败", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.langchain4j.store;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按定长行存储的内存映射文件
+ *
+ * 文件按固定行数分块映射 (单个映射不能超过 2GB)，需要时再映射新的块，
+ * 数据位于堆外且连续存放，扫描时无需拷贝。写入由调用方保证互斥。
+ *
+ * @param <B> 块的视图类型 (FloatBuffer / IntBuffer / ByteBuffer)
+ */
+public abstract class MappedRowFile<B extends Buffer> implements AutoCloseable {
+
+    /**
+     * 单个映射块的目标大小
+     */
+    private static final long CHUNK_BYTES = 64L * 1024 * 1024;
+
+    private final Path path;
+    private final int stride;
+    private final int elementBytes;
+    private final int rowsPerChunk;
+    private FileChannel channel;
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+    private volatile Buffer[] chunks = new Buffer[0];
+
+    /**
+     * @param stride       每行元素数
+     * @param elementBytes 每个元素的字节数
+     */
+    protected MappedRowFile(Path path, int stride, int elementBytes) throws IOException {
+        this.path = path;
+        this.stride = stride;
+        this.elementBytes = elementBytes;
+        this.rowsPerChunk = (int) Math.max(1, CHUNK_BYTES / ((long) stride * elementBytes));
+        open();
+    }
+
+    /**
+     * 创建块的视图 (与块共享内容)
+     */
+    protected abstract B view(ByteBuffer chunk);
+
+    private void open() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ensureCapacity(channel.size() / ((long) stride * elementBytes));
+    }
+
+    /**
+     * 已映射的行数
+     */
+    public long capacity() {
+        return (long) chunks.length * rowsPerChunk;
+    }
+
+    /**
+     * 映射足够的块以容纳 rows 行
+     */
+    public synchronized void ensureCapacity(long rows) throws IOException {
+        int needed = (int) ((rows + rowsPerChunk - 1) / rowsPerChunk);
+        if (needed <= chunks.length) {
+            return;
+        }
+        Buffer[] grown = Arrays.copyOf(chunks, needed);
+        long chunkBytes = (long) rowsPerChunk * stride * elementBytes;
+        for (int i = chunks.length; i < needed; i++) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkBytes, chunkBytes);
+            buffer.order(ByteOrder.nativeOrder());
+            mapped.add(buffer);
+            grown[i] = view(buffer);
+        }
+        chunks = grown;
+    }
+
+    /**
+     * 返回行所在块 (与其他线程共享，只能使用绝对位置读写)
+     */
+    @SuppressWarnings("unchecked")
+    public B chunk(int row) {
+        return (B) chunks[row / rowsPerChunk];
+    }
+
+    /**
+     * 行在所在块内的起始元素下标
+     */
+    public int offset(int row) {
+        return (row % rowsPerChunk) * stride;
+    }
+
+    /**
+     * 删除文件内容并重新打开
+     */
+    public synchronized void reset() throws IOException {
+        channel.close();
+        mapped.clear();
+        chunks = new Buffer[0];
+        Files.deleteIfExists(path);
+        open();
+    }
+
+    public synchronized void force() {
+        mapped.forEach(MappedByteBuffer::force);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.langchain4j.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+
+/**
+ * 按行存储定长 float 向量的内存映射文件
+ */
+public class MappedVectorFile extends MappedRowFile<FloatBuffer> {
+
+    private final int dimension;
+
+    public MappedVectorFile(Path path, int dimension) throws IOException {
+        super(path, dimension, Float.BYTES);
+        this.dimension = dimension;
+    }
+
+    @Override
+    protected FloatBuffer view(ByteBuffer chunk) {
+        return chunk.asFloatBuffer();
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public void write(int row, float[] vector) throws IOException {
+        ensureCapacity(row + 1L);
+        chunk(row).put(offset(row), vector);
+    }
+
+    public float[] read(int row) {
+        float[] vector = new float[dimension];
+        chunk(row).get(offset(row), vector);
+        return vector;
+    }
+
+    /**
+     * @param scratch 长度不小于维度的临时数组 (每个线程独用)
+     */
+    public float dot(int row, float[] query, float[] scratch) {
+        return VectorMath.dot(query, chunk(row), offset(row), scratch);
+    }
+}
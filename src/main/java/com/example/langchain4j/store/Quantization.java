@@ -0,0 +1,22 @@
+package com.example.langchain4j.store;
+
+/**
+ * 本地向量库的量化方式
+ */
+public enum Quantization {
+
+    /**
+     * 不量化，直接扫描 float32 向量
+     */
+    NONE,
+
+    /**
+     * 标量量化：每维 1 字节 + 每个向量 1 个缩放系数，约为 float32 的 1/4
+     */
+    INT8,
+
+    /**
+     * 二值量化：每维 1 bit (符号位)，约为 float32 的 1/32
+     */
+    BINARY
+}
@@ -0,0 +1,181 @@
+package com.example.langchain4j.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 量化向量文件，用于粗排扫描
+ *
+ * INT8 每行为 [缩放系数 float][dimension 个 int8]，查询向量同样量化为 int8，按整数累加内积 (JIT 可向量化)；
+ * BINARY 每行为 ceil(dimension / 64) 个 long 的符号位，得分为 dimension - 2 * 汉明距离。
+ * 量化得分只用于排序，最终得分由调用方使用原始向量重新计算。
+ *
+ * 编码文件旁的 .gen 文件记录编码与哪一代向量文件同步 (代数由 {@link LocalEmbeddingStore} 每次打开时递增)：
+ * 以其他量化方式或不量化打开过向量库后，期间增删的行没有对应编码，代数不一致时需要整体重建。
+ */
+class QuantizedVectors implements AutoCloseable {
+
+    private final Quantization type;
+    private final int dimension;
+    private final int words;
+    private final CodeFile codes;
+    private final Path generationPath;
+    private final boolean stale;
+
+    /**
+     * @param generation 向量文件上一次打开时的代数，与编码文件记录的不一致时编码视为过期
+     */
+    QuantizedVectors(Path directory, int dimension, Quantization type, long generation) throws IOException {
+        this.type = type;
+        this.dimension = dimension;
+        this.words = (dimension + 63) / 64;
+        Path path = directory.resolve(type == Quantization.INT8 ? "vectors.int8" : "vectors.bin");
+        this.generationPath = path.resolveSibling(path.getFileName() + ".gen");
+        this.stale = !Files.exists(path) || readGeneration(generationPath) != generation;
+        this.codes = new CodeFile(path, bytesPerVector());
+    }
+
+    /**
+     * 编码是否缺失或过期 (需要由调用方从原始向量重建全部编码后调用 {@link #markSynced})
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * 记录编码已与本次打开的向量文件同步
+     */
+    void markSynced(long generation) throws IOException {
+        codes.force();
+        Files.writeString(generationPath, Long.toString(generation), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取代数文件，不存在或内容无效时返回 -1
+     */
+    static long readGeneration(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int bytesPerVector() {
+        return type == Quantization.INT8 ? Float.BYTES + dimension : words * Long.BYTES;
+    }
+
+    /**
+     * @param vector 归一化后的向量
+     */
+    void write(int row, float[] vector) throws IOException {
+        codes.ensureCapacity(row + 1L);
+        ByteBuffer chunk = codes.chunk(row);
+        int offset = codes.offset(row);
+        if (type == Quantization.INT8) {
+            byte[] encoded = new byte[dimension];
+            chunk.putFloat(offset, encode(vector, encoded));
+            chunk.put(offset + Float.BYTES, encoded);
+        } else {
+            long[] bits = signBits(vector);
+            for (int w = 0; w < words; w++) {
+                chunk.putLong(offset + w * Long.BYTES, bits[w]);
+            }
+        }
+    }
+
+    /**
+     * 预处理查询向量
+     */
+    Query prepare(float[] query) {
+        if (type == Quantization.BINARY) {
+            return new Query(null, signBits(query), null);
+        }
+        byte[] encoded = new byte[dimension];
+        encode(query, encoded);
+        return new Query(encoded, null, new byte[dimension]);
+    }
+
+    /**
+     * 量化得分 (仅用于排序)
+     */
+    float score(int row, Query query) {
+        ByteBuffer chunk = codes.chunk(row);
+        int offset = codes.offset(row);
+        if (type == Quantization.INT8) {
+            byte[] encoded = query.scratch();
+            chunk.get(offset + Float.BYTES, encoded, 0, dimension);
+            byte[] q = query.codes();
+            int sum = 0;
+            for (int i = 0; i < dimension; i++) {
+                sum += q[i] * encoded[i];
+            }
+            // 查询向量自身的缩放系数对所有行相同，不影响排序
+            return sum * chunk.getFloat(offset);
+        }
+        long[] bits = query.bits();
+        int hamming = 0;
+        for (int w = 0; w < words; w++) {
+            hamming += Long.bitCount(bits[w] ^ chunk.getLong(offset + w * Long.BYTES));
+        }
+        return dimension - 2 * hamming;
+    }
+
+    /**
+     * 按最大绝对值线性量化到 [-127, 127]
+     *
+     * @return 缩放系数
+     */
+    private float encode(float[] vector, byte[] encoded) {
+        float maxAbs = 0;
+        for (float v : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+        float scale = maxAbs == 0 ? 1 : maxAbs / 127;
+        for (int i = 0; i < dimension; i++) {
+            encoded[i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+
+    private long[] signBits(float[] vector) {
+        long[] bits = new long[words];
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0) {
+                bits[i >> 6] |= 1L << (i & 63);
+            }
+        }
+        return bits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        codes.close();
+    }
+
+    /**
+     * @param codes   查询向量的 int8 编码 (INT8)
+     * @param bits    查询向量的符号位 (BINARY)
+     * @param scratch 线程独用的临时数组 (INT8)
+     */
+    record Query(byte[] codes, long[] bits, byte[] scratch) {
+    }
+
+    private static class CodeFile extends MappedRowFile<ByteBuffer> {
+
+        CodeFile(Path path, int stride) throws IOException {
+            super(path, stride, 1);
+        }
+
+        @Override
+        protected ByteBuffer view(ByteBuffer chunk) {
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.langchain4j.store;
+
+/**
+ * 检索候选：向量行号与余弦相似度
+ */
+record ScoredNode(int node, float score) {
+}
@@ -0,0 +1,138 @@
+package com.example.langchain4j.store;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 片段追加日志 (JSON Lines)
+ *
+ * 记录每个向量行号对应的 ID、文本与元数据，向量本身保存在 {@link MappedVectorFile} 中。
+ * 启动时重放日志恢复内存索引；删除记录过多时整体重写以压缩日志。
+ */
+@Slf4j
+class SegmentLog implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    /**
+     * @param op       add / remove
+     * @param slot     向量行号
+     * @param id       片段 ID
+     * @param text     片段文本 (仅有向量时为 null)
+     * @param metadata 片段元数据
+     */
+    record Entry(String op, int slot, String id, String text, Map<String, Object> metadata) {
+
+        static Entry add(int slot, String id, TextSegment segment) {
+            return segment == null
+                    ? new Entry("add", slot, id, null, null)
+                    : new Entry("add", slot, id, segment.text(), segment.metadata().toMap());
+        }
+
+        static Entry remove(int slot, String id) {
+            return new Entry("remove", slot, id, null, null);
+        }
+
+        boolean isAdd() {
+            return "add".equals(op);
+        }
+
+        TextSegment segment() {
+            if (text == null) {
+                return null;
+            }
+            return TextSegment.from(text, metadata == null ? new Metadata() : Metadata.from(metadata));
+        }
+    }
+
+    private final Path path;
+    private BufferedWriter writer;
+    private long lines;
+
+    SegmentLog(Path path) throws IOException {
+        this.path = path;
+        Files.createDirectories(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * 按顺序重放日志，之后打开追加写入
+     */
+    void replay(Consumer<Entry> consumer) throws IOException {
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        consumer.accept(MAPPER.readValue(line, Entry.class));
+                        lines++;
+                    } catch (IOException e) {
+                        // 异常退出时最后一行可能不完整
+                        log.warn("忽略无法解析的日志记录: {}", path);
+                    }
+                }
+            }
+        }
+        openWriter();
+    }
+
+    long lines() {
+        return lines;
+    }
+
+    void append(List<Entry> entries) throws IOException {
+        for (Entry entry : entries) {
+            writer.write(MAPPER.writeValueAsString(entry));
+            writer.newLine();
+        }
+        writer.flush();
+        lines += entries.size();
+    }
+
+    /**
+     * 用当前有效记录重写日志 (先写临时文件再原子替换)
+     */
+    void rewrite(List<Entry> live) throws IOException {
+        writer.close();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Entry entry : live) {
+                out.write(MAPPER.writeValueAsString(entry));
+                out.newLine();
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lines = live.size();
+        openWriter();
+    }
+
+    private void openWriter() throws IOException {
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
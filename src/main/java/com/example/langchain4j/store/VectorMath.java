@@ -0,0 +1,67 @@
+package com.example.langchain4j.store;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 向量运算
+ *
+ * 内积按 8 路展开、使用 8 个独立累加器，打断单一累加器的加法依赖链，
+ * 多条浮点加法可在流水线中并行执行 (指令级并行)。C2 不会自动向量化这种按顺序累加的浮点归约，
+ * 这里的计算仍是标量运算；
+ * 堆外向量先按行整体拷贝到堆内数组再计算。
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * 归一化为单位向量 (返回新数组)，归一化后内积即余弦相似度
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] result = vector.clone();
+        if (norm == 0) {
+            return result;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < result.length; i++) {
+            result[i] *= scale;
+        }
+        return result;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        int length = a.length;
+        int upper = length & ~7;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int i = 0;
+        for (; i < upper; i += 8) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+            s4 += a[i + 4] * b[i + 4];
+            s5 += a[i + 5] * b[i + 5];
+            s6 += a[i + 6] * b[i + 6];
+            s7 += a[i + 7] * b[i + 7];
+        }
+        for (; i < length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3) + (s4 + s5) + (s6 + s7);
+    }
+
+    /**
+     * 计算 query 与 buffer 中从 offset 开始的 query.length 个 float 的内积
+     *
+     * @param scratch 长度不小于 query.length 的临时数组，按行整体拷贝出来再计算，比逐个读取 buffer 快得多
+     */
+    public static float dot(float[] query, FloatBuffer buffer, int offset, float[] scratch) {
+        buffer.get(offset, scratch, 0, query.length);
+        return dot(query, scratch);
+    }
+}
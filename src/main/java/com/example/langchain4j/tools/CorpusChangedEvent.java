@@ -0,0 +1,11 @@
+package com.example.langchain4j.tools;
+
+/**
+ * 知识库内容变化事件：一轮导入中有文件新增、修改或删除时发布
+ *
+ * @param storeType    向量库类型标识
+ * @param changedFiles 新增或修改的文件数
+ * @param removedFiles 删除的文件数
+ */
+public record CorpusChangedEvent(String storeType, int changedFiles, int removedFiles) {
+}
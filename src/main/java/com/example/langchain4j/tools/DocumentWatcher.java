@@ -0,0 +1,185 @@
+package com.example.langchain4j.tools;
+
+import com.example.langchain4j.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 文档目录监听
+ *
+ * 用 WatchService 监听文档目录及其全部子目录 (新建的子目录自动加入监听)，
+ * 变化的相对路径先收集起来，最后一次变化后静默 watchDebounce 或自首次变化起超过 watchMaxDelay 时，
+ * 交给 {@link IngestionJob#reindex} 在后台只对比这些路径并增量导入，检索服务不中断。
+ * 事件溢出 (短时间内变化过多) 时退化为对比整个目录。隐藏文件的变化忽略，与导入时一致。
+ * 文档目录在 jar 内 (未配置 app.document.directory) 或不在默认文件系统上时不监听。
+ */
+@Slf4j
+@Component
+public class DocumentWatcher {
+
+    private final IngestionJob ingestionJob;
+    private final IngestionHelper ingestionHelper;
+    private final AppProperties.Document config;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private Path root;
+    private WatchService watchService;
+    private Thread thread;
+
+    public DocumentWatcher(IngestionJob ingestionJob, IngestionHelper ingestionHelper, AppProperties appProperties) {
+        this.ingestionJob = ingestionJob;
+        this.ingestionHelper = ingestionHelper;
+        this.config = appProperties.getDocument();
+    }
+
+    /**
+     * 先于启动时的导入注册监听，导入扫描期间发生的变化也不会遗漏
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isWatchEnabled()) {
+            return;
+        }
+        root = ingestionHelper.getDocumentRoot();
+        if (root == null || root.getFileSystem() != FileSystems.getDefault() || !Files.isDirectory(root)) {
+            log.info("文档目录不可监听 ({})，文档变化需重启后导入；可通过 app.document.directory 指定外部目录", root);
+            return;
+        }
+        try {
+            watchService = root.getFileSystem().newWatchService();
+            registerAll(root);
+        } catch (IOException e) {
+            log.warn("文档目录监听启动失败，文档变化需重启后导入: {}", root, e);
+            close();
+            return;
+        }
+        thread = new Thread(this::watchLoop, "document-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("监听文档目录: {} ({} 个目录)，变化在静默 {}ms 后增量导入", root, directories.size(),
+                config.getWatchDebounce().toMillis());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("文档目录监听关闭失败", e);
+            }
+        }
+    }
+
+    private void registerAll(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) stream.filter(Files::isDirectory)::iterator) {
+                WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, path);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        long debounceNanos = config.getWatchDebounce().toNanos();
+        long maxDelayNanos = config.getWatchMaxDelay().toNanos();
+        Set<String> changed = new TreeSet<>();
+        boolean fullScan = false;
+        long firstChange = 0;
+        long lastChange = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                if (changed.isEmpty() && !fullScan) {
+                    key = watchService.take();
+                } else {
+                    long wait = Math.min(lastChange + debounceNanos, firstChange + maxDelayNanos) - System.nanoTime();
+                    key = wait > 0 ? watchService.poll(wait, TimeUnit.NANOSECONDS) : null;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (key == null) {
+                // 静默期已过 (或等待已超过 maxDelay)：提交本批变化
+                log.info("文档目录变化: {}，开始增量导入",
+                        fullScan ? "事件溢出，对比整个目录" : changed.size() + " 个路径");
+                ingestionJob.reindex(fullScan ? null : Set.copyOf(changed));
+                changed.clear();
+                fullScan = false;
+                continue;
+            }
+
+            boolean batchStarted = changed.isEmpty() && !fullScan;
+            boolean relevant = false;
+            Path directory = directories.get(key);
+            if (directory == null) {
+                key.cancel();
+                continue;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    fullScan = true;
+                    relevant = true;
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                if (path.getFileName().toString().startsWith(".")) {
+                    continue;
+                }
+                boolean isDirectory = Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+                if (isDirectory && event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    // 目录本身的修改事件由其中文件的事件体现
+                    continue;
+                }
+                if (isDirectory && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    try {
+                        registerAll(path);
+                    } catch (IOException e) {
+                        log.warn("新建目录监听失败，将对比整个目录: {}", path, e);
+                        fullScan = true;
+                    }
+                }
+                changed.add(IngestionHelper.relativize(root, path));
+                relevant = true;
+            }
+            if (!key.reset()) {
+                // 目录已删除
+                directories.remove(key);
+            }
+            if (relevant) {
+                lastChange = System.nanoTime();
+                if (batchStarted) {
+                    firstChange = lastChange;
+                }
+            }
+        }
+    }
+}
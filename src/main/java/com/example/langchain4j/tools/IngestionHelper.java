@@ -1,7 +1,10 @@
 package com.example.langchain4j.tools;
 
+import com.example.langchain4j.config.AppProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -10,132 +13,312 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * 向量数据库导入助手
  * 用于处理增量文件导入，避免重复导入和全量重建
+ *
+ * 清单以相对路径为键记录大小、修改时间与内容摘要：
+ * 大小和修改时间均未变化的文件直接跳过，否则计算摘要判断内容是否真的变化
  */
 @Component
 @Slf4j
 public class IngestionHelper {
 
+    private static final int LOGGED_PATHS = 20;
+
+    /**
+     * 文档目录，null 时使用 classpath 下的 documents 目录
+     */
+    private final Path documentRoot;
+
+    /**
+     * 清单所在目录
+     */
+    private final Path dataDirectory;
+
+    @Autowired
+    public IngestionHelper(AppProperties appProperties) {
+        this(StringUtils.hasText(appProperties.getDocument().getDirectory())
+                ? Paths.get(appProperties.getDocument().getDirectory()) : null, Paths.get("data"));
+    }
+
+    /**
+     * 指定文档目录与清单目录 (基准测试等场景)
+     */
+    public IngestionHelper(Path documentRoot, Path dataDirectory) {
+        this.documentRoot = documentRoot;
+        this.dataDirectory = dataDirectory;
+    }
+
     /**
-     * 获取需要导入的新文件列表
+     * 需要导入的文件
+     *
+     * @param relativePath 相对于 documents 目录的路径 (使用 / 分隔)
+     * @param path         文件路径
+     * @param size         文件大小
+     * @param lastModified 最后修改时间 (ms)
+     * @param hash         文件内容 SHA-256
+     * @param previous     清单中的旧记录，新增文件为 null
+     */
+    public record FileChange(String relativePath, Path path, long size, long lastModified, String hash,
+                             IngestionManifest.FileEntry previous) {
+    }
+
+    /**
+     * 增量导入计划
+     *
+     * @param changes  新增或内容变化的文件
+     * @param removed  已删除文件的相对路径
+     * @param manifest 当前清单 (已更新仅修改时间变化的记录)
+     */
+    public record IngestionPlan(List<FileChange> changes, List<String> removed, IngestionManifest manifest) {
+    }
+
+    /**
+     * 清单文件路径
+     *
+     * @param storeType 向量库类型标识 (例如 "pgvector", "milvus")
+     */
+    public Path manifestPath(String storeType) {
+        return dataDirectory.resolve("." + storeType + "_manifest.json");
+    }
+
+    /**
+     * 对比 documents 目录与清单，计算需要新增、重新向量化和删除的文件
      *
      * @param storeType     向量库类型标识 (例如 "pgvector", "milvus")
      * @param oldMarkerFile 旧的标记文件名 (用于兼容旧版本，例如 "data/.pgvector_ingested")
-     * @return 需要导入的文件路径列表
+     * @return 导入计划
      */
-    public List<Path> resolveNewFiles(String storeType, String oldMarkerFile) {
-        try {
-            // 1. 获取 documents 目录下的所有文件
-            List<Path> allFiles = getAllDocumentFiles();
-            if (allFiles.isEmpty()) {
-                log.warn("documents 目录下没有找到文件");
-                return Collections.emptyList();
+    public IngestionPlan resolveChanges(String storeType, String oldMarkerFile) throws IOException {
+        return resolveChanges(storeType, oldMarkerFile, null);
+    }
+
+    /**
+     * 只对比指定范围内的文件与清单 (监听到文档目录变化后使用)
+     *
+     * @param scope 相对路径 (文件或目录，使用 / 分隔)，目录包含其下全部文件；null 时对比整个 documents 目录
+     */
+    public IngestionPlan resolveChanges(String storeType, String oldMarkerFile, Collection<String> scope)
+            throws IOException {
+        Path manifestPath = manifestPath(storeType);
+        if (scope != null && !Files.exists(manifestPath)) {
+            // 还没有清单 (首次导入未完成或需要迁移旧版清单) 时全量对比
+            scope = null;
+        }
+
+        // 1. 获取 documents 目录 (或指定范围) 下的所有文件
+        Map<String, Path> allFiles = scope == null ? getAllDocumentFiles() : getDocumentFiles(scope);
+        if (scope == null && allFiles.isEmpty()) {
+            log.warn("documents 目录下没有找到文件");
+        }
+
+        // 2. 读取清单，不存在时尝试从旧版清单/标记文件迁移
+        IngestionManifest manifest = Files.exists(manifestPath)
+                ? IngestionManifest.load(manifestPath)
+                : migrateLegacy(storeType, oldMarkerFile, allFiles, manifestPath);
+
+        // 3. 对比找出新增和变化的文件
+        List<FileChange> changes = new ArrayList<>();
+        for (Map.Entry<String, Path> file : allFiles.entrySet()) {
+            String relativePath = file.getKey();
+            BasicFileAttributes attributes = Files.readAttributes(file.getValue(), BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+
+            IngestionManifest.FileEntry previous = manifest.getFiles().get(relativePath);
+            if (previous != null && previous.size() == size && previous.lastModified() == lastModified) {
+                continue;
             }
 
-            // 2. 确定新版清单文件路径
-            Path inventoryPath = Paths.get("data", "." + storeType + "_inventory");
-
-            // 3. 读取已导入的文件清单
-            Set<String> ingestedFiles = new HashSet<>();
-            if (Files.exists(inventoryPath)) {
-                // 如果清单文件存在，读取其中的文件名
-                ingestedFiles.addAll(Files.readAllLines(inventoryPath, StandardCharsets.UTF_8));
-            } else {
-                // 如果清单文件不存在，检查是否存在旧版标记文件 (兼容性处理)
-                Path oldMarkerPath = Paths.get(oldMarkerFile);
-                if (Files.exists(oldMarkerPath)) {
-                    log.info("检测到旧版标记文件: {}，正在迁移至增量清单...", oldMarkerPath);
-                    // 假设所有当前存在的文件都已导入（为了避免重复数据）
-                    // 将当前所有文件写入新清单，并返回空列表（不进行导入）
-                    updateInventory(inventoryPath, allFiles);
-                    // 删除旧标记文件，完成迁移
-                    Files.delete(oldMarkerPath);
-                    log.info("迁移完成，旧标记文件已删除。下次添加新文件时将自动识别。");
-                    return Collections.emptyList();
-                }
+            String hash = Hashing.sha256(file.getValue());
+            if (previous != null && hash.equals(previous.hash())) {
+                // 内容未变，仅修改时间变化：更新记录，无需重新导入
+                manifest.getFiles().put(relativePath, new IngestionManifest.FileEntry(
+                        size, lastModified, hash, previous.segments(), previous.legacy()));
+                continue;
             }
+            changes.add(new FileChange(relativePath, file.getValue(), size, lastModified, hash, previous));
+        }
+
+        // 4. 清单中存在但目录中已删除的文件
+        Set<String> scopePaths = scope == null ? null : new HashSet<>(scope);
+        List<String> removed = manifest.getFiles().keySet().stream()
+                .filter(relativePath -> scopePaths == null || inScope(scopePaths, relativePath))
+                .filter(relativePath -> !allFiles.containsKey(relativePath))
+                .collect(Collectors.toList());
 
-            // 4. 对比找出新增文件
-            List<Path> newFiles = allFiles.stream()
-                    .filter(file -> !ingestedFiles.contains(file.getFileName().toString()))
-                    .collect(Collectors.toList());
+        if (changes.isEmpty() && removed.isEmpty()) {
+            log.info("[{}] 没有检测到文档变化，跳过导入。", storeType);
+        } else {
+            log.info("[{}] 检测到 {} 个新增/变化文档: {}，{} 个已删除文档: {}", storeType,
+                    changes.size(), abbreviate(changes.stream().map(FileChange::relativePath).toList()),
+                    removed.size(), abbreviate(removed));
+        }
+
+        return new IngestionPlan(changes, removed, manifest);
+    }
+
+    /**
+     * 从旧版按文件名记录的清单 (data/.{storeType}_inventory) 或更早的标记文件迁移。
+     * 迁移的记录标记为 legacy：片段 ID 未知，变化或删除时按 file_name / absolute_directory_path 元数据删除
+     */
+    private IngestionManifest migrateLegacy(String storeType, String oldMarkerFile,
+                                            Map<String, Path> allFiles, Path manifestPath) throws IOException {
+        IngestionManifest manifest = new IngestionManifest();
+
+        Path inventoryPath = dataDirectory.resolve("." + storeType + "_inventory");
+        Path oldMarkerPath = Paths.get(oldMarkerFile);
+        Path legacyPath;
+        Set<String> ingestedNames;
+        if (Files.exists(inventoryPath)) {
+            legacyPath = inventoryPath;
+            ingestedNames = new HashSet<>(Files.readAllLines(inventoryPath, StandardCharsets.UTF_8));
+        } else if (Files.exists(oldMarkerPath)) {
+            // 旧版标记文件：假设所有当前存在的文件都已导入（为了避免重复数据）
+            legacyPath = oldMarkerPath;
+            ingestedNames = null;
+        } else {
+            return manifest;
+        }
+
+        log.info("检测到旧版清单: {}，正在迁移至 {}...", legacyPath, manifestPath);
+        for (Map.Entry<String, Path> file : allFiles.entrySet()) {
+            Path path = file.getValue();
+            if (ingestedNames != null && !ingestedNames.contains(path.getFileName().toString())) {
+                continue;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            manifest.getFiles().put(file.getKey(), new IngestionManifest.FileEntry(
+                    attributes.size(), attributes.lastModifiedTime().toMillis(), Hashing.sha256(path),
+                    Collections.emptyList(), true));
+        }
+        manifest.save(manifestPath);
+        // 删除旧清单，完成迁移
+        Files.delete(legacyPath);
+        log.info("迁移完成，旧版清单已删除。");
+        return manifest;
+    }
 
-            if (newFiles.isEmpty()) {
-                log.info("[{}] 没有检测到新文档，跳过导入。", storeType);
-            } else {
-                log.info("[{}] 检测到 {} 个新文档: {}", storeType, newFiles.size(), 
-                        newFiles.stream().map(p -> p.getFileName().toString()).collect(Collectors.joining(", ")));
+    /**
+     * 相对路径本身或其所在的某一级目录在范围内
+     */
+    private static boolean inScope(Set<String> scope, String relativePath) {
+        for (String path = relativePath; ; path = path.substring(0, path.lastIndexOf('/'))) {
+            if (scope.contains(path)) {
+                return true;
             }
+            if (path.indexOf('/') < 0) {
+                return false;
+            }
+        }
+    }
 
-            return newFiles;
+    /**
+     * @return 相对路径 (使用 / 分隔) -> 文件路径，按相对路径排序
+     */
+    private Map<String, Path> getAllDocumentFiles() throws IOException {
+        Path documentPath = getDocumentRoot();
+        if (documentPath == null) {
+            return Collections.emptyMap();
+        }
 
-        } catch (IOException | URISyntaxException e) {
-            log.error("解析增量文件失败", e);
-            return Collections.emptyList();
+        try (Stream<Path> stream = Files.walk(documentPath)) {
+            return stream
+                    .filter(IngestionHelper::isDocument)
+                    .sorted()
+                    .collect(Collectors.toMap(
+                            path -> relativize(documentPath, path),
+                            path -> path,
+                            (a, b) -> a,
+                            LinkedHashMap::new));
         }
     }
 
     /**
-     * 更新清单文件，将新导入的文件名追加进去
+     * 范围内仍存在的文件，已删除的路径忽略
      *
-     * @param storeType 向量库类型标识
-     * @param newFiles  新导入的文件列表
+     * @return 相对路径 (使用 / 分隔) -> 文件路径，按相对路径排序
      */
-    public void updateInventory(String storeType, List<Path> newFiles) {
-        if (newFiles == null || newFiles.isEmpty()) {
-            return;
+    private Map<String, Path> getDocumentFiles(Collection<String> scope) throws IOException {
+        Path documentPath = getDocumentRoot();
+        if (documentPath == null) {
+            return Collections.emptyMap();
         }
-        Path inventoryPath = Paths.get("data", "." + storeType + "_inventory");
-        updateInventory(inventoryPath, newFiles);
-    }
 
-    private void updateInventory(Path inventoryPath, List<Path> files) {
-        try {
-            if (!Files.exists(inventoryPath.getParent())) {
-                Files.createDirectories(inventoryPath.getParent());
+        Map<String, Path> files = new TreeMap<>();
+        for (String relativePath : scope) {
+            Path path = documentPath.resolve(relativePath);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> stream = Files.walk(path)) {
+                    stream.filter(IngestionHelper::isDocument)
+                            .forEach(file -> files.put(relativize(documentPath, file), file));
+                }
+            } else if (isDocument(path)) {
+                files.put(relativePath, path);
             }
+        }
+        return new LinkedHashMap<>(files);
+    }
 
-            List<String> fileNames = files.stream()
-                    .map(path -> path.getFileName().toString())
-                    .collect(Collectors.toList());
+    /**
+     * 参与导入的文件：普通文件，忽略隐藏文件
+     */
+    static boolean isDocument(Path path) {
+        return Files.isRegularFile(path) && !path.getFileName().toString().startsWith(".");
+    }
 
-            Files.write(inventoryPath, fileNames, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-            
-            log.info("已更新导入清单: {}", inventoryPath);
-        } catch (IOException e) {
-            log.error("更新导入清单失败", e);
-        }
+    /**
+     * 根据相对路径定位文档 (文件可能已被删除)
+     */
+    public Path resolveDocument(String relativePath) {
+        Path root = getDocumentRoot();
+        return root == null ? Paths.get(relativePath) : root.resolve(relativePath);
     }
 
-    private List<Path> getAllDocumentFiles() throws URISyntaxException, IOException {
+    /**
+     * 文档目录，classpath 中没有 documents 目录时返回 null
+     */
+    public Path getDocumentRoot() {
+        if (documentRoot != null) {
+            return documentRoot;
+        }
         URL url = IngestionHelper.class.getClassLoader().getResource("documents");
         if (url == null) {
-            return Collections.emptyList();
+            return null;
         }
 
-        Path documentPath;
         try {
-            documentPath = Paths.get(url.toURI());
+            return Paths.get(url.toURI());
         } catch (URISyntaxException e) {
-            documentPath = Paths.get(url.getPath());
+            return Paths.get(url.getPath());
         }
+    }
 
-        try (Stream<Path> stream = Files.walk(documentPath)) {
-            return stream
-                    .filter(Files::isRegularFile)
-                    .filter(path -> !path.getFileName().toString().startsWith(".")) // 忽略隐藏文件
-                    .collect(Collectors.toList());
+    /**
+     * 日志中最多列出 LOGGED_PATHS 个文件，大目录首次导入时避免输出超长日志
+     */
+    private static String abbreviate(List<String> paths) {
+        if (paths.size() <= LOGGED_PATHS) {
+            return String.join(", ", paths);
         }
+        return String.join(", ", paths.subList(0, LOGGED_PATHS)) + " 等";
+    }
+
+    static String relativize(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
     }
 }
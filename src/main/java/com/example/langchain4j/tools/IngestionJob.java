@@ -0,0 +1,539 @@
+package com.example.langchain4j.tools;
+
+import com.example.langchain4j.config.AppProperties;
+import com.example.langchain4j.rag.KeywordIndex;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.parser.TextDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * 后台文档导入任务
+ *
+ * 应用启动完成 (ApplicationReadyEvent) 后在独立线程中增量导入文档，
+ * HTTP 服务无需等待导入结束即可对外提供服务，RAG 检索使用已导入的部分。
+ * 运行期间可通过 {@link #reindex} 再次增量导入 (由 {@link DocumentWatcher} 在文档目录变化后调用)，
+ * 各次导入在同一线程中依次执行，排队期间提交的范围合并为一次。
+ * 新增文件全量导入；内容变化的文件只向量化变化的片段；已删除文件的片段从向量库移除。
+ * 清单定期保存，中途停止后下次启动可继续。
+ * 知识库内容发生变化时发布 {@link CorpusChangedEvent}，供答案缓存等组件失效。
+ * 启用混合检索时同步维护关键词索引，导入结束后对照清单补齐缺失片段、删除多余片段。
+ * 超过 streamingThreshold 的大文件由 {@link StreamingDocumentSplitter} 流式切分，
+ * 新片段每累计 ingestBatchSize 个即交给 {@link IngestionPipeline}，切分、向量化与写入向量库并行进行，
+ * 堆内存占用与文件大小无关。
+ */
+@Slf4j
+public class IngestionJob implements ApplicationEventPublisherAware {
+
+    /**
+     * 片段元数据：文档相对路径
+     */
+    public static final String SOURCE_PATH = "source_path";
+
+    private static final long MANIFEST_SAVE_INTERVAL_MS = 2000;
+
+    public enum State {
+        /**
+         * 等待应用启动完成
+         */
+        PENDING,
+        /**
+         * 正在导入
+         */
+        RUNNING,
+        /**
+         * 导入完成，知识库已是最新 (此后文档目录的变化会再次进入 RUNNING)
+         */
+        READY,
+        /**
+         * 导入过程异常中止
+         */
+        FAILED
+    }
+
+    private final String storeType;
+    private final String oldMarkerFile;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingModel embeddingModel;
+    private final AppProperties appProperties;
+    private final IngestionHelper ingestionHelper;
+    private final KeywordIndex keywordIndex;
+    private final StreamingDocumentSplitter streamingSplitter;
+    private final long streamingThreshold;
+    private final int batchSize;
+    private final IngestionPipeline pipeline;
+
+    private final ExecutorService executor;
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile State state = State.PENDING;
+    private final AtomicInteger totalFiles = new AtomicInteger();
+    private final AtomicInteger processedFiles = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private final AtomicInteger removedFiles = new AtomicInteger();
+    private final AtomicLong reusedSegments = new AtomicLong();
+    private final AtomicLong removedSegments = new AtomicLong();
+    private final AtomicInteger runs = new AtomicInteger();
+    private final AtomicLong completedRunsMs = new AtomicLong();
+    private volatile long runStartTime;
+
+    private final Object pendingLock = new Object();
+    private final Set<String> pendingPaths = new TreeSet<>();
+    private boolean pendingFullScan;
+    private boolean reindexScheduled;
+
+    /**
+     * @param storeType      向量库类型标识 (例如 "pgvector")，用于清单文件名与日志
+     * @param oldMarkerFile  旧版标记文件 (兼容处理)
+     * @param embeddingStore 目标向量库
+     * @param embeddingModel 文档向量化模型
+     * @param keywordIndex   关键词索引，未启用混合检索时为 null
+     * @param writeBatchSize 每次批量写入向量库的最大片段数
+     */
+    public IngestionJob(String storeType, String oldMarkerFile,
+                        EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                        AppProperties appProperties, IngestionHelper ingestionHelper, KeywordIndex keywordIndex,
+                        int writeBatchSize) {
+        this.storeType = storeType;
+        this.oldMarkerFile = oldMarkerFile;
+        this.embeddingStore = embeddingStore;
+        this.embeddingModel = embeddingModel;
+        this.appProperties = appProperties;
+        this.ingestionHelper = ingestionHelper;
+        this.keywordIndex = keywordIndex;
+        AppProperties.Document document = appProperties.getDocument();
+        this.streamingSplitter = new StreamingDocumentSplitter(document.getMaxSegmentSize(),
+                document.getMaxOverlapSize());
+        this.streamingThreshold = document.getStreamingThreshold().toBytes();
+        this.batchSize = Math.max(1, document.getIngestBatchSize());
+        this.pipeline = new IngestionPipeline(storeType, embeddingModel, embeddingStore, keywordIndex,
+                document.getPipelineQueueCapacity(), writeBatchSize);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ingestion-" + storeType);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reindex(null);
+    }
+
+    /**
+     * 在后台增量导入指定范围，正在导入时排在其后执行
+     *
+     * @param paths 相对于文档目录的路径 (文件或目录，使用 / 分隔)，null 时对比整个文档目录
+     */
+    public void reindex(Collection<String> paths) {
+        synchronized (pendingLock) {
+            if (paths == null) {
+                pendingFullScan = true;
+            } else {
+                pendingPaths.addAll(paths);
+            }
+            if (reindexScheduled) {
+                return;
+            }
+            reindexScheduled = true;
+        }
+        executor.submit(() -> {
+            Set<String> scope;
+            synchronized (pendingLock) {
+                scope = pendingFullScan ? null : new TreeSet<>(pendingPaths);
+                pendingPaths.clear();
+                pendingFullScan = false;
+                reindexScheduled = false;
+            }
+            run(scope);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param scope 需要对比的相对路径，null 时对比整个文档目录
+     */
+    private void run(Collection<String> scope) {
+        state = State.RUNNING;
+        long start = System.currentTimeMillis();
+        runStartTime = start;
+        runs.incrementAndGet();
+        // 计数器在各次导入间累计，本次导入的数量按差值计算
+        int processedBefore = processedFiles.get();
+        int failedBefore = failedFiles.get();
+        int removedBefore = removedFiles.get();
+        long segmentsBefore = pipeline.writtenSegments();
+        long reusedBefore = reusedSegments.get();
+        long removedSegmentsBefore = removedSegments.get();
+        try {
+            // 1. 对比清单，计算新增 / 变化 / 删除的文件
+            IngestionHelper.IngestionPlan plan = ingestionHelper.resolveChanges(storeType, oldMarkerFile, scope);
+            IngestionManifest manifest = plan.manifest();
+            Path manifestPath = ingestionHelper.manifestPath(storeType);
+            int planned = plan.changes().size() + plan.removed().size();
+            totalFiles.addAndGet(planned);
+
+            DocumentSplitter splitter = DocumentSplitters.recursive(
+                    appProperties.getDocument().getMaxSegmentSize(),
+                    appProperties.getDocument().getMaxOverlapSize());
+
+            // 2. 删除已不存在的文件对应的片段
+            for (String relativePath : plan.removed()) {
+                try {
+                    removeSegments(manifest.getFiles().get(relativePath), ingestionHelper.resolveDocument(relativePath));
+                    manifest.getFiles().remove(relativePath);
+                    removedFiles.incrementAndGet();
+                } catch (Exception e) {
+                    failedFiles.incrementAndGet();
+                    log.error("[{}] 删除文件片段失败: {}", storeType, relativePath, e);
+                }
+                processedFiles.incrementAndGet();
+            }
+
+            // 3. 逐个切分新增 / 变化的文件，只有内容变化的片段进入流水线向量化并写入
+            long lastSave = System.currentTimeMillis();
+            pipeline.start();
+            try {
+                for (IngestionHelper.FileChange change : plan.changes()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        log.warn("[{}] 导入任务被中断", storeType);
+                        break;
+                    }
+                    if (pipeline.failure() != null) {
+                        // 流水线已失败，drain 中收尾并抛出异常
+                        break;
+                    }
+                    ingestFile(change, splitter, manifest);
+
+                    // 4. 定期保存清单，中途停止后下次启动可继续
+                    if (System.currentTimeMillis() - lastSave > MANIFEST_SAVE_INTERVAL_MS) {
+                        synchronized (manifest) {
+                            manifest.save(manifestPath);
+                        }
+                        lastSave = System.currentTimeMillis();
+                    }
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    pipeline.drain();
+                }
+            } finally {
+                pipeline.abort();
+            }
+            synchronized (manifest) {
+                manifest.save(manifestPath);
+            }
+            if (scope == null) {
+                syncKeywordIndex(manifest, splitter);
+            } else if (keywordIndex != null) {
+                // 局部导入时关键词索引已随流水线同步增删，只需保存
+                keywordIndex.save();
+            }
+
+            state = State.READY;
+            if (planned > 0) {
+                long elapsed = System.currentTimeMillis() - start;
+                long segments = pipeline.writtenSegments() - segmentsBefore;
+                log.info("[{}] 增量导入完成，耗时: {}ms，向量化 {} 个片段 ({} 片段/秒)，复用 {} 个，删除 {} 个",
+                        storeType, elapsed, segments,
+                        String.format("%.1f", elapsed == 0 ? 0 : segments * 1000.0 / elapsed),
+                        reusedSegments.get() - reusedBefore, removedSegments.get() - removedSegmentsBefore);
+            }
+        } catch (Exception e) {
+            state = State.FAILED;
+            log.error("[{}] 导入任务失败", storeType, e);
+        } finally {
+            completedRunsMs.addAndGet(System.currentTimeMillis() - start);
+            runStartTime = 0;
+            int removed = removedFiles.get() - removedBefore;
+            publishCorpusChanged(processedFiles.get() - processedBefore - (failedFiles.get() - failedBefore) - removed,
+                    removed);
+        }
+    }
+
+    private void publishCorpusChanged(int changed, int removed) {
+        if (eventPublisher != null && (changed > 0 || removed > 0)) {
+            eventPublisher.publishEvent(new CorpusChangedEvent(storeType, changed, removed));
+        }
+    }
+
+    /**
+     * 切分单个文件并按片段摘要与旧记录对比：未变化的片段保留原向量，
+     * 新片段每累计 batchSize 个提交给流水线，全部写入后由 {@link #completeFile} 更新清单
+     */
+    private void ingestFile(IngestionHelper.FileChange change, DocumentSplitter splitter, IngestionManifest manifest) {
+        IngestionManifest.FileEntry previous = change.previous();
+        Map<String, String> reusable = new HashMap<>();
+        if (previous != null && !previous.legacy()) {
+            previous.segments().forEach(segment -> reusable.put(segment.hash(), segment.id()));
+        }
+        IngestionPipeline.FileTask task = pipeline.newTask(change.relativePath(),
+                completed -> completeFile(completed, change, reusable, manifest));
+
+        Set<String> seen = new HashSet<>();
+        List<TextSegment> pending = new ArrayList<>();
+        List<String> pendingHashes = new ArrayList<>();
+        try {
+            if (previous != null && previous.legacy()) {
+                // 旧版记录没有片段 ID，先按文件元数据整体删除再全量导入
+                removeSegments(previous, change.path());
+            }
+            forEachSegment(change.path(), change.relativePath(), splitter, segment -> {
+                String hash = Hashing.sha256(segment.text());
+                if (!seen.add(hash)) {
+                    return;
+                }
+                String id = reusable.remove(hash);
+                if (id != null) {
+                    task.entries().add(new IngestionManifest.SegmentEntry(hash, id));
+                    return;
+                }
+                pending.add(segment);
+                pendingHashes.add(hash);
+                if (pending.size() >= batchSize) {
+                    submit(task, pending, pendingHashes);
+                }
+            });
+            submit(task, pending, pendingHashes);
+        } catch (RuntimeException | IOException e) {
+            task.fail(e);
+        } finally {
+            pipeline.finish(task);
+        }
+    }
+
+    private void submit(IngestionPipeline.FileTask task, List<TextSegment> batch, List<String> hashes) {
+        try {
+            pipeline.submit(task, batch, hashes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("导入任务被中断", e);
+        }
+        batch.clear();
+        hashes.clear();
+    }
+
+    /**
+     * 文件的全部新片段写入后调用 (流水线线程)：删除已不存在的旧片段并更新清单；
+     * 文件失败时撤销本次已写入的片段，这些片段不会记入清单
+     */
+    private void completeFile(IngestionPipeline.FileTask task, IngestionHelper.FileChange change,
+                              Map<String, String> reusable, IngestionManifest manifest) {
+        if (task.failure() == null) {
+            try {
+                // 新片段已全部写入，再删除旧片段，避免检索时该文件短暂不可见
+                if (!reusable.isEmpty()) {
+                    embeddingStore.removeAll(reusable.values());
+                    if (keywordIndex != null) {
+                        keywordIndex.remove(reusable.values());
+                    }
+                    removedSegments.addAndGet(reusable.size());
+                }
+                reusedSegments.addAndGet(task.entries().size() - task.addedIds().size());
+                synchronized (manifest) {
+                    manifest.getFiles().put(change.relativePath(), new IngestionManifest.FileEntry(change.size(),
+                            change.lastModified(), change.hash(), List.copyOf(task.entries()), false));
+                }
+            } catch (RuntimeException e) {
+                task.fail(e);
+            }
+        }
+        if (task.failure() != null) {
+            failedFiles.incrementAndGet();
+            log.error("[{}] 导入文件失败: {}", storeType, change.relativePath(), task.failure());
+            List<String> added = List.copyOf(task.addedIds());
+            if (!added.isEmpty()) {
+                try {
+                    embeddingStore.removeAll(added);
+                    if (keywordIndex != null) {
+                        keywordIndex.remove(added);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("[{}] 撤销失败文件已写入的片段失败: {}", storeType, change.relativePath(), e);
+                }
+            }
+        }
+        int processed = processedFiles.incrementAndGet();
+        log.info("[{}] 导入进度 {}/{}，已向量化 {} 个片段，复用 {} 个片段", storeType,
+                processed, totalFiles.get(), pipeline.writtenSegments(), reusedSegments.get());
+    }
+
+    /**
+     * 按文件顺序切分文档：不超过 streamingThreshold 的文件整体加载后切分，更大的文件流式切分
+     */
+    private void forEachSegment(Path path, String relativePath, DocumentSplitter splitter,
+                                Consumer<TextSegment> consumer) throws IOException {
+        if (Files.size(path) > streamingThreshold) {
+            Metadata metadata = StreamingDocumentSplitter.metadata(path).put(SOURCE_PATH, relativePath);
+            long count = streamingSplitter.split(path, metadata, consumer);
+            log.info("[{}] 流式切分大文件: {} ({} MB，{} 个片段)", storeType, relativePath,
+                    Files.size(path) / (1024 * 1024), count);
+            return;
+        }
+        Document document = FileSystemDocumentLoader.loadDocument(path, new TextDocumentParser());
+        document.metadata().put(SOURCE_PATH, relativePath);
+        splitter.split(document).forEach(consumer);
+    }
+
+    /**
+     * 使关键词索引与清单一致: 删除清单中已不存在的片段，
+     * 缺少片段的文件 (首次启用混合检索、索引文件丢失或上次未正常保存) 重新切分，
+     * 按片段摘要找回向量库 ID 后写入，无需重新向量化
+     */
+    private void syncKeywordIndex(IngestionManifest manifest, DocumentSplitter splitter) throws IOException {
+        if (keywordIndex == null) {
+            return;
+        }
+        Set<String> expected = new HashSet<>();
+        List<String> incomplete = new ArrayList<>();
+        manifest.getFiles().forEach((relativePath, entry) -> {
+            if (entry.legacy()) {
+                return;
+            }
+            boolean complete = true;
+            for (IngestionManifest.SegmentEntry segment : entry.segments()) {
+                expected.add(segment.id());
+                complete &= keywordIndex.contains(segment.id());
+            }
+            if (!complete) {
+                incomplete.add(relativePath);
+            }
+        });
+        int stale = keywordIndex.retainAll(expected);
+
+        int restored = 0;
+        for (String relativePath : incomplete) {
+            try {
+                Map<String, String> ids = new HashMap<>();
+                for (IngestionManifest.SegmentEntry segment : manifest.getFiles().get(relativePath).segments()) {
+                    ids.put(segment.hash(), segment.id());
+                }
+                List<String> missingIds = new ArrayList<>();
+                List<TextSegment> missing = new ArrayList<>();
+                forEachSegment(ingestionHelper.resolveDocument(relativePath), relativePath, splitter, segment -> {
+                    String id = ids.remove(Hashing.sha256(segment.text()));
+                    if (id != null && !keywordIndex.contains(id)) {
+                        missingIds.add(id);
+                        missing.add(segment);
+                    }
+                });
+                keywordIndex.add(missingIds, missing);
+                restored += missing.size();
+            } catch (Exception e) {
+                log.warn("[{}] 关键词索引补齐失败: {}", storeType, relativePath, e);
+            }
+        }
+        if (stale > 0 || restored > 0) {
+            log.info("[{}] 关键词索引已与清单同步: 补齐 {} 个片段，删除 {} 个片段", storeType, restored, stale);
+        }
+        keywordIndex.save();
+    }
+
+    /**
+     * 删除文件对应的全部片段
+     *
+     * @param entry 清单记录
+     * @param path  文件路径，legacy 记录按 file_name / absolute_directory_path 元数据删除
+     */
+    private void removeSegments(IngestionManifest.FileEntry entry, Path path) {
+        if (entry == null) {
+            return;
+        }
+        if (!entry.legacy()) {
+            List<String> ids = entry.segments().stream().map(IngestionManifest.SegmentEntry::id).toList();
+            if (!ids.isEmpty()) {
+                embeddingStore.removeAll(ids);
+                if (keywordIndex != null) {
+                    keywordIndex.remove(ids);
+                }
+                removedSegments.addAndGet(ids.size());
+            }
+            return;
+        }
+        embeddingStore.removeAll(metadataKey(Document.FILE_NAME).isEqualTo(path.getFileName().toString())
+                .and(metadataKey(Document.ABSOLUTE_DIRECTORY_PATH)
+                        .isEqualTo(path.toAbsolutePath().getParent().toString())));
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 知识库是否已完成导入
+     */
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public Progress progress() {
+        long start = runStartTime;
+        long elapsed = completedRunsMs.get() + (start == 0 ? 0 : System.currentTimeMillis() - start);
+        long segmentCount = pipeline.writtenSegments();
+        double throughput = elapsed == 0 ? 0 : segmentCount * 1000.0 / elapsed;
+        return new Progress(storeType, state, runs.get(), totalFiles.get(), processedFiles.get(), failedFiles.get(),
+                removedFiles.get(), segmentCount, reusedSegments.get(), removedSegments.get(), elapsed, throughput,
+                pipeline.stages());
+    }
+
+    /**
+     * 以下数量均为启动以来各次导入的累计值
+     *
+     * @param storeType         向量库类型
+     * @param state             当前状态
+     * @param runs              导入次数 (启动时一次，之后每批文档目录变化一次)
+     * @param totalFiles        需要处理的文件数 (新增、变化与删除)
+     * @param processedFiles    已处理的文件数 (含失败)
+     * @param failedFiles       处理失败的文件数
+     * @param removedFiles      已删除的文件数
+     * @param segments          已向量化并写入的片段数
+     * @param reusedSegments    内容未变、复用原向量的片段数
+     * @param removedSegments   从向量库删除的片段数
+     * @param elapsedMs         导入耗时
+     * @param segmentsPerSecond 导入吞吐量 (片段/秒)
+     * @param stages            流水线各阶段 (split / embed / store) 的处理量与忙碌时间占比
+     */
+    public record Progress(String storeType, State state, int runs, int totalFiles, int processedFiles,
+                           int failedFiles, int removedFiles, long segments, long reusedSegments,
+                           long removedSegments, long elapsedMs, double segmentsPerSecond,
+                           List<IngestionPipeline.StageStats> stages) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.langchain4j.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 导入清单
+ *
+ * 以文档相对路径为键，记录文件大小、修改时间、内容摘要，
+ * 以及写入向量库的每个片段的摘要与 ID，用于增量新增 / 重新向量化 / 删除
+ */
+@Data
+public class IngestionManifest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 相对路径 (使用 / 分隔) -> 文件记录
+     */
+    private TreeMap<String, FileEntry> files = new TreeMap<>();
+
+    /**
+     * @param size         文件大小
+     * @param lastModified 最后修改时间 (ms)
+     * @param hash         文件内容 SHA-256
+     * @param segments     已写入向量库的片段
+     * @param legacy       由旧版清单迁移而来，片段 ID 未知，只能按文件元数据删除
+     */
+    public record FileEntry(long size, long lastModified, String hash, List<SegmentEntry> segments, boolean legacy) {
+    }
+
+    /**
+     * @param hash 片段文本 SHA-256
+     * @param id   向量库中的 ID
+     */
+    public record SegmentEntry(String hash, String id) {
+    }
+
+    public static IngestionManifest load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new IngestionManifest();
+        }
+        return MAPPER.readValue(path.toFile(), IngestionManifest.class);
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免写入中途退出导致清单损坏
+     */
+    public synchronized void save(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), this);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
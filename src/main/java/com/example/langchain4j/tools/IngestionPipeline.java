@@ -0,0 +1,468 @@
+package com.example.langchain4j.tools;
+
+import com.example.langchain4j.rag.KeywordIndex;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 流水线导入：切分 → 向量化 → 写入向量库，三个阶段各占一个线程，阶段之间以有界队列相连
+ *
+ * 切分阶段在调用方线程按文件产生片段批次，向量化线程逐批调用 embedAll，
+ * 写入线程合并相邻批次后按 writeBatchSize 批量调用 addAll，向量化与写入互相重叠。
+ * 队列满时上游阻塞 (背压)，内存中最多驻留 2 * (queueCapacity + 1) 个批次。
+ * 文件的全部批次写入 (或失败) 后回调 {@link FileTask} 的完成处理，回调可能在任一阶段线程中执行。
+ * 单个批次的任何异常 (含 Error) 只使所属文件失败；阶段线程本身异常退出时流水线失败，
+ * submit / drain 不再阻塞而是抛出异常，尚未完成的文件按失败回调，以便撤销已写入的片段。
+ * 各阶段忙碌时间占比见 {@link #stages()}，接近 100% 的阶段即为瓶颈。
+ */
+@Slf4j
+public class IngestionPipeline {
+
+    public static final String SPLIT = "split";
+    public static final String EMBED = "embed";
+    public static final String STORE = "store";
+
+    private static final Batch END = new Batch(null, List.of(), List.of(), List.of());
+
+    /**
+     * 向队列放入批次时检查流水线是否已失败的间隔
+     */
+    private static final long QUEUE_CHECK_MS = 100;
+
+    private final String storeType;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final KeywordIndex keywordIndex;
+    private final int queueCapacity;
+    private final int writeBatchSize;
+
+    private final AtomicLong splitItems = new AtomicLong();
+    private final AtomicLong splitNanos = new AtomicLong();
+    private final AtomicLong embedItems = new AtomicLong();
+    private final AtomicLong embedNanos = new AtomicLong();
+    private final AtomicLong storeItems = new AtomicLong();
+    private final AtomicLong storeNanos = new AtomicLong();
+    private final AtomicLong storeWrites = new AtomicLong();
+    private final AtomicLong activeNanos = new AtomicLong();
+
+    private BlockingQueue<Batch> embedQueue;
+    private BlockingQueue<Batch> storeQueue;
+    private Thread embedThread;
+    private Thread storeThread;
+    private volatile long runStart;
+    private volatile long blockedNanos;
+    private volatile Throwable failure;
+
+    /**
+     * 已开始且尚未回调完成处理的文件
+     */
+    private final Set<FileTask> openTasks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param keywordIndex   关键词索引，与向量库同批写入，未启用混合检索时为 null
+     * @param queueCapacity  阶段之间的队列容量 (批次数)
+     * @param writeBatchSize 每次 addAll 的最大片段数
+     */
+    public IngestionPipeline(String storeType, EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore,
+                             KeywordIndex keywordIndex, int queueCapacity, int writeBatchSize) {
+        this.storeType = storeType;
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.keywordIndex = keywordIndex;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+    }
+
+    /**
+     * 启动向量化与写入线程
+     */
+    public void start() {
+        embedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        storeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        blockedNanos = 0;
+        failure = null;
+        openTasks.clear();
+        runStart = System.nanoTime();
+        embedThread = thread("ingestion-embed-" + storeType, this::embedLoop);
+        storeThread = thread("ingestion-store-" + storeType, this::storeLoop);
+    }
+
+    /**
+     * 开始一个文件；切分结束后必须调用 {@link #finish(FileTask)}
+     *
+     * @param onComplete 文件的全部批次写入或失败后调用
+     */
+    public FileTask newTask(String relativePath, Consumer<FileTask> onComplete) {
+        FileTask task = new FileTask(relativePath, onComplete);
+        openTasks.add(task);
+        return task;
+    }
+
+    /**
+     * 提交文件的一批新片段，向量化队列已满时阻塞
+     *
+     * @throws IllegalStateException 阶段线程已异常退出
+     */
+    public void submit(FileTask task, List<TextSegment> segments, List<String> hashes) throws InterruptedException {
+        if (segments.isEmpty()) {
+            return;
+        }
+        checkFailure();
+        task.pending.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            put(embedQueue, new Batch(task, List.copyOf(segments), List.copyOf(hashes), List.of()));
+        } catch (InterruptedException | RuntimeException e) {
+            task.pending.decrementAndGet();
+            throw e;
+        }
+        blockedNanos += System.nanoTime() - start;
+        splitItems.addAndGet(segments.size());
+    }
+
+    /**
+     * 文件切分结束 (或失败)，已提交的批次全部完成后回调完成处理
+     */
+    public void finish(FileTask task) {
+        done(task);
+    }
+
+    /**
+     * 等待已提交的批次全部写入并停止阶段线程
+     *
+     * @throws IllegalStateException 阶段线程异常退出，未完成的文件已按失败回调
+     */
+    public void drain() throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            put(embedQueue, END);
+        } catch (IllegalStateException e) {
+            // 阶段线程已退出 (并互相中断)，直接等待其结束
+        }
+        embedThread.join();
+        if (failure != null) {
+            storeThread.interrupt();
+        }
+        storeThread.join();
+        long now = System.nanoTime();
+        splitNanos.addAndGet(start - runStart - blockedNanos);
+        activeNanos.addAndGet(now - runStart);
+        runStart = 0;
+
+        Throwable cause = failure;
+        if (cause != null) {
+            // 退出的阶段中未处理的批次不会再回调，按失败完成其文件，由回调撤销已写入的片段
+            for (FileTask task : List.copyOf(openTasks)) {
+                task.fail(cause);
+                complete(task);
+            }
+            checkFailure();
+        }
+    }
+
+    /**
+     * 阶段线程异常退出的原因，流水线正常时为 null
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
+    private void checkFailure() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("导入流水线阶段线程异常退出", cause);
+        }
+    }
+
+    /**
+     * 队列满时等待，期间流水线失败则抛出异常，避免下游线程退出后永远阻塞
+     */
+    private void put(BlockingQueue<Batch> queue, Batch batch) throws InterruptedException {
+        while (!queue.offer(batch, QUEUE_CHECK_MS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    /**
+     * 阶段线程异常退出：记录失败并中断另一个阶段线程，drain 随后抛出异常
+     */
+    private void stageFailed(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+        log.error("[{}] 导入流水线阶段线程异常退出: {}", storeType, Thread.currentThread().getName(), e);
+        // start() 中线程先于字段赋值启动，极早失败时另一个线程可能尚未创建
+        for (Thread thread : new Thread[]{embedThread, storeThread}) {
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 中断阶段线程，未写入的批次丢弃，对应文件不会回调完成处理
+     */
+    public void abort() {
+        if (runStart == 0) {
+            return;
+        }
+        embedThread.interrupt();
+        storeThread.interrupt();
+        long now = System.nanoTime();
+        splitNanos.addAndGet(now - runStart - blockedNanos);
+        activeNanos.addAndGet(now - runStart);
+        runStart = 0;
+    }
+
+    private void embedLoop() {
+        try {
+            while (true) {
+                Batch batch = embedQueue.take();
+                if (batch == END) {
+                    put(storeQueue, END);
+                    return;
+                }
+                if (batch.task.failure != null) {
+                    done(batch.task);
+                    continue;
+                }
+                long start = System.nanoTime();
+                List<Embedding> embeddings;
+                try {
+                    embeddings = embeddingModel.embedAll(batch.segments).content();
+                } catch (Throwable e) {
+                    // 含 Error (如大批次向量化时内存不足)，只使该文件失败
+                    batch.task.fail(e);
+                    done(batch.task);
+                    continue;
+                } finally {
+                    embedNanos.addAndGet(System.nanoTime() - start);
+                }
+                embedItems.addAndGet(batch.segments.size());
+                put(storeQueue, new Batch(batch.task, batch.segments, batch.hashes, embeddings));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            stageFailed(e);
+        }
+    }
+
+    private void storeLoop() {
+        try {
+            List<Batch> group = new ArrayList<>();
+            boolean end = false;
+            while (!end) {
+                // 合并队列中已就绪的批次，凑满一次批量写入
+                Batch batch = storeQueue.take();
+                int size = 0;
+                while (batch != null) {
+                    if (batch == END) {
+                        end = true;
+                        break;
+                    }
+                    group.add(batch);
+                    size += batch.segments.size();
+                    batch = size < writeBatchSize ? storeQueue.poll() : null;
+                }
+                try {
+                    write(group);
+                } catch (Throwable e) {
+                    // write 内部的记账失败：整组文件失败，已分配的片段 ID 由完成回调撤销
+                    for (Batch failed : group) {
+                        failed.task.fail(e);
+                        done(failed.task);
+                    }
+                }
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            stageFailed(e);
+        }
+    }
+
+    /**
+     * 按 writeBatchSize 分块写入向量库与关键词索引，再把片段 ID 按顺序分回各批次；
+     * 某一块写入失败时后续块不再写入，未完整写入的批次所属文件标记为失败
+     */
+    private void write(List<Batch> group) {
+        List<Batch> live = group.stream().filter(batch -> batch.task.failure == null).toList();
+        List<TextSegment> segments = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        for (Batch batch : live) {
+            segments.addAll(batch.segments);
+            embeddings.addAll(batch.embeddings);
+        }
+
+        long start = System.nanoTime();
+        List<String> ids = new ArrayList<>(segments.size());
+        Throwable failure = null;
+        for (int from = 0; from < segments.size(); from += writeBatchSize) {
+            int to = Math.min(from + writeBatchSize, segments.size());
+            try {
+                List<String> written = embeddingStore.addAll(embeddings.subList(from, to), segments.subList(from, to));
+                ids.addAll(written);
+                if (keywordIndex != null) {
+                    keywordIndex.add(written, segments.subList(from, to));
+                }
+                storeWrites.incrementAndGet();
+            } catch (Throwable e) {
+                failure = e;
+                break;
+            }
+        }
+        storeNanos.addAndGet(System.nanoTime() - start);
+        storeItems.addAndGet(ids.size());
+
+        int offset = 0;
+        for (Batch batch : live) {
+            int count = batch.segments.size();
+            List<String> batchIds = ids.subList(Math.min(offset, ids.size()), Math.min(offset + count, ids.size()));
+            batch.task.addedIds.addAll(batchIds);
+            if (batchIds.size() == count) {
+                for (int i = 0; i < count; i++) {
+                    batch.task.entries.add(new IngestionManifest.SegmentEntry(batch.hashes.get(i), batchIds.get(i)));
+                }
+            } else {
+                batch.task.fail(failure != null ? failure : new IllegalStateException("向量库返回的片段 ID 数与写入的片段数不一致"));
+            }
+            offset += count;
+        }
+        for (Batch batch : group) {
+            done(batch.task);
+        }
+    }
+
+    private void done(FileTask task) {
+        if (task.pending.decrementAndGet() > 0) {
+            return;
+        }
+        complete(task);
+    }
+
+    /**
+     * 回调文件的完成处理，每个文件只回调一次
+     */
+    private void complete(FileTask task) {
+        if (!task.completed.compareAndSet(false, true)) {
+            return;
+        }
+        openTasks.remove(task);
+        try {
+            task.onComplete.accept(task);
+        } catch (Throwable e) {
+            log.error("[{}] 文件导入完成处理失败: {}", storeType, task.relativePath, e);
+        }
+    }
+
+    private static Thread thread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 写入向量库的片段数 (含随后因文件失败而撤销的片段)
+     */
+    public long writtenSegments() {
+        return storeItems.get();
+    }
+
+    /**
+     * 各阶段的处理量与忙碌时间占比 (相对流水线运行时间)
+     */
+    public List<StageStats> stages() {
+        long running = runStart == 0 ? 0 : System.nanoTime() - runStart;
+        long elapsed = activeNanos.get() + running;
+        long split = splitNanos.get() + (running == 0 ? 0 : Math.max(0, running - blockedNanos));
+        return List.of(
+                stage(SPLIT, splitItems.get(), 0, split, elapsed),
+                stage(EMBED, embedItems.get(), 0, embedNanos.get(), elapsed),
+                stage(STORE, storeItems.get(), storeWrites.get(), storeNanos.get(), elapsed));
+    }
+
+    private static StageStats stage(String name, long items, long calls, long busyNanos, long elapsedNanos) {
+        double utilization = elapsedNanos == 0 ? 0 : Math.min(1.0, (double) busyNanos / elapsedNanos);
+        return new StageStats(name, items, calls, busyNanos / 1_000_000, utilization);
+    }
+
+    /**
+     * @param name        阶段: split / embed / store
+     * @param segments    该阶段处理的片段数
+     * @param calls       批量写入次数 (仅 store 阶段)
+     * @param busyMs      累计忙碌耗时
+     * @param utilization 忙碌时间占流水线运行时间的比例
+     */
+    public record StageStats(String name, long segments, long calls, long busyMs, double utilization) {
+    }
+
+    /**
+     * 单个文件在流水线中的状态：已确定的清单片段、本次写入的片段 ID 与失败原因
+     */
+    public static final class FileTask {
+
+        private final String relativePath;
+        private final Consumer<FileTask> onComplete;
+        private final List<IngestionManifest.SegmentEntry> entries = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> addedIds = Collections.synchronizedList(new ArrayList<>());
+        // 未完成的批次数，另加 1 表示切分尚未结束
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile Throwable failure;
+
+        private FileTask(String relativePath, Consumer<FileTask> onComplete) {
+            this.relativePath = relativePath;
+            this.onComplete = onComplete;
+        }
+
+        public String relativePath() {
+            return relativePath;
+        }
+
+        /**
+         * 清单片段：复用的片段由切分阶段加入，新片段写入后由写入阶段加入
+         */
+        public List<IngestionManifest.SegmentEntry> entries() {
+            return entries;
+        }
+
+        /**
+         * 本次写入向量库的片段 ID，文件失败时据此撤销
+         */
+        public List<String> addedIds() {
+            return addedIds;
+        }
+
+        public Throwable failure() {
+            return failure;
+        }
+
+        public void fail(Throwable cause) {
+            if (failure == null) {
+                failure = cause;
+            }
+        }
+    }
+
+    private record Batch(FileTask task, List<TextSegment> segments, List<String> hashes, List<Embedding> embeddings) {
+    }
+}
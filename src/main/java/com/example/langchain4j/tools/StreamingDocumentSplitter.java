@@ -0,0 +1,165 @@
+package com.example.langchain4j.tools;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * 大文件流式切分
+ *
+ * 通过 FileChannel 按块读取并解码 UTF-8 文本，累计到一个窗口 (约 100 万字符) 后在段落或换行处截断，
+ * 窗口内用与普通导入相同的递归切分器切分，片段逐个交给调用方，堆内存占用与文件大小无关。
+ * 窗口之间按 maxOverlapSize 把上一个片段结尾的完整句子接到下一个窗口开头，保留片段重叠。
+ * 只有窗口边界附近的片段可能与整篇切分的结果不同。
+ */
+public class StreamingDocumentSplitter {
+
+    private static final int DEFAULT_WINDOW_CHARS = 1 << 20;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final DocumentSplitter splitter;
+    private final int maxOverlapSize;
+    private final int windowChars;
+
+    public StreamingDocumentSplitter(int maxSegmentSize, int maxOverlapSize) {
+        this(maxSegmentSize, maxOverlapSize, DEFAULT_WINDOW_CHARS);
+    }
+
+    /**
+     * @param windowChars 每个切分窗口的字符数，不小于 maxSegmentSize 的 4 倍
+     */
+    public StreamingDocumentSplitter(int maxSegmentSize, int maxOverlapSize, int windowChars) {
+        this.splitter = DocumentSplitters.recursive(maxSegmentSize, maxOverlapSize);
+        this.maxOverlapSize = maxOverlapSize;
+        this.windowChars = Math.max(windowChars, maxSegmentSize * 4);
+    }
+
+    /**
+     * 文件对应的文档元数据，与 FileSystemDocumentLoader 一致
+     */
+    public static Metadata metadata(Path path) {
+        Path absolute = path.toAbsolutePath();
+        return Metadata.from(Document.FILE_NAME, absolute.getFileName().toString())
+                .put(Document.ABSOLUTE_DIRECTORY_PATH, absolute.getParent().toString());
+    }
+
+    /**
+     * 逐个窗口切分文件，片段按文件顺序交给 consumer，元数据 index 为片段在整个文件中的序号
+     *
+     * @return 片段数
+     */
+    public long split(Path path, Metadata metadata, Consumer<TextSegment> consumer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        CharBuffer chars = CharBuffer.allocate(READ_BUFFER_BYTES);
+        StringBuilder pending = new StringBuilder(windowChars + READ_BUFFER_BYTES);
+        Window window = new Window(metadata, consumer);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, eof);
+                if (eof) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+                chars.flip();
+                pending.append(chars);
+                chars.clear();
+
+                while (pending.length() >= windowChars) {
+                    int cut = boundary(pending);
+                    window.split(pending.substring(0, cut));
+                    pending.delete(0, cut);
+                }
+            }
+        }
+        window.split(pending.toString());
+        return window.index;
+    }
+
+    /**
+     * 窗口截断位置：优先取后半个窗口内最后一个空行，其次最后一个换行，都没有时按窗口长度截断
+     */
+    private int boundary(CharSequence text) {
+        int from = windowChars / 2;
+        int lastNewline = -1;
+        for (int i = windowChars - 1; i >= from; i--) {
+            if (text.charAt(i) == '\n') {
+                if (text.charAt(i - 1) == '\n') {
+                    return i + 1;
+                }
+                if (lastNewline < 0) {
+                    lastNewline = i + 1;
+                }
+            }
+        }
+        if (lastNewline > 0) {
+            return lastNewline;
+        }
+        return Character.isHighSurrogate(text.charAt(windowChars - 1)) ? windowChars - 1 : windowChars;
+    }
+
+    /**
+     * 片段结尾不超过 maxOverlapSize 个字符的完整句子，作为下一个窗口的开头
+     */
+    private String overlap(String text) {
+        if (maxOverlapSize <= 0) {
+            return "";
+        }
+        for (int i = Math.max(0, text.length() - maxOverlapSize); i < text.length(); i++) {
+            if (i > 0 && isSentenceEnd(text.charAt(i - 1))) {
+                return text.substring(i).strip();
+            }
+        }
+        return "";
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '。' || c == '！' || c == '？' || c == '.' || c == '!' || c == '?' || c == '\n';
+    }
+
+    private class Window {
+
+        private final Metadata metadata;
+        private final Consumer<TextSegment> consumer;
+        private String carry = "";
+        private long index;
+
+        Window(Metadata metadata, Consumer<TextSegment> consumer) {
+            this.metadata = metadata;
+            this.consumer = consumer;
+        }
+
+        void split(String text) {
+            if (text.isBlank()) {
+                return;
+            }
+            String content = carry.isEmpty() ? text : carry + "\n\n" + text;
+            String last = null;
+            for (TextSegment segment : splitter.split(Document.from(content, metadata))) {
+                consumer.accept(TextSegment.from(segment.text(),
+                        metadata.copy().put("index", String.valueOf(index++))));
+                last = segment.text();
+            }
+            carry = last == null ? "" : overlap(last);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.langchain4j.chat;
+
+import com.example.langchain4j.config.AppProperties;
+import com.example.langchain4j.controller.ChatController;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdmissionControlTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> served = new CopyOnWriteArrayList<>();
+
+    /**
+     * 第一个调用 ("hold") 阻塞到 release，占住唯一的许可
+     */
+    private final ChatLanguageModel model = new ChatLanguageModel() {
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            String text = ((UserMessage) messages.get(0)).singleText();
+            served.add(text);
+            if (text.equals("hold")) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Response.from(AiMessage.from(text));
+        }
+    };
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void servesQueuedRequestsByPriority() throws Exception {
+        AdmissionControl admission = admissionControl(10, Duration.ofSeconds(10));
+        Future<?> hold = submit(admission, AdmissionControl.Priority.INTERACTIVE, "hold");
+        awaitUntil(() -> admission.stats().active() == 1);
+
+        Future<?> batch = submit(admission, AdmissionControl.Priority.BATCH, "batch");
+        awaitUntil(() -> admission.stats().queued() == 1);
+        Future<?> rag = submit(admission, AdmissionControl.Priority.RAG, "rag");
+        awaitUntil(() -> admission.stats().queued() == 2);
+        Future<?> interactive = submit(admission, AdmissionControl.Priority.INTERACTIVE, "interactive");
+        awaitUntil(() -> admission.stats().queued() == 3);
+
+        release.countDown();
+        for (Future<?> future : List.of(hold, batch, rag, interactive)) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(served).containsExactly("hold", "interactive", "rag", "batch");
+        assertThat(admission.stats().active()).isZero();
+    }
+
+    @Test
+    void shedsLowerPriorityWhenQueueIsFull() throws Exception {
+        AdmissionControl admission = admissionControl(1, Duration.ofSeconds(10));
+        Future<?> hold = submit(admission, AdmissionControl.Priority.INTERACTIVE, "hold");
+        awaitUntil(() -> admission.stats().active() == 1);
+        Future<?> batch = submit(admission, AdmissionControl.Priority.BATCH, "batch");
+        awaitUntil(() -> admission.stats().queued() == 1);
+
+        // 更高优先级的请求挤掉排队中的批量请求
+        Future<?> interactive = submit(admission, AdmissionControl.Priority.INTERACTIVE, "interactive");
+        assertThatThrownBy(() -> batch.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(AdmissionRejectedException.class);
+
+        // 队列中只剩不低于自己优先级的请求时立即拒绝
+        ChatLanguageModel rag = admission.wrap(model, AdmissionControl.Priority.RAG);
+        assertThatThrownBy(() -> rag.generate("rag"))
+                .isInstanceOf(AdmissionRejectedException.class)
+                .satisfies(e -> assertThat(((AdmissionRejectedException) e).getRetryAfterSeconds()).isPositive());
+
+        release.countDown();
+        hold.get(5, TimeUnit.SECONDS);
+        interactive.get(5, TimeUnit.SECONDS);
+        AdmissionControl.Stats stats = admission.stats();
+        assertThat(stats.shed()).isEqualTo(1);
+        assertThat(stats.rejected()).isEqualTo(2);
+        assertThat(served).containsExactly("hold", "interactive");
+    }
+
+    @Test
+    void rejectsAfterMaxQueueWait() {
+        AdmissionControl admission = admissionControl(10, Duration.ofMillis(100));
+        submit(admission, AdmissionControl.Priority.INTERACTIVE, "hold");
+        awaitUntil(() -> admission.stats().active() == 1);
+
+        ChatLanguageModel batch = admission.wrap(model, AdmissionControl.Priority.BATCH);
+        assertThatThrownBy(() -> batch.generate("batch")).isInstanceOf(AdmissionRejectedException.class);
+        assertThat(admission.stats().timedOut()).isEqualTo(1);
+        assertThat(admission.stats().queueDepth().get(AdmissionControl.Priority.BATCH)).isZero();
+    }
+
+    @Test
+    void rejectionMapsToTooManyRequests() throws Exception {
+        SingleFlightChat singleFlightChat = mock(SingleFlightChat.class);
+        when(singleFlightChat.generate(anyString())).thenThrow(new AdmissionRejectedException("服务繁忙", 7));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ChatController(singleFlightChat, null, null)).build();
+
+        mockMvc.perform(get("/api/chat").param("message", "你好"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "7"));
+    }
+
+    private AdmissionControl admissionControl(int maxQueueSize, Duration maxQueueWait) {
+        AppProperties appProperties = new AppProperties();
+        AppProperties.Admission config = appProperties.getChat().getAdmission();
+        config.setMaxConcurrent(1);
+        config.setMaxQueueSize(maxQueueSize);
+        config.setMaxQueueWait(maxQueueWait);
+        return new AdmissionControl(appProperties);
+    }
+
+    private Future<?> submit(AdmissionControl admission, AdmissionControl.Priority priority, String message) {
+        ChatLanguageModel admitted = admission.wrap(model, priority);
+        return executor.submit(() -> admitted.generate(message));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("等待条件超时").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.langchain4j.controller;
+
+import com.example.langchain4j.chat.SingleFlightChat;
+import com.example.langchain4j.service.StreamingKnowledgeBaseService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.tool.ToolExecution;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class ChatControllerTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamKeepsLeadingSpacesOfTokens() throws Exception {
+        SingleFlightChat singleFlightChat = mock(SingleFlightChat.class);
+        doAnswer(invocation -> {
+            StreamingResponseHandler<AiMessage> handler = invocation.getArgument(1);
+            handler.onNext("Hello");
+            handler.onNext(" world");
+            handler.onNext("\n  indented");
+            handler.onComplete(Response.from(AiMessage.from("Hello world\n  indented")));
+            return null;
+        }).when(singleFlightChat).generate(anyString(), any(StreamingResponseHandler.class));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ChatController(singleFlightChat, null, null)).build();
+
+        MvcResult result = mockMvc.perform(get("/api/chat/stream").param("message", "hi"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("event:token\ndata:{\"t\":\"Hello\"}\n\n",
+                "event:token\ndata:{\"t\":\" world\"}\n\n",
+                "event:token\ndata:{\"t\":\"\\n  indented\"}\n\n");
+    }
+
+    @Test
+    void ragStreamUsesSameTokenEncoding() throws Exception {
+        StreamingKnowledgeBaseService service = mock(StreamingKnowledgeBaseService.class);
+        when(service.chat(anyString(), anyString())).thenReturn(new FixedTokenStream(List.of("Hello", " world")));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ChatController(null, null, service)).build();
+
+        MvcResult result = mockMvc.perform(get("/api/chat/rag/stream").param("message", "hi"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("event:sources\n",
+                "event:token\ndata:{\"t\":\"Hello\"}\n\n",
+                "event:token\ndata:{\"t\":\" world\"}\n\n",
+                "event:done\n");
+    }
+
+    /**
+     * 调用 start 时同步回放固定 token 的 TokenStream
+     */
+    private static class FixedTokenStream implements TokenStream {
+
+        private final List<String> tokens;
+        private Consumer<List<Content>> retrieved = contents -> {
+        };
+        private Consumer<String> next;
+        private Consumer<Response<AiMessage>> complete;
+
+        private FixedTokenStream(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public TokenStream onNext(Consumer<String> tokenHandler) {
+            this.next = tokenHandler;
+            return this;
+        }
+
+        @Override
+        public TokenStream onRetrieved(Consumer<List<Content>> contentHandler) {
+            this.retrieved = contentHandler;
+            return this;
+        }
+
+        @Override
+        public TokenStream onToolExecuted(Consumer<ToolExecution> toolExecuteHandler) {
+            return this;
+        }
+
+        @Override
+        public TokenStream onComplete(Consumer<Response<AiMessage>> completionHandler) {
+            this.complete = completionHandler;
+            return this;
+        }
+
+        @Override
+        public TokenStream onError(Consumer<Throwable> errorHandler) {
+            return this;
+        }
+
+        @Override
+        public TokenStream ignoreErrors() {
+            return this;
+        }
+
+        @Override
+        public void start() {
+            retrieved.accept(List.of(Content.from("LangChain4j 片段")));
+            tokens.forEach(next);
+            complete.accept(Response.from(AiMessage.from(String.join("", tokens))));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.langchain4j.memory;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionChatMemoryProviderTest {
+
+    @Test
+    void evictsLeastRecentlyUsedSession() {
+        SessionChatMemoryProvider provider = provider(4, 2, Duration.ofMinutes(10));
+        ChatMemory first = provider.get("a");
+        first.add(UserMessage.from("a1"));
+        provider.get("b").add(UserMessage.from("b1"));
+        // 访问 a 后 b 成为最久未访问的会话
+        provider.get("a");
+        provider.get("c");
+
+        assertThat(provider.residentSessions()).isEqualTo(2);
+        assertThat(provider.get("a")).isSameAs(first);
+        assertThat(provider.get("b").messages()).isEmpty();
+        SessionChatMemoryProvider.Stats stats = provider.stats();
+        assertThat(stats.evictions()).isEqualTo(2);
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(4);
+    }
+
+    @Test
+    void expiresIdleSessions() throws Exception {
+        SessionChatMemoryProvider provider = provider(4, 10, Duration.ofMillis(50));
+        ChatMemory idle = provider.get("idle");
+        idle.add(UserMessage.from("hello"));
+        Thread.sleep(100);
+
+        assertThat(provider.get("idle")).isNotSameAs(idle);
+        assertThat(provider.residentSessions()).isEqualTo(1);
+        assertThat(provider.stats().expirations()).isEqualTo(1);
+        assertThat(provider.residentMessages()).isZero();
+    }
+
+    @Test
+    void tracksResidentMessages() {
+        SessionChatMemoryProvider provider = provider(4, 1, Duration.ofMinutes(10));
+        ChatMemory memory = provider.get("a");
+        for (int i = 0; i < 3; i++) {
+            memory.add(UserMessage.from("q" + i));
+            memory.add(AiMessage.from("a" + i));
+        }
+        // 窗口只保留最近 4 条
+        assertThat(memory.messages()).hasSize(4);
+        assertThat(provider.residentMessages()).isEqualTo(4);
+
+        memory.clear();
+        assertThat(provider.residentMessages()).isZero();
+        memory.add(UserMessage.from("q"));
+        assertThat(provider.residentMessages()).isEqualTo(1);
+
+        // 被淘汰的会话不再计入，之后的写入也不计入
+        provider.get("b");
+        assertThat(provider.residentMessages()).isZero();
+        memory.add(AiMessage.from("a"));
+        assertThat(provider.residentMessages()).isZero();
+    }
+
+    private static SessionChatMemoryProvider provider(int maxMessages, int maxSessions, Duration idleTtl) {
+        AppProperties appProperties = new AppProperties();
+        AppProperties.ChatMemory config = appProperties.getChatMemory();
+        config.setMaxMessages(maxMessages);
+        config.setMaxSessions(maxSessions);
+        config.setIdleTtl(idleTtl);
+        return new SessionChatMemoryProvider(appProperties);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.langchain4j.rag;
+
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class KeywordIndexTest {
+
+    private static final List<String> TEXTS = List.of(
+            "X200-Pro 支持快速充电",
+            "X300 的电池容量更大",
+            "快速充电需要配套的充电器");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tokenizesHanIntoBigrams() {
+        assertThat(KeywordIndex.tokenize("检索增强")).containsExactly("检索", "索增", "增强");
+        assertThat(KeywordIndex.tokenize("库")).containsExactly("库");
+        assertThat(KeywordIndex.tokenize("向量，库")).containsExactly("向量", "库");
+    }
+
+    @Test
+    void keepsModelNumbersAndSplitsConnectors() {
+        assertThat(KeywordIndex.tokenize("Ｘ200-Pro")).containsExactly("x200-pro", "x200", "pro");
+        assertThat(KeywordIndex.tokenize("v1.2版本")).containsExactly("v1.2", "v1", "2", "版本");
+        assertThat(KeywordIndex.tokenize("型号X200")).containsExactly("型号", "x200");
+        // 末尾的句点不是连接符
+        assertThat(KeywordIndex.tokenize("use x200.")).containsExactly("use", "x200");
+    }
+
+    @Test
+    void matchesModelNumberExactly() {
+        KeywordIndex index = KeywordIndex.open(directory.resolve("index.json"));
+        index.add(List.of("a", "b", "c"), TEXTS.stream().map(TextSegment::from).toList());
+
+        assertThat(index.search("x200", 10)).extracting(KeywordIndex.Hit::id).containsExactly("a");
+        assertThat(index.search("快速充电", 10)).extracting(KeywordIndex.Hit::id).containsExactlyInAnyOrder("a", "c");
+    }
+
+    @Test
+    void scoresAfterRemoveMatchFreshIndex() {
+        KeywordIndex fresh = indexOf(0);
+        KeywordIndex removed = indexOf(10);
+        removed.remove(fillerIds(10));
+
+        assertSameScores(removed, fresh);
+    }
+
+    @Test
+    void scoresAfterCompactionMatchFreshIndex() {
+        // 失效槽位不少于 1024 且多于有效文档时重建倒排表
+        KeywordIndex fresh = indexOf(0);
+        KeywordIndex compacted = indexOf(1100);
+        compacted.remove(fillerIds(1100));
+
+        assertThat(compacted.size()).isEqualTo(TEXTS.size());
+        assertSameScores(compacted, fresh);
+        compacted.add(List.of("d"), List.of(TextSegment.from("X200-Pro 新配色")));
+        assertThat(compacted.search("x200-pro", 10)).extracting(KeywordIndex.Hit::id)
+                .containsExactlyInAnyOrder("a", "d");
+    }
+
+    private KeywordIndex indexOf(int fillers) {
+        KeywordIndex index = KeywordIndex.open(directory.resolve("index-" + fillers + ".json"));
+        List<String> ids = new ArrayList<>(fillerIds(fillers));
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < fillers; i++) {
+            segments.add(TextSegment.from("无关内容 " + i + " 快速"));
+        }
+        ids.addAll(List.of("a", "b", "c"));
+        TEXTS.forEach(text -> segments.add(TextSegment.from(text)));
+        index.add(ids, segments);
+        return index;
+    }
+
+    private static List<String> fillerIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("filler-" + i);
+        }
+        return ids;
+    }
+
+    private static void assertSameScores(KeywordIndex actual, KeywordIndex expected) {
+        for (String query : List.of("x200", "快速充电", "电池容量", "充电器 x300")) {
+            List<KeywordIndex.Hit> expectedHits = expected.search(query, 10);
+            List<KeywordIndex.Hit> actualHits = actual.search(query, 10);
+            assertThat(actualHits).extracting(KeywordIndex.Hit::id)
+                    .containsExactlyElementsOf(expectedHits.stream().map(KeywordIndex.Hit::id).toList());
+            for (int i = 0; i < expectedHits.size(); i++) {
+                assertThat(actualHits.get(i).score()).isCloseTo(expectedHits.get(i).score(), within(1e-5));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.langchain4j.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int VECTORS = 2000;
+    private static final int K = 10;
+    private static final HnswIndex.Options OPTIONS = new HnswIndex.Options(16, 100, 64);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recallCloseToExactScan() throws Exception {
+        List<Embedding> embeddings = randomEmbeddings(new Random(42), VECTORS);
+        try (LocalEmbeddingStore exact = new LocalEmbeddingStore(directory.resolve("flat"), DIMENSION);
+             LocalEmbeddingStore hnsw = new LocalEmbeddingStore(directory.resolve("hnsw"), DIMENSION, OPTIONS)) {
+            exact.addAll(embeddings, segments(VECTORS));
+            hnsw.addAll(embeddings, segments(VECTORS));
+
+            Random random = new Random(7);
+            int found = 0;
+            int total = 0;
+            for (int q = 0; q < 50; q++) {
+                Embedding query = randomEmbedding(random);
+                Set<String> expected = ids(exact.search(request(query)).matches());
+                Set<String> actual = ids(hnsw.search(request(query)).matches());
+                actual.retainAll(expected);
+                found += actual.size();
+                total += expected.size();
+            }
+            assertThat((double) found / total).isGreaterThanOrEqualTo(0.9);
+        }
+    }
+
+    @Test
+    void reloadsIndexAfterClose() throws Exception {
+        List<Embedding> embeddings = randomEmbeddings(new Random(42), 500);
+        List<Embedding> queries = randomEmbeddings(new Random(7), 10);
+        List<List<ScoredNode>> before = new ArrayList<>();
+        try (MappedVectorFile vectors = new MappedVectorFile(directory.resolve("vectors.f32"), DIMENSION)) {
+            HnswIndex index = new HnswIndex(directory, vectors, OPTIONS);
+            assertThat(index.isLoaded()).isFalse();
+            for (int node = 0; node < embeddings.size(); node++) {
+                vectors.write(node, VectorMath.normalize(embeddings.get(node).vector()));
+                index.insert(node);
+            }
+            for (Embedding query : queries) {
+                before.add(index.search(VectorMath.normalize(query.vector()), K, node -> true));
+            }
+            index.close();
+        }
+        assertThat(directory.resolve("hnsw.meta")).exists();
+
+        try (MappedVectorFile vectors = new MappedVectorFile(directory.resolve("vectors.f32"), DIMENSION)) {
+            HnswIndex index = new HnswIndex(directory, vectors, OPTIONS);
+            assertThat(index.isLoaded()).isTrue();
+            assertThat(index.size()).isEqualTo(embeddings.size());
+            // 运行期间 meta 被删除，异常退出后由调用方重建
+            assertThat(directory.resolve("hnsw.meta")).doesNotExist();
+            for (int q = 0; q < queries.size(); q++) {
+                assertThat(index.search(VectorMath.normalize(queries.get(q).vector()), K, node -> true))
+                        .isEqualTo(before.get(q));
+            }
+            index.close();
+        }
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(K).minScore(0.0).build();
+    }
+
+    /**
+     * 两个库中的片段 ID 不同，以片段文本标识向量
+     */
+    private static Set<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        Set<String> ids = new HashSet<>();
+        matches.forEach(match -> ids.add(match.embedded().text()));
+        return ids;
+    }
+
+    static List<Embedding> randomEmbeddings(Random random, int count) {
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            embeddings.add(randomEmbedding(random));
+        }
+        return embeddings;
+    }
+
+    static Embedding randomEmbedding(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return Embedding.from(vector);
+    }
+
+    static List<TextSegment> segments(int count) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from("segment " + i));
+        }
+        return segments;
+    }
+}
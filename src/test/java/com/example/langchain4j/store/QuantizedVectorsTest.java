@@ -0,0 +1,130 @@
+package com.example.langchain4j.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedVectorsTest {
+
+    private static final int DIMENSION = 64;
+    private static final int VECTORS = 1000;
+    private static final int K = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void int8RescoringMatchesExactScan() throws Exception {
+        List<Embedding> embeddings = randomEmbeddings(new Random(42), VECTORS);
+        try (LocalEmbeddingStore exact = new LocalEmbeddingStore(directory.resolve("flat"), DIMENSION);
+             LocalEmbeddingStore int8 = new LocalEmbeddingStore(directory.resolve("int8"), DIMENSION, null,
+                     Quantization.INT8, 4)) {
+            exact.addAll(embeddings, segments(VECTORS));
+            int8.addAll(embeddings, segments(VECTORS));
+
+            Random random = new Random(7);
+            int found = 0;
+            for (int q = 0; q < 20; q++) {
+                Embedding query = randomEmbedding(random);
+                Map<String, Double> expected = scores(exact.search(request(query, K)).matches());
+                for (EmbeddingMatch<TextSegment> match : int8.search(request(query, K)).matches()) {
+                    Double score = expected.get(match.embedded().text());
+                    if (score != null) {
+                        found++;
+                        // 最终得分由原始向量重新计算，与精确扫描一致
+                        assertThat(match.score()).isCloseTo(score, within(1e-6));
+                    }
+                }
+            }
+            assertThat((double) found / (20 * K)).isGreaterThanOrEqualTo(0.95);
+        }
+    }
+
+    @Test
+    void binaryRescoringFindsStoredVector() throws Exception {
+        List<Embedding> embeddings = randomEmbeddings(new Random(42), VECTORS);
+        try (LocalEmbeddingStore store = new LocalEmbeddingStore(directory, DIMENSION, null,
+                Quantization.BINARY, 8)) {
+            store.addAll(embeddings, segments(VECTORS));
+            for (int i = 0; i < VECTORS; i += 97) {
+                List<EmbeddingMatch<TextSegment>> matches = store.search(request(embeddings.get(i), 1)).matches();
+                assertThat(matches).hasSize(1);
+                assertThat(matches.get(0).embedded().text()).isEqualTo("segment " + i);
+                assertThat(matches.get(0).score()).isCloseTo(1.0, within(1e-6));
+            }
+        }
+    }
+
+    @Test
+    void rebuildsCodesWrittenWhileQuantizationWasOff() throws Exception {
+        List<Embedding> embeddings = randomEmbeddings(new Random(42), 200);
+        Embedding replacement = randomEmbedding(new Random(999));
+        try (LocalEmbeddingStore store = new LocalEmbeddingStore(directory, DIMENSION, null, Quantization.INT8, 1)) {
+            for (int i = 0; i < embeddings.size(); i++) {
+                store.add("id" + i, embeddings.get(i));
+            }
+        }
+        // 不量化打开期间替换向量，量化编码没有随之更新
+        try (LocalEmbeddingStore store = new LocalEmbeddingStore(directory, DIMENSION)) {
+            store.removeAll(List.of("id0"));
+            store.add("id0", replacement);
+            store.add("id200", embeddings.get(1));
+        }
+
+        try (LocalEmbeddingStore store = new LocalEmbeddingStore(directory, DIMENSION, null, Quantization.INT8, 1)) {
+            List<EmbeddingMatch<TextSegment>> matches = store.search(request(replacement, 1)).matches();
+            assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("id0");
+            assertThat(matches.get(0).score()).isCloseTo(1.0, within(1e-6));
+            assertThat(store.search(request(embeddings.get(1), 2)).matches())
+                    .extracting(EmbeddingMatch::embeddingId)
+                    .containsExactlyInAnyOrder("id1", "id200");
+        }
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query, int maxResults) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(maxResults).minScore(0.0).build();
+    }
+
+    private static Map<String, Double> scores(List<EmbeddingMatch<TextSegment>> matches) {
+        Map<String, Double> scores = new HashMap<>();
+        matches.forEach(match -> scores.put(match.embedded().text(), match.score()));
+        return scores;
+    }
+
+    private static List<Embedding> randomEmbeddings(Random random, int count) {
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            embeddings.add(randomEmbedding(random));
+        }
+        return embeddings;
+    }
+
+    private static Embedding randomEmbedding(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return Embedding.from(vector);
+    }
+
+    private static List<TextSegment> segments(int count) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from("segment " + i));
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.langchain4j.tools;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+class IngestionJobTest {
+
+    private static final String STORE = "test";
+
+    @TempDir
+    Path directory;
+
+    private Path documents;
+    private IngestionHelper helper;
+    private InMemoryEmbeddingStore<TextSegment> store;
+    private IngestionJob job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        documents = Files.createDirectories(directory.resolve("documents"));
+        helper = new IngestionHelper(documents, directory.resolve("data"));
+        store = new InMemoryEmbeddingStore<>();
+        AppProperties properties = new AppProperties();
+        // 每段约 25 个字符，两段合并会超过 40，每段成为一个片段
+        properties.getDocument().setMaxSegmentSize(40);
+        job = new IngestionJob(STORE, oldMarker(), store,
+                segments -> Response.from(segments.stream()
+                        .map(segment -> new Embedding(new float[]{1, segment.text().length()}))
+                        .toList()),
+                properties, helper, null, 16);
+
+        write("a/readme.txt", "readme of folder a\n\nshared paragraph text");
+        write("b/readme.txt", "readme of folder b\n\nshared paragraph text");
+        write("notes.txt", "first paragraph of notes\n\nsecond paragraph of notes\n\nthird paragraph of notes");
+        runJob(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    void keepsFilesWithSameNameInDifferentFolders() throws Exception {
+        IngestionManifest manifest = manifest();
+        assertThat(manifest.getFiles()).containsOnlyKeys("a/readme.txt", "b/readme.txt", "notes.txt");
+        assertThat(manifest.getFiles().get("a/readme.txt").segments()).hasSize(2);
+        assertThat(manifest.getFiles().get("b/readme.txt").segments()).hasSize(2);
+        assertThat(texts()).containsExactlyInAnyOrder("readme of folder a", "readme of folder b",
+                "shared paragraph text", "shared paragraph text",
+                "first paragraph of notes", "second paragraph of notes", "third paragraph of notes");
+
+        // 删除 a/readme.txt 只删除其自身的片段，同名的 b/readme.txt 不受影响
+        Files.delete(documents.resolve("a/readme.txt"));
+        IngestionHelper.IngestionPlan plan = helper.resolveChanges(STORE, oldMarker());
+        assertThat(plan.changes()).isEmpty();
+        assertThat(plan.removed()).containsExactly("a/readme.txt");
+
+        runJob(2);
+        assertThat(manifest().getFiles()).containsOnlyKeys("b/readme.txt", "notes.txt");
+        assertThat(texts()).containsExactlyInAnyOrder("readme of folder b", "shared paragraph text",
+                "first paragraph of notes", "second paragraph of notes", "third paragraph of notes");
+        assertThat(job.progress().removedSegments()).isEqualTo(2);
+    }
+
+    @Test
+    void reusesUnchangedSegmentsOfEditedFile() throws Exception {
+        Map<String, String> before = segmentIds("notes.txt");
+        long written = job.progress().segments();
+
+        write("notes.txt", "first paragraph of notes\n\nsecond paragraph edited\n\nthird paragraph of notes");
+        IngestionHelper.IngestionPlan plan = helper.resolveChanges(STORE, oldMarker());
+        assertThat(plan.removed()).isEmpty();
+        assertThat(plan.changes()).singleElement().satisfies(change -> {
+            assertThat(change.relativePath()).isEqualTo("notes.txt");
+            assertThat(change.previous()).isNotNull();
+            assertThat(change.previous().segments()).hasSize(3);
+        });
+
+        runJob(2);
+        IngestionJob.Progress progress = job.progress();
+        // 只有变化的一段重新向量化，其余两段沿用原 ID，旧的第二段被删除
+        assertThat(progress.segments() - written).isEqualTo(1);
+        assertThat(progress.reusedSegments()).isEqualTo(2);
+        assertThat(progress.removedSegments()).isEqualTo(1);
+
+        Map<String, String> after = segmentIds("notes.txt");
+        assertThat(after).hasSize(3);
+        String first = Hashing.sha256("first paragraph of notes");
+        String third = Hashing.sha256("third paragraph of notes");
+        assertThat(after.get(first)).isEqualTo(before.get(first));
+        assertThat(after.get(third)).isEqualTo(before.get(third));
+        assertThat(after).containsKey(Hashing.sha256("second paragraph edited"))
+                .doesNotContainKey(Hashing.sha256("second paragraph of notes"));
+        assertThat(texts()).contains("second paragraph edited").doesNotContain("second paragraph of notes");
+    }
+
+    @Test
+    void renameIntoSubfolderMovesSegments() throws Exception {
+        Files.createDirectories(documents.resolve("archive"));
+        Files.move(documents.resolve("notes.txt"), documents.resolve("archive/notes.txt"));
+
+        IngestionHelper.IngestionPlan plan = helper.resolveChanges(STORE, oldMarker());
+        assertThat(plan.removed()).containsExactly("notes.txt");
+        assertThat(plan.changes()).singleElement().satisfies(change -> {
+            assertThat(change.relativePath()).isEqualTo("archive/notes.txt");
+            assertThat(change.previous()).isNull();
+        });
+
+        runJob(2);
+        IngestionManifest manifest = manifest();
+        assertThat(manifest.getFiles()).containsOnlyKeys("a/readme.txt", "b/readme.txt", "archive/notes.txt");
+        assertThat(manifest.getFiles().get("archive/notes.txt").segments()).hasSize(3);
+        // 旧路径的片段已删除，新路径的片段只有一份
+        assertThat(texts()).filteredOn(text -> text.contains("notes"))
+                .containsExactlyInAnyOrder("first paragraph of notes", "second paragraph of notes",
+                        "third paragraph of notes");
+
+        // 再次对比没有变化
+        plan = helper.resolveChanges(STORE, oldMarker());
+        assertThat(plan.changes()).isEmpty();
+        assertThat(plan.removed()).isEmpty();
+    }
+
+    private void write(String relativePath, String text) throws Exception {
+        Path path = documents.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        boolean existed = Files.exists(path);
+        long previous = existed ? Files.getLastModifiedTime(path).toMillis() : 0;
+        Files.writeString(path, text);
+        if (existed) {
+            // 修改时间精度有限，确保编辑后的修改时间与清单记录不同
+            Files.setLastModifiedTime(path, FileTime.fromMillis(previous + 2000));
+        }
+    }
+
+    /**
+     * 触发一次全量对比并等待第 run 次导入结束
+     */
+    private void runJob(int run) throws InterruptedException {
+        job.reindex(null);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.progress().runs() < run || job.getState() == IngestionJob.State.RUNNING) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("导入任务未在 10 秒内结束");
+            }
+            Thread.sleep(10);
+        }
+        assertThat(job.getState()).isEqualTo(IngestionJob.State.READY);
+        assertThat(job.progress().failedFiles()).isZero();
+    }
+
+    private IngestionManifest manifest() throws Exception {
+        return IngestionManifest.load(helper.manifestPath(STORE));
+    }
+
+    /**
+     * 清单中文件的片段：片段摘要 -> 向量库 ID
+     */
+    private Map<String, String> segmentIds(String relativePath) throws Exception {
+        return manifest().getFiles().get(relativePath).segments().stream()
+                .collect(Collectors.toMap(IngestionManifest.SegmentEntry::hash, IngestionManifest.SegmentEntry::id));
+    }
+
+    private List<String> texts() {
+        return store.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(new Embedding(new float[]{1, 1}))
+                        .maxResults(1000)
+                        .minScore(0.0)
+                        .build())
+                .matches().stream()
+                .map(EmbeddingMatch::embedded)
+                .map(TextSegment::text)
+                .toList();
+    }
+
+    private String oldMarker() {
+        return directory.resolve(".test_ingested").toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.langchain4j.tools;
+
+import com.example.langchain4j.config.AppProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class IngestionPipelineTest {
+
+    private static final String BAD = "BAD";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void errorInOneBatchFailsOnlyItsFile() {
+        // 向量化抛出 Error 也只使该文件失败，阶段线程继续处理后续文件
+        EmbeddingModel model = segments -> {
+            if (segments.stream().anyMatch(segment -> segment.text().contains(BAD))) {
+                throw new OutOfMemoryError("stub");
+            }
+            return Response.from(embed(segments));
+        };
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        IngestionPipeline pipeline = new IngestionPipeline("test", model, store, null, 1, 2);
+        List<IngestionPipeline.FileTask> completed = Collections.synchronizedList(new ArrayList<>());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            pipeline.start();
+            IngestionPipeline.FileTask bad = pipeline.newTask("bad.txt", completed::add);
+            pipeline.submit(bad, segments("bad 1", "bad 2"), List.of("b1", "b2"));
+            pipeline.submit(bad, segments(BAD + " 3"), List.of("b3"));
+            pipeline.submit(bad, segments("bad 4", "bad 5"), List.of("b4", "b5"));
+            pipeline.finish(bad);
+            IngestionPipeline.FileTask good = pipeline.newTask("good.txt", completed::add);
+            pipeline.submit(good, segments("good 1", "good 2"), List.of("g1", "g2"));
+            pipeline.submit(good, segments("good 3"), List.of("g3"));
+            pipeline.finish(good);
+            pipeline.drain();
+        });
+
+        assertThat(completed).extracting(IngestionPipeline.FileTask::relativePath)
+                .containsExactlyInAnyOrder("bad.txt", "good.txt");
+        IngestionPipeline.FileTask bad = task(completed, "bad.txt");
+        IngestionPipeline.FileTask good = task(completed, "good.txt");
+        assertThat(bad.failure()).isInstanceOf(OutOfMemoryError.class);
+        assertThat(good.failure()).isNull();
+        assertThat(good.entries()).extracting(IngestionManifest.SegmentEntry::hash)
+                .containsExactlyInAnyOrder("g1", "g2", "g3");
+        assertThat(pipeline.failure()).isNull();
+    }
+
+    @Test
+    void jobRollsBackSegmentsOfFailedFile() throws Exception {
+        Path documents = Files.createDirectories(directory.resolve("documents"));
+        Files.writeString(documents.resolve("bad.txt"),
+                "first paragraph of bad\n\nsecond paragraph of bad\n\n" + BAD + " third paragraph");
+        Files.writeString(documents.resolve("good.txt"), "first paragraph of good\n\nsecond paragraph of good");
+
+        // 每个片段单独写入：bad.txt 的前两个片段写入成功，第三个片段写入失败
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>() {
+            @Override
+            public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+                if (segments.stream().anyMatch(segment -> segment.text().contains(BAD))) {
+                    throw new IllegalStateException("stub");
+                }
+                return super.addAll(embeddings, segments);
+            }
+        };
+        AppProperties properties = new AppProperties();
+        properties.getDocument().setMaxSegmentSize(40);
+        properties.getDocument().setIngestBatchSize(8);
+        IngestionHelper helper = new IngestionHelper(documents, directory.resolve("data"));
+        IngestionJob job = new IngestionJob("test", directory.resolve(".test_ingested").toString(), store,
+                segments -> Response.from(embed(segments)), properties, helper, null, 1);
+        try {
+            job.reindex(null);
+            await(job);
+        } finally {
+            job.shutdown();
+        }
+
+        IngestionJob.Progress progress = job.progress();
+        assertThat(progress.state()).isEqualTo(IngestionJob.State.READY);
+        assertThat(progress.processedFiles()).isEqualTo(2);
+        assertThat(progress.failedFiles()).isEqualTo(1);
+        // bad.txt 已写入的两个片段计入写入数，随后被撤销
+        assertThat(progress.segments()).isEqualTo(4);
+        assertThat(texts(store)).containsExactlyInAnyOrder("first paragraph of good", "second paragraph of good");
+
+        IngestionManifest manifest = IngestionManifest.load(helper.manifestPath("test"));
+        assertThat(manifest.getFiles()).containsOnlyKeys("good.txt");
+    }
+
+    static void await(IngestionJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.getState() == IngestionJob.State.PENDING || job.getState() == IngestionJob.State.RUNNING) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("导入任务未在 10 秒内结束");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    static List<String> texts(InMemoryEmbeddingStore<TextSegment> store) {
+        return store.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(new Embedding(new float[]{1, 1}))
+                        .maxResults(1000)
+                        .minScore(0.0)
+                        .build())
+                .matches().stream()
+                .map(EmbeddingMatch::embedded)
+                .map(TextSegment::text)
+                .toList();
+    }
+
+    /**
+     * 各分量为正的二维向量，任意两个向量的相似度都大于 0，检索时不会被过滤
+     */
+    static List<Embedding> embed(List<TextSegment> segments) {
+        return segments.stream()
+                .map(segment -> new Embedding(new float[]{1, segment.text().length()}))
+                .toList();
+    }
+
+    private static List<TextSegment> segments(String... texts) {
+        return Arrays.stream(texts).map(TextSegment::from).toList();
+    }
+
+    private static IngestionPipeline.FileTask task(List<IngestionPipeline.FileTask> tasks, String relativePath) {
+        return tasks.stream().filter(task -> task.relativePath().equals(relativePath)).findFirst().orElseThrow();
+    }
+}